@@ -0,0 +1,78 @@
+package ca.dal.treefactor.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.dal.treefactor.model.diff.mappers.LCSStatementAligner;
+import ca.dal.treefactor.model.diff.mappers.StatementAligner;
+
+/**
+ * Aligns two bodies of statement ids, the second one being the first with about a tenth of
+ * its statements replaced. The int table is the LCS table the mapper filled before the
+ * bit-parallel kernel, kept here as the baseline.
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementAlignerBenchmark {
+    @Param({"100", "500", "2000"})
+    private int statements;
+
+    private int[] ids1;
+    private int[] ids2;
+    private StatementAligner bitParallel;
+    private StatementAligner myers;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids1 = new int[statements];
+        ids2 = new int[statements];
+        for (int i = 0; i < statements; i++) {
+            ids1[i] = random.nextInt(statements / 4);
+            ids2[i] = random.nextInt(10) == 0 ? random.nextInt(statements / 4) : ids1[i];
+        }
+        bitParallel = new LCSStatementAligner(Long.MAX_VALUE);
+        myers = StatementAligner.myers();
+    }
+
+    @Benchmark
+    public int intTable() {
+        int[][] matrix = new int[ids1.length + 1][ids2.length + 1];
+        for (int i = 1; i <= ids1.length; i++) {
+            for (int j = 1; j <= ids2.length; j++) {
+                matrix[i][j] = ids1[i-1] == ids2[j-1] ?
+                        matrix[i-1][j-1] + 1 :
+                        Math.max(matrix[i-1][j], matrix[i][j-1]);
+            }
+        }
+        return matrix[ids1.length][ids2.length];
+    }
+
+    @Benchmark
+    public int[] bitParallelTable() {
+        return bitParallel.align(ids1, ids2);
+    }
+
+    @Benchmark
+    public int[] myers() {
+        return myers.align(ids1, ids2);
+    }
+}
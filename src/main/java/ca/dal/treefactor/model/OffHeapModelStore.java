@@ -0,0 +1,233 @@
+package ca.dal.treefactor.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage of a model outside of the Java heap.
+ * Each file is kept in the binary format of UMLModelCodec, in memory allocated from an Arena,
+ * and is decoded again on request. A model can be read into a store one file at a time and
+ * only the files that differ between two stores need to be loaded on the heap to be diffed,
+ * so the heap used to compare two snapshots depends on the size of the change rather than
+ * on the size of the repository.
+ *
+ * The memory of a file that is replaced is only released when the store is closed.
+ */
+public final class OffHeapModelStore implements AutoCloseable {
+    private final String language;
+    private final boolean compress;
+    private final Arena arena;
+    private final Map<String, MemorySegment> files;  // Encoded file records, in insertion order
+    private long sizeInBytes;
+
+    public OffHeapModelStore(String language) {
+        this(language, false);
+    }
+
+    public OffHeapModelStore(String language, boolean compress) {
+        this.language = language.toLowerCase();
+        this.compress = compress;
+        this.arena = Arena.ofShared();
+        this.files = new LinkedHashMap<>();
+    }
+
+    /**
+     * Copies every file of a model into a new store
+     */
+    public static OffHeapModelStore of(UMLModel model) {
+        OffHeapModelStore store = new OffHeapModelStore(model.getLanguage());
+        for (String filePath : model.getFilePaths()) {
+            store.put(model, filePath);
+        }
+        return store;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    // File operations
+    /**
+     * Stores a file as read into a model, replacing whatever was stored for it before
+     */
+    public void put(UMLModel model, String filePath) {
+        UMLModelFragment fragment = model.getFragment(filePath);
+        if (fragment == null) {
+            String packageName = model.getPackage(filePath);
+            UMLModelFragment.Builder builder = UMLModelFragment.builder(filePath)
+                    .packageName(packageName.isEmpty() ? null : packageName);
+            model.getClassesInFile(filePath).forEach(builder::addClass);
+            model.getStandaloneOperationsInFile(filePath).forEach(builder::addOperation);
+            model.getImports(filePath).forEach(builder::addImport);
+            model.getComments(filePath).forEach(builder::addComment);
+            model.getStaticInitializers(filePath).forEach(builder::addStaticInitializer);
+            fragment = builder.build();
+        }
+        put(fragment, model.getSourceFileContent(filePath));
+    }
+
+    public void put(UMLModelFragment fragment, String sourceContent) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (UMLModelCodec.Writer writer = new UMLModelCodec.Writer(bytes, language, compress)) {
+            writer.writeFile(fragment, sourceContent);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        synchronized (this) {
+            MemorySegment segment = arena.allocate(record.length);
+            MemorySegment.copy(record, 0, segment, ValueLayout.JAVA_BYTE, 0, record.length);
+            files.put(fragment.getFilePath(), segment);
+            sizeInBytes += record.length;
+        }
+    }
+
+    public synchronized boolean contains(String filePath) {
+        return files.containsKey(filePath);
+    }
+
+    public synchronized void remove(String filePath) {
+        files.remove(filePath);
+    }
+
+    public synchronized Set<String> getFilePaths() {
+        return new LinkedHashSet<>(files.keySet());
+    }
+
+    /**
+     * Decodes the stored file, or returns null if the store has no such file
+     */
+    public UMLModelCodec.FileEntry get(String filePath) {
+        MemorySegment segment;
+        synchronized (this) {
+            segment = files.get(filePath);
+        }
+        if (segment == null) {
+            return null;
+        }
+        try (UMLModelCodec.Reader reader = new UMLModelCodec.Reader(new SegmentInputStream(segment))) {
+            return reader.readFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public UMLModelFragment getFragment(String filePath) {
+        UMLModelCodec.FileEntry entry = get(filePath);
+        return entry != null ? entry.fragment() : null;
+    }
+
+    // Query operations
+    /**
+     * Paths of the files that are stored differently in this store and in the other one,
+     * including files that only one of them holds.
+     * Files are compared as encoded, so both stores are expected to use the same compression.
+     */
+    public Set<String> getChangedFiles(OffHeapModelStore other) {
+        Map<String, MemorySegment> ours;
+        Map<String, MemorySegment> theirs;
+        synchronized (this) {
+            ours = new LinkedHashMap<>(files);
+        }
+        synchronized (other) {
+            theirs = new LinkedHashMap<>(other.files);
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, MemorySegment> entry : ours.entrySet()) {
+            MemorySegment otherSegment = theirs.get(entry.getKey());
+            if (otherSegment == null || entry.getValue().mismatch(otherSegment) != -1) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String filePath : theirs.keySet()) {
+            if (!ours.containsKey(filePath)) {
+                changed.add(filePath);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Decodes the given files into a model on the heap, paths the store has no file of are ignored
+     */
+    public UMLModel load(Collection<String> filePaths) {
+        UMLModel model = new UMLModel(language);
+        for (String filePath : filePaths) {
+            UMLModelCodec.FileEntry entry = get(filePath);
+            if (entry != null) {
+                model.addFragment(entry.fragment());
+                if (entry.sourceContent() != null) {
+                    model.addSourceFileContent(filePath, entry.sourceContent());
+                }
+            }
+        }
+        return model;
+    }
+
+    public UMLModel load() {
+        return load(getFilePaths());
+    }
+
+    // Statistics operations
+    public synchronized int getNumberOfFiles() {
+        return files.size();
+    }
+
+    /**
+     * Off-heap memory allocated by the store, including files that were since replaced
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Releases the memory of the store, it must not be used afterwards
+     */
+    @Override
+    public synchronized void close() {
+        files.clear();
+        arena.close();
+    }
+
+    private static final class SegmentInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private SegmentInputStream(MemorySegment segment) {
+            this.buffer = segment.asByteBuffer();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -3,35 +3,64 @@ package ca.dal.treefactor.model;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
+import ca.dal.treefactor.model.UMLModelFragment.StaticInitializer;
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.model.core.UMLComment;
 import ca.dal.treefactor.model.core.UMLImport;
 import ca.dal.treefactor.model.elements.UMLClass;
 import ca.dal.treefactor.model.elements.UMLOperation;
 
+/**
+ * Model of the source files of one language.
+ * It is assembled from per-file fragments: addFragment and removeFile
+ * add, replace or remove one file at a time and may be called concurrently by readers of different files.
+ * Every method that touches the content of the model is synchronized on it, and lists handed out
+ * are copies, so the model can be read while other files are being merged into it.
+ */
 public class UMLModel {
-    // Core data structures
-    private final List<UMLClass> classes;
-    private final List<UMLOperation> operations;  // For standalone functions/methods
+    // Core data structures, insertion-ordered sets so that duplicates are found by hash
+    private final Set<UMLClass> classes;
+    private final Set<UMLOperation> operations;  // For standalone functions/methods
+    private final Map<String, UMLModelFragment> fragments;  // Fragment each file was read into
+    // Lookup indexes, kept in insertion order so that lookups return the first element added
+    private final Map<String, List<UMLClass>> classesByName;
+    private final Map<String, List<UMLClass>> classesByQualifiedName;
+    private final Map<String, List<UMLClass>> classesByFile;
+    private final Map<String, List<UMLOperation>> operationsByName;
+    private final Map<String, List<UMLOperation>> operationsByFile;
+    // Read-only snapshots handed out by getClasses and getOperations, dropped on change
+    private List<UMLClass> classSnapshot;
+    private List<UMLOperation> operationSnapshot;
     private final Map<String, List<UMLComment>> commentMap;
     private final Map<String, List<UMLImport>> importMap;
-    private final Map<String, String> sourceFileContents;
+    private final Map<String, SourceText> sourceFileContents;  // Possibly lazy, materialized on request
     private final Map<String, String> packageMap;  // For modules/namespaces
+    private final Map<String, List<StaticInitializer>> staticInitializerMap;  // Applied to classes of other files
     private final String language;  // "python", "javascript", or "cpp"
 
     public UMLModel(String language) {
         this.language = language.toLowerCase();
-        this.classes = new ArrayList<>();
-        this.operations = new ArrayList<>();
+        this.classes = new LinkedHashSet<>();
+        this.operations = new LinkedHashSet<>();
+        this.fragments = new LinkedHashMap<>();
+        this.classesByName = new HashMap<>();
+        this.classesByQualifiedName = new HashMap<>();
+        this.classesByFile = new HashMap<>();
+        this.operationsByName = new HashMap<>();
+        this.operationsByFile = new HashMap<>();
         this.commentMap = new HashMap<>();
         this.importMap = new HashMap<>();
         this.sourceFileContents = new HashMap<>();
         this.packageMap = new HashMap<>();
+        this.staticInitializerMap = new LinkedHashMap<>();
     }
 
     // Language-specific operations
@@ -52,135 +81,271 @@ public class UMLModel {
     }
 
     // Class operations
-    public void addClass(UMLClass umlClass) {
-        if (!classes.contains(umlClass)) {
-            classes.add(umlClass);
+    public synchronized void addClass(UMLClass umlClass) {
+        if (classes.add(umlClass)) {
+            index(classesByName, umlClass.getName(), umlClass);
+            index(classesByQualifiedName, qualifiedName(umlClass), umlClass);
+            index(classesByFile, umlClass.getLocationInfo().getFilePath(), umlClass);
+            classSnapshot = null;
         }
     }
 
-    public void removeClass(UMLClass umlClass) {
-        classes.remove(umlClass);
+    public synchronized void removeClass(UMLClass umlClass) {
+        if (classes.remove(umlClass)) {
+            unindex(classesByName, umlClass.getName(), umlClass);
+            unindex(classesByQualifiedName, qualifiedName(umlClass), umlClass);
+            unindex(classesByFile, umlClass.getLocationInfo().getFilePath(), umlClass);
+            classSnapshot = null;
+        }
     }
 
-    public List<UMLClass> getClasses() {
-        return new ArrayList<>(classes);
+    /**
+     * Returns a read-only snapshot of the classes, shared until the classes change
+     */
+    public synchronized List<UMLClass> getClasses() {
+        if (classSnapshot == null) {
+            classSnapshot = List.copyOf(classes);
+        }
+        return classSnapshot;
     }
 
-    public Optional<UMLClass> getClass(String className) {
-        return classes.stream()
-                .filter(c -> c.getName().equals(className))
-                .findFirst();
+    public synchronized Optional<UMLClass> getClass(String className) {
+        return Optional.ofNullable(first(classesByName, className));
     }
 
     // Function/Method operations
-    public void addOperation(UMLOperation operation) {
-        if (!operations.contains(operation)) {
-            operations.add(operation);
+    public synchronized void addOperation(UMLOperation operation) {
+        if (operations.add(operation)) {
+            index(operationsByName, operation.getName(), operation);
+            index(operationsByFile, operation.getLocationInfo().getFilePath(), operation);
+            operationSnapshot = null;
         }
     }
 
-    public void removeOperation(UMLOperation operation) {
-        operations.remove(operation);
+    public synchronized void removeOperation(UMLOperation operation) {
+        if (operations.remove(operation)) {
+            unindex(operationsByName, operation.getName(), operation);
+            unindex(operationsByFile, operation.getLocationInfo().getFilePath(), operation);
+            operationSnapshot = null;
+        }
     }
 
-    public List<UMLOperation> getOperations() {
-        return new ArrayList<>(operations);
+    /**
+     * Returns a read-only snapshot of the standalone operations, shared until they change
+     */
+    public synchronized List<UMLOperation> getOperations() {
+        if (operationSnapshot == null) {
+            operationSnapshot = List.copyOf(operations);
+        }
+        return operationSnapshot;
     }
 
-    public Optional<UMLOperation> getOperation(String operationName) {
-        return operations.stream()
-                .filter(o -> o.getName().equals(operationName))
-                .findFirst();
+    public synchronized Optional<UMLOperation> getOperation(String operationName) {
+        return Optional.ofNullable(first(operationsByName, operationName));
     }
 
     // Import operations
-    public void addImport(String filePath, UMLImport umlImport) {
+    public synchronized void addImport(String filePath, UMLImport umlImport) {
         importMap.computeIfAbsent(filePath, k -> new ArrayList<>()).add(umlImport);
     }
 
-    public void addImports(String filePath, List<UMLImport> imports) {
+    public synchronized void addImports(String filePath, List<UMLImport> imports) {
         importMap.put(filePath, new ArrayList<>(imports));
     }
 
-    public List<UMLImport> getImports(String filePath) {
-        return importMap.getOrDefault(filePath, new ArrayList<>());
+    public synchronized List<UMLImport> getImports(String filePath) {
+        return List.copyOf(importMap.getOrDefault(filePath, List.of()));
     }
 
-    public void removeImports(String filePath) {
+    public synchronized void removeImports(String filePath) {
         importMap.remove(filePath);
     }
 
     // Comment operations
-    public void addComment(String filePath, UMLComment comment) {
+    public synchronized void addComment(String filePath, UMLComment comment) {
         commentMap.computeIfAbsent(filePath, k -> new ArrayList<>()).add(comment);
     }
 
-    public void addComments(String filePath, List<UMLComment> comments) {
+    public synchronized void addComments(String filePath, List<UMLComment> comments) {
         commentMap.put(filePath, new ArrayList<>(comments));
     }
 
-    public List<UMLComment> getComments(String filePath) {
-        return commentMap.getOrDefault(filePath, new ArrayList<>());
+    public synchronized List<UMLComment> getComments(String filePath) {
+        return List.copyOf(commentMap.getOrDefault(filePath, List.of()));
     }
 
-    public void removeComments(String filePath) {
+    public synchronized void removeComments(String filePath) {
         commentMap.remove(filePath);
     }
 
     // Package/Module/Namespace operations
-    public void addPackage(String filePath, String packageName) {
+    public synchronized void addPackage(String filePath, String packageName) {
         packageMap.put(filePath, packageName);
     }
 
-    public String getPackage(String filePath) {
+    public synchronized String getPackage(String filePath) {
         return packageMap.getOrDefault(filePath, "");
     }
 
     // Source file operations
-    public void addSourceFileContent(String filePath, String content) {
+    public synchronized void addSourceFileContent(String filePath, String content) {
+        sourceFileContents.put(filePath, content != null ? SourceText.of(content) : null);
+    }
+
+    /**
+     * Retains the content of a file by reference, a lazy source is only loaded when the content is requested
+     */
+    public synchronized void addSourceFileContent(String filePath, SourceText content) {
         sourceFileContents.put(filePath, content);
     }
 
     public String getSourceFileContent(String filePath) {
+        // Loading a lazy source does not need the lock
+        SourceText content = getSourceText(filePath);
+        return content != null ? content.getText() : null;
+    }
+
+    public synchronized SourceText getSourceText(String filePath) {
         return sourceFileContents.get(filePath);
     }
 
-    public Set<String> getSourceFilePaths() {
+    public synchronized Set<String> getSourceFilePaths() {
         return new HashSet<>(sourceFileContents.keySet());
     }
 
+    // Fragment operations
+    /**
+     * Merges the fragment of a file into the model.
+     * Whatever was previously read from the same file is replaced, its source content is kept.
+     * Static initializers of the file are applied to the classes of other files and the ones of
+     * other files to the classes of this file, so the result does not depend on the merge order.
+     */
+    public synchronized void addFragment(UMLModelFragment fragment) {
+        String filePath = fragment.getFilePath();
+        removeFileElements(filePath);
+        fragments.put(filePath, fragment);
+        fragment.getClasses().forEach(this::addClass);
+        fragment.getOperations().forEach(this::addOperation);
+        if (!fragment.getImports().isEmpty()) {
+            importMap.put(filePath, new ArrayList<>(fragment.getImports()));
+        }
+        if (!fragment.getComments().isEmpty()) {
+            commentMap.put(filePath, new ArrayList<>(fragment.getComments()));
+        }
+        if (fragment.getPackageName() != null) {
+            packageMap.put(filePath, fragment.getPackageName());
+        }
+        if (!fragment.getStaticInitializers().isEmpty()) {
+            staticInitializerMap.put(filePath, new ArrayList<>(fragment.getStaticInitializers()));
+        }
+        applyStaticInitializers(filePath);
+    }
+
+    public synchronized List<StaticInitializer> getStaticInitializers(String filePath) {
+        return List.copyOf(staticInitializerMap.getOrDefault(filePath, List.of()));
+    }
+
+    private void applyStaticInitializers(String filePath) {
+        for (StaticInitializer initializer : staticInitializerMap.getOrDefault(filePath, List.of())) {
+            for (UMLClass umlClass : classesByName.getOrDefault(initializer.className(), List.of())) {
+                setInitialValue(umlClass, filePath, initializer, initializer.value());
+            }
+        }
+        for (Map.Entry<String, List<StaticInitializer>> entry : staticInitializerMap.entrySet()) {
+            for (StaticInitializer initializer : entry.getValue()) {
+                for (UMLClass umlClass : classesByFile.getOrDefault(filePath, List.of())) {
+                    setInitialValue(umlClass, entry.getKey(), initializer, initializer.value());
+                }
+            }
+        }
+    }
+
+    // Initial values are scalars, they stay settable on frozen classes
+    private static void setInitialValue(UMLClass umlClass, String initializerFilePath, StaticInitializer initializer,
+                                        String value) {
+        if (!umlClass.getName().equals(initializer.className()) ||
+                umlClass.getLocationInfo().getFilePath().equals(initializerFilePath)) {
+            return;
+        }
+        umlClass.getAttributes().stream()
+                .filter(attribute -> attribute.getName().equals(initializer.attributeName()))
+                .findFirst()
+                .ifPresent(attribute -> attribute.setInitialValue(value));
+    }
+
+    public synchronized UMLModelFragment getFragment(String filePath) {
+        return fragments.get(filePath);
+    }
+
+    /**
+     * Removes every element that was read from the given file
+     */
+    public synchronized void removeFile(String filePath) {
+        removeFileElements(filePath);
+        sourceFileContents.remove(filePath);
+    }
+
+    private void removeFileElements(String filePath) {
+        fragments.remove(filePath);
+        for (StaticInitializer initializer : staticInitializerMap.getOrDefault(filePath, List.of())) {
+            for (UMLClass umlClass : classesByName.getOrDefault(initializer.className(), List.of())) {
+                setInitialValue(umlClass, filePath, initializer, null);
+            }
+        }
+        staticInitializerMap.remove(filePath);
+        List.copyOf(classesByFile.getOrDefault(filePath, List.of())).forEach(this::removeClass);
+        List.copyOf(operationsByFile.getOrDefault(filePath, List.of())).forEach(this::removeOperation);
+        importMap.remove(filePath);
+        commentMap.remove(filePath);
+        packageMap.remove(filePath);
+    }
+
     // Query operations
-    public List<UMLClass> getClassesInFile(String filePath) {
-        return classes.stream()
-                .filter(c -> c.getLocationInfo().getFilePath().equals(filePath))
-                .toList();
+    /**
+     * Paths of every file the model holds elements, imports, comments or content of
+     */
+    public synchronized Set<String> getFilePaths() {
+        Set<String> filePaths = new LinkedHashSet<>(fragments.keySet());
+        filePaths.addAll(classesByFile.keySet());
+        filePaths.addAll(operationsByFile.keySet());
+        filePaths.addAll(importMap.keySet());
+        filePaths.addAll(commentMap.keySet());
+        filePaths.addAll(packageMap.keySet());
+        filePaths.addAll(staticInitializerMap.keySet());
+        filePaths.addAll(sourceFileContents.keySet());
+        return filePaths;
+    }
+
+    public synchronized List<UMLOperation> getStandaloneOperationsInFile(String filePath) {
+        return List.copyOf(operationsByFile.getOrDefault(filePath, List.of()));
     }
 
-    public List<UMLOperation> getOperationsInFile(String filePath) {
-        List<UMLOperation> result = new ArrayList<>();
+    public synchronized List<UMLClass> getClassesInFile(String filePath) {
+        return List.copyOf(classesByFile.getOrDefault(filePath, List.of()));
+    }
+
+    public synchronized List<UMLOperation> getOperationsInFile(String filePath) {
         // Add standalone operations
-        result.addAll(operations.stream()
-                .filter(op -> op.getLocationInfo().getFilePath().equals(filePath))
-                .toList());
+        List<UMLOperation> result = new ArrayList<>(operationsByFile.getOrDefault(filePath, List.of()));
         // Add class methods
-        classes.stream()
-                .filter(c -> c.getLocationInfo().getFilePath().equals(filePath))
-                .forEach(c -> result.addAll(c.getOperations()));
+        for (UMLClass c : classesByFile.getOrDefault(filePath, List.of())) {
+            result.addAll(c.getOperations());
+        }
         return result;
     }
 
-    public List<UMLClass> getClassesByPackage(String packageName) {
+    public synchronized List<UMLClass> getClassesByPackage(String packageName) {
         return classes.stream()
                 .filter(c -> c.getPackageName().equals(packageName))
                 .toList();
     }
 
     // Statistics operations
-    public int getNumberOfClasses() {
+    public synchronized int getNumberOfClasses() {
         return classes.size();
     }
 
-    public int getNumberOfOperations() {
+    public synchronized int getNumberOfOperations() {
         int total = operations.size();  // Standalone operations
         total += classes.stream()
                 .mapToInt(c -> c.getOperations().size())
@@ -188,11 +353,11 @@ public class UMLModel {
         return total;
     }
 
-    public int getNumberOfFiles() {
+    public synchronized int getNumberOfFiles() {
         return sourceFileContents.size();
     }
 
-    public Map<String, Integer> getClassesPerFile() {
+    public synchronized Map<String, Integer> getClassesPerFile() {
         Map<String, Integer> classCount = new HashMap<>();
         for (UMLClass umlClass : classes) {
             String filePath = umlClass.getLocationInfo().getFilePath();
@@ -201,7 +366,7 @@ public class UMLModel {
         return classCount;
     }
 
-    public Map<String, Integer> getOperationsPerFile() {
+    public synchronized Map<String, Integer> getOperationsPerFile() {
         Map<String, Integer> opCount = new HashMap<>();
         // Count standalone operations
         for (UMLOperation op : operations) {
@@ -217,25 +382,33 @@ public class UMLModel {
     }
 
     // Clear operations
-    public void clearImports() {
+    public synchronized void clearImports() {
         importMap.clear();
     }
 
-    public void clearComments() {
+    public synchronized void clearComments() {
         commentMap.clear();
     }
 
-    public void clearClasses() {
+    public synchronized void clearClasses() {
         classes.clear();
+        classesByName.clear();
+        classesByQualifiedName.clear();
+        classesByFile.clear();
+        classSnapshot = null;
     }
 
-    public void clearOperations() {
+    public synchronized void clearOperations() {
         operations.clear();
+        operationsByName.clear();
+        operationsByFile.clear();
+        operationSnapshot = null;
     }
 
-    public void clearAll() {
-        classes.clear();
-        operations.clear();
+    public synchronized void clearAll() {
+        clearClasses();
+        clearOperations();
+        fragments.clear();
         commentMap.clear();
         importMap.clear();
         sourceFileContents.clear();
@@ -243,7 +416,7 @@ public class UMLModel {
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("UML Model Summary (").append(language).append("):\n");
         sb.append("Number of classes: ").append(getNumberOfClasses()).append("\n");
@@ -276,39 +449,98 @@ public class UMLModel {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
-        UMLModel other = (UMLModel) o;
-        return Objects.equals(language, other.language) &&
-                Objects.equals(classes, other.classes) &&
-                Objects.equals(operations, other.operations) &&
-                Objects.equals(commentMap, other.commentMap) &&
-                Objects.equals(importMap, other.importMap) &&
-                Objects.equals(sourceFileContents, other.sourceFileContents) &&
-                Objects.equals(packageMap, other.packageMap);
+        // Each model is copied under its own lock, comparing them never holds both locks
+        State state = state();
+        State other = ((UMLModel) o).state();
+        return Objects.equals(state.language(), other.language()) &&
+                Objects.equals(state.classes(), other.classes()) &&
+                Objects.equals(state.operations(), other.operations()) &&
+                Objects.equals(state.comments(), other.comments()) &&
+                Objects.equals(state.imports(), other.imports()) &&
+                Objects.equals(state.packages(), other.packages()) &&
+                Objects.equals(state.staticInitializers(), other.staticInitializers()) &&
+                sameSourceFileContents(state.sourceFileContents(), other.sourceFileContents());
+    }
+
+    // Compares contents last, they may have to be loaded
+    private static boolean sameSourceFileContents(Map<String, SourceText> contents, Map<String, SourceText> other) {
+        if (!contents.keySet().equals(other.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, SourceText> entry : contents.entrySet()) {
+            if (!Objects.equals(textOf(entry.getValue()), textOf(other.get(entry.getKey())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String textOf(SourceText content) {
+        return content != null ? content.getText() : null;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(language, classes, operations, commentMap, importMap, sourceFileContents, packageMap);
+        State state = state();
+        return Objects.hash(state.language(), state.classes(), state.operations(), state.comments(), state.imports(),
+                state.sourceFileContents().keySet(), state.packages());
     }
 
-    public UMLClass getClassByName(String className) {
-        return classes.stream()
-                .filter(c -> c.getName().equals(className))
-                .findFirst()
-                .orElse(null);
+    /**
+     * Copy of the content compared by equals
+     */
+    private record State(String language, Set<UMLClass> classes, Set<UMLOperation> operations,
+                         Map<String, List<UMLComment>> comments, Map<String, List<UMLImport>> imports,
+                         Map<String, String> packages, Map<String, List<StaticInitializer>> staticInitializers,
+                         Map<String, SourceText> sourceFileContents) {
+    }
+
+    private synchronized State state() {
+        return new State(language, new LinkedHashSet<>(classes), new LinkedHashSet<>(operations),
+                copyOfLists(commentMap), copyOfLists(importMap), new HashMap<>(packageMap), copyOfLists(staticInitializerMap),
+                new HashMap<>(sourceFileContents));
+    }
+
+    private static <T> Map<String, List<T>> copyOfLists(Map<String, List<T>> map) {
+        Map<String, List<T>> copy = new HashMap<>();
+        map.forEach((key, elements) -> copy.put(key, new ArrayList<>(elements)));
+        return copy;
+    }
+
+    public synchronized UMLClass getClassByName(String className) {
+        return first(classesByName, className);
     }
 
     // Alternative version that includes package/namespace
-    public UMLClass getClassByQualifiedName(String qualifiedName) {
-        return classes.stream()
-                .filter(c -> {
-                    String fullName = c.getPackageName().isEmpty() ?
-                            c.getName() :
-                            c.getPackageName() + "::" + c.getName();
-                    return fullName.equals(qualifiedName);
-                })
-                .findFirst()
-                .orElse(null);
+    public synchronized UMLClass getClassByQualifiedName(String qualifiedName) {
+        return first(classesByQualifiedName, qualifiedName);
+    }
+
+    // Index helpers
+    private static String qualifiedName(UMLClass umlClass) {
+        String packageName = umlClass.getPackageName();
+        return packageName == null || packageName.isEmpty() ?
+                umlClass.getName() :
+                packageName + "::" + umlClass.getName();
+    }
+
+    private static <T> void index(Map<String, List<T>> index, String key, T element) {
+        index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(element);
+    }
+
+    private static <T> void unindex(Map<String, List<T>> index, String key, T element) {
+        List<T> elements = index.get(key);
+        if (elements != null) {
+            elements.remove(element);
+            if (elements.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <T> T first(Map<String, List<T>> index, String key) {
+        List<T> elements = index.get(key);
+        return elements != null ? elements.get(0) : null;
     }
 
 
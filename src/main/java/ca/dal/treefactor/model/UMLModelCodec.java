@@ -0,0 +1,754 @@
+package ca.dal.treefactor.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import ca.dal.treefactor.model.UMLModelFragment.StaticInitializer;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.OperationBody;
+import ca.dal.treefactor.model.core.SourceText;
+import ca.dal.treefactor.model.core.UMLAnnotation;
+import ca.dal.treefactor.model.core.UMLComment;
+import ca.dal.treefactor.model.core.UMLImport;
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.core.Visibility;
+import ca.dal.treefactor.model.elements.UMLAttribute;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+/**
+ * Binary format of UML models.
+ * A stream starts with an uncompressed header: the magic bytes "TFUM", the format version
+ * and a flags byte telling whether the rest is deflated. The rest holds the language and
+ * one record per file, each carrying the file's fragment and optionally its content,
+ * followed by an end marker. Files can therefore be written and read one at a time.
+ *
+ * Integers are varints, and strings go through a table built while streaming: the first
+ * occurrence of a string is written inline, later ones refer to it by index. Enums are
+ * written as ordinals, so reordering an enum of the model requires a new FORMAT_VERSION.
+ * Operation bodies are kept as UTF-8 bytes when read and only decoded on use.
+ */
+public final class UMLModelCodec {
+    public static final int FORMAT_VERSION = 2;
+
+    private static final byte[] MAGIC = {'T', 'F', 'U', 'M'};
+    private static final int FLAG_DEFLATED = 1;
+
+    // Record tags
+    private static final int END = 0;
+    private static final int FILE = 1;
+
+    private UMLModelCodec() {
+    }
+
+    /**
+     * A file as stored in the stream
+     */
+    public record FileEntry(UMLModelFragment fragment, String sourceContent) {
+    }
+
+    // Whole models
+    public static void write(UMLModel model, OutputStream out, boolean compress) throws IOException {
+        try (Writer writer = new Writer(out, model.getLanguage(), compress)) {
+            for (String filePath : model.getFilePaths()) {
+                String packageName = model.getPackage(filePath);
+                writer.writeFile(filePath,
+                        packageName.isEmpty() ? null : packageName,
+                        model.getClassesInFile(filePath),
+                        model.getStandaloneOperationsInFile(filePath),
+                        model.getImports(filePath),
+                        model.getComments(filePath),
+                        model.getStaticInitializers(filePath),
+                        model.getSourceFileContent(filePath));
+            }
+        }
+    }
+
+    public static UMLModel read(InputStream in) throws IOException {
+        try (Reader reader = new Reader(in)) {
+            UMLModel model = new UMLModel(reader.getLanguage());
+            FileEntry entry;
+            while ((entry = reader.readFile()) != null) {
+                model.addFragment(entry.fragment());
+                if (entry.sourceContent() != null) {
+                    model.addSourceFileContent(entry.fragment().getFilePath(), entry.sourceContent());
+                }
+            }
+            return model;
+        }
+    }
+
+    public static byte[] encode(UMLModel model, boolean compress) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(model, bytes, compress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static UMLModel decode(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Streams files into the binary format, close must be called to complete the stream
+     */
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final byte[] scratch = new byte[10];
+        private boolean closed;
+
+        public Writer(OutputStream out, String language, boolean compress) throws IOException {
+            OutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+            buffered.write(MAGIC);
+            writeVarint(buffered, FORMAT_VERSION);
+            buffered.write(compress ? FLAG_DEFLATED : 0);
+            if (compress) {
+                this.deflater = new Deflater(Deflater.BEST_SPEED);
+                this.out = new DeflaterOutputStream(buffered, deflater, 64 * 1024);
+            } else {
+                this.deflater = null;
+                this.out = buffered;
+            }
+            writeString(language);
+        }
+
+        public void writeFile(UMLModelFragment fragment, String sourceContent) throws IOException {
+            writeFile(fragment.getFilePath(), fragment.getPackageName(), fragment.getClasses(),
+                    fragment.getOperations(), fragment.getImports(), fragment.getComments(),
+                    fragment.getStaticInitializers(), sourceContent);
+        }
+
+        private void writeFile(String filePath, String packageName, List<UMLClass> classes,
+                               List<UMLOperation> operations, List<UMLImport> imports, List<UMLComment> comments,
+                               List<StaticInitializer> staticInitializers, String sourceContent) throws IOException {
+            writeInt(FILE);
+            writeString(filePath);
+            writeString(packageName);
+            writeInt(classes.size());
+            for (UMLClass umlClass : classes) {
+                writeClass(umlClass);
+            }
+            writeInt(operations.size());
+            for (UMLOperation operation : operations) {
+                writeOperation(operation);
+            }
+            writeInt(imports.size());
+            for (UMLImport umlImport : imports) {
+                writeImport(umlImport);
+            }
+            writeComments(comments);
+            writeInt(staticInitializers.size());
+            for (StaticInitializer initializer : staticInitializers) {
+                writeString(initializer.className());
+                writeString(initializer.attributeName());
+                writeString(initializer.value());
+            }
+            writeBytes(sourceContent != null ? sourceContent.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        private void writeClass(UMLClass umlClass) throws IOException {
+            writeString(umlClass.getPackageName());
+            writeString(umlClass.getName());
+            writeLocation(umlClass.getLocationInfo());
+            writeEnum(umlClass.getVisibility());
+            writeInt(bits(umlClass.isAbstract(), umlClass.isInterface(), umlClass.isFinal(), umlClass.isStatic(),
+                    umlClass.isEnum(), umlClass.isRecord(), umlClass.isInnerClass(), umlClass.isTemplate()));
+            writeLong(umlClass.getStructuralHash());
+            writeStrings(umlClass.getSuperclasses());
+            writeStrings(umlClass.getInterfaces());
+            writeInt(umlClass.getAttributes().size());
+            for (UMLAttribute attribute : umlClass.getAttributes()) {
+                writeAttribute(attribute);
+            }
+            writeInt(umlClass.getOperations().size());
+            for (UMLOperation operation : umlClass.getOperations()) {
+                writeOperation(operation);
+            }
+            writeComments(umlClass.getComments());
+            writeAnnotations(umlClass.getAnnotations());
+        }
+
+        private void writeAttribute(UMLAttribute attribute) throws IOException {
+            writeString(attribute.getName());
+            writeType(attribute.getType());
+            writeLocation(attribute.getLocationInfo());
+            writeEnum(attribute.getVisibility());
+            writeInt(bits(attribute.isStatic(), attribute.isFinal(), attribute.isVolatile(),
+                    attribute.isTransient(), attribute.isConst(), attribute.isReadOnly()));
+            writeString(attribute.getInitialValue());
+            writeComments(attribute.getComments());
+            writeAnnotations(attribute.getAnnotations());
+        }
+
+        private void writeOperation(UMLOperation operation) throws IOException {
+            writeString(operation.getName());
+            writeLocation(operation.getLocationInfo());
+            writeString(operation.getClassName());
+            writeType(operation.getReturnType());
+            writeEnum(operation.getVisibility());
+            writeInt(bits(operation.isStatic(), operation.isAbstract(), operation.isFinal(),
+                    operation.isConstructor(), operation.isDestructor(), operation.isAsync(),
+                    operation.isGenerator(), operation.isVirtual(), operation.isConst(),
+                    operation.isInline(), operation.isNoexcept()));
+            writeLong(operation.getStructuralHash());
+            writeInt(operation.getParameters().size());
+            for (UMLParameter parameter : operation.getParameters()) {
+                writeParameter(parameter);
+            }
+            writeComments(operation.getComments());
+            writeAnnotations(operation.getAnnotations());
+            OperationBody body = operation.getOperationBody();
+            if (body == null) {
+                writeBytes(null);
+            } else {
+                writeBytes(body.getText().getBytes(StandardCharsets.UTF_8));
+                writeString(body.getSourceId());
+            }
+        }
+
+        private void writeParameter(UMLParameter parameter) throws IOException {
+            writeString(parameter.getName());
+            writeType(parameter.getType());
+            writeLocation(parameter.getLocationInfo());
+            writeString(parameter.getKind());
+            writeString(parameter.hasDefaultValue() ? parameter.getDefaultValue() : null);
+            writeInt(bits(parameter.isVarargs(), parameter.isFinal(), parameter.isKeywordOnly(),
+                    parameter.isReference(), parameter.isRValueReference(), parameter.isConst(),
+                    parameter.isPointer(), parameter.isVolatile()));
+            writeAnnotations(parameter.getAnnotations());
+        }
+
+        private void writeType(UMLType type) throws IOException {
+            if (type == null) {
+                writeInt(0);
+                return;
+            }
+            writeInt(bits(true, type.isArray(), type.isCollection(), type.isMap(), type.isVarargs(),
+                    type.hasTypeParameters(), type.hasAnnotations()));
+            writeString(type.getTypeName());
+            if (type.isArray()) {
+                writeInt(type.getArrayDimensions());
+            }
+            if (type.hasTypeParameters()) {
+                writeInt(type.getTypeParameters().size());
+                for (UMLType typeParameter : type.getTypeParameters()) {
+                    writeType(typeParameter);
+                }
+            }
+            if (type.hasAnnotations()) {
+                writeAnnotations(type.getAnnotations());
+            }
+        }
+
+        private void writeImport(UMLImport umlImport) throws IOException {
+            writeString(umlImport.getImportedName());
+            writeLocation(umlImport.getLocationInfo());
+            writeEnum(umlImport.getType());
+            writeInt(bits(umlImport.isStatic()));
+            writeString(umlImport.getAlias());
+        }
+
+        private void writeComments(List<UMLComment> comments) throws IOException {
+            writeInt(comments.size());
+            for (UMLComment comment : comments) {
+                writeString(comment.getText());
+                writeLocation(comment.getLocationInfo());
+                writeEnum(comment.getType());
+            }
+        }
+
+        private void writeAnnotations(List<UMLAnnotation> annotations) throws IOException {
+            writeInt(annotations.size());
+            for (UMLAnnotation annotation : annotations) {
+                writeString(annotation.getName());
+                writeLocation(annotation.getLocationInfo());
+                Map<String, String> values = annotation.getValues();
+                writeInt(values.size());
+                for (Map.Entry<String, String> value : values.entrySet()) {
+                    writeString(value.getKey());
+                    writeString(value.getValue());
+                }
+                writeAnnotations(annotation.getNestedAnnotations());
+            }
+        }
+
+        private void writeLocation(LocationInfo location) throws IOException {
+            if (location == null) {
+                writeInt(0);
+                return;
+            }
+            writeInt(location.getType() != null ? location.getType().ordinal() + 2 : 1);
+            writeString(location.getFilePath());
+            writeInt(location.getStartPoint().row());
+            writeInt(location.getStartPoint().column());
+            writeInt(location.getEndPoint().row());
+            writeInt(location.getEndPoint().column());
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            writeInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        // Primitives
+        private void writeEnum(Enum<?> value) throws IOException {
+            writeInt(value != null ? value.ordinal() + 1 : 0);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeInt(index + 2);
+                return;
+            }
+            strings.put(value, strings.size());
+            writeInt(1);
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes == null) {
+                writeInt(0);
+                return;
+            }
+            writeInt(bytes.length + 1);
+            out.write(bytes);
+        }
+
+        private void writeLong(long value) throws IOException {
+            for (int i = 0; i < 8; i++) {
+                scratch[i] = (byte) (value >>> (56 - 8 * i));
+            }
+            out.write(scratch, 0, 8);
+        }
+
+        private void writeInt(int value) throws IOException {
+            writeVarint(out, value);
+        }
+
+        private static void writeVarint(OutputStream out, int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeInt(END);
+                out.close();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads files back from the binary format, one at a time
+     */
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private final Inflater inflater;
+        private final String language;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, UMLType> plainTypes = new HashMap<>();
+        private final byte[] scratch = new byte[8];
+        private boolean ended;
+
+        public Reader(InputStream in) throws IOException {
+            InputStream buffered = new BufferedInputStream(in, 64 * 1024);
+            byte[] magic = new byte[MAGIC.length];
+            readFully(buffered, magic, magic.length);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("Not an encoded UML model");
+                }
+            }
+            int version = readVarint(buffered);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported UML model format version " + version);
+            }
+            int flags = buffered.read();
+            if (flags < 0) {
+                throw new EOFException("Truncated UML model header");
+            }
+            if ((flags & FLAG_DEFLATED) != 0) {
+                this.inflater = new Inflater();
+                this.in = new InflaterInputStream(buffered, inflater, 64 * 1024);
+            } else {
+                this.inflater = null;
+                this.in = buffered;
+            }
+            this.language = readString();
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Reads the next file, or returns null at the end of the stream
+         */
+        public FileEntry readFile() throws IOException {
+            if (ended) {
+                return null;
+            }
+            int tag = readInt();
+            if (tag == END) {
+                ended = true;
+                return null;
+            }
+            if (tag != FILE) {
+                throw new IOException("Corrupt UML model, unknown record " + tag);
+            }
+            UMLModelFragment.Builder fragment = UMLModelFragment.builder(readString());
+            fragment.packageName(readString());
+            for (int i = readInt(); i > 0; i--) {
+                fragment.addClass(readClass());
+            }
+            for (int i = readInt(); i > 0; i--) {
+                fragment.addOperation(readOperation());
+            }
+            for (int i = readInt(); i > 0; i--) {
+                fragment.addImport(readImport());
+            }
+            readComments().forEach(fragment::addComment);
+            for (int i = readInt(); i > 0; i--) {
+                fragment.addStaticInitializer(new StaticInitializer(readString(), readString(), readString()));
+            }
+            byte[] content = readBytes();
+            return new FileEntry(fragment.build(), content != null ? new String(content, StandardCharsets.UTF_8) : null);
+        }
+
+        private UMLClass readClass() throws IOException {
+            String packageName = readString();
+            UMLClass umlClass = new UMLClass(packageName, readString(), readLocation());
+            umlClass.setVisibility(readEnum(Visibility.values()));
+            int flags = readInt();
+            umlClass.setAbstract(bit(flags, 0));
+            umlClass.setInterface(bit(flags, 1));
+            umlClass.setFinal(bit(flags, 2));
+            umlClass.setStatic(bit(flags, 3));
+            umlClass.setEnum(bit(flags, 4));
+            umlClass.setRecord(bit(flags, 5));
+            umlClass.setInnerClass(bit(flags, 6));
+            umlClass.setTemplate(bit(flags, 7));
+            umlClass.setStructuralHash(readLong());
+            readStrings().forEach(umlClass::addSuperclass);
+            readStrings().forEach(umlClass::addInterface);
+            for (int i = readInt(); i > 0; i--) {
+                umlClass.addAttribute(readAttribute());
+            }
+            for (int i = readInt(); i > 0; i--) {
+                umlClass.addOperation(readOperation());
+            }
+            readComments().forEach(umlClass::addComment);
+            readAnnotations().forEach(umlClass::addAnnotation);
+            return umlClass;
+        }
+
+        private UMLAttribute readAttribute() throws IOException {
+            String name = readString();
+            UMLType type = readType();
+            UMLAttribute attribute = new UMLAttribute(name, type, readLocation());
+            attribute.setVisibility(readEnum(Visibility.values()));
+            int flags = readInt();
+            attribute.setStatic(bit(flags, 0));
+            attribute.setFinal(bit(flags, 1));
+            attribute.setVolatile(bit(flags, 2));
+            attribute.setTransient(bit(flags, 3));
+            attribute.setConst(bit(flags, 4));
+            attribute.setReadOnly(bit(flags, 5));
+            attribute.setInitialValue(readString());
+            readComments().forEach(attribute::addComment);
+            readAnnotations().forEach(attribute::addAnnotation);
+            return attribute;
+        }
+
+        private UMLOperation readOperation() throws IOException {
+            String name = readString();
+            UMLOperation operation = new UMLOperation(name, readLocation());
+            operation.setClassName(readString());
+            operation.setReturnType(readType());
+            operation.setVisibility(readEnum(Visibility.values()));
+            int flags = readInt();
+            operation.setStatic(bit(flags, 0));
+            operation.setAbstract(bit(flags, 1));
+            operation.setFinal(bit(flags, 2));
+            operation.setConstructor(bit(flags, 3));
+            operation.setDestructor(bit(flags, 4));
+            operation.setAsync(bit(flags, 5));
+            operation.setGenerator(bit(flags, 6));
+            operation.setVirtual(bit(flags, 7));
+            operation.setConst(bit(flags, 8));
+            operation.setInline(bit(flags, 9));
+            operation.setNoexcept(bit(flags, 10));
+            operation.setStructuralHash(readLong());
+            for (int i = readInt(); i > 0; i--) {
+                operation.addParameter(readParameter());
+            }
+            readComments().forEach(operation::addComment);
+            readAnnotations().forEach(operation::addAnnotation);
+            byte[] body = readBytes();
+            if (body != null) {
+                // Kept as UTF-8, the text is only decoded when the body is used
+                SourceText source = SourceText.ofUtf8(ByteBuffer.wrap(body));
+                operation.setBody(OperationBody.of(readString(), source, 0, body.length));
+            }
+            return operation;
+        }
+
+        private UMLParameter readParameter() throws IOException {
+            String name = readString();
+            UMLType type = readType();
+            UMLParameter parameter = new UMLParameter(name, type, readLocation());
+            parameter.setKind(readString());
+            String defaultValue = readString();
+            if (defaultValue != null) {
+                parameter.setDefaultValue(defaultValue);
+            }
+            int flags = readInt();
+            parameter.setVarargs(bit(flags, 0));
+            parameter.setFinal(bit(flags, 1));
+            parameter.setKeywordOnly(bit(flags, 2));
+            parameter.setReference(bit(flags, 3));
+            parameter.setRValueReference(bit(flags, 4));
+            parameter.setConst(bit(flags, 5));
+            parameter.setPointer(bit(flags, 6));
+            parameter.setVolatile(bit(flags, 7));
+            readAnnotations().forEach(parameter::addAnnotation);
+            return parameter;
+        }
+
+        private UMLType readType() throws IOException {
+            int flags = readInt();
+            if (flags == 0) {
+                return null;
+            }
+            String typeName = readString();
+            if (flags == 1) {
+                // Types that are just a name are shared, like the ones handed out by a CanonicalPool
+                UMLType type = plainTypes.get(typeName);
+                if (type == null) {
+                    type = new UMLType(typeName);
+                    type.freeze();
+                    plainTypes.put(typeName, type);
+                }
+                return type;
+            }
+            UMLType type = new UMLType(typeName);
+            if (bit(flags, 1)) {
+                type.setArray(true, readInt());
+            }
+            type.setCollection(bit(flags, 2));
+            type.setMap(bit(flags, 3));
+            type.setVarargs(bit(flags, 4));
+            if (bit(flags, 5)) {
+                for (int i = readInt(); i > 0; i--) {
+                    type.addTypeParameter(readType());
+                }
+            }
+            if (bit(flags, 6)) {
+                readAnnotations().forEach(type::addAnnotation);
+            }
+            return type;
+        }
+
+        private UMLImport readImport() throws IOException {
+            String importedName = readString();
+            LocationInfo location = readLocation();
+            UMLImport.ImportType type = readEnum(UMLImport.ImportType.values());
+            boolean isStatic = bit(readInt(), 0);
+            return new UMLImport(importedName, location, type, isStatic, readString());
+        }
+
+        private List<UMLComment> readComments() throws IOException {
+            int count = readInt();
+            List<UMLComment> comments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String text = readString();
+                LocationInfo location = readLocation();
+                comments.add(new UMLComment(text, location, readEnum(UMLComment.CommentType.values())));
+            }
+            return comments;
+        }
+
+        private List<UMLAnnotation> readAnnotations() throws IOException {
+            int count = readInt();
+            List<UMLAnnotation> annotations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString();
+                UMLAnnotation annotation = new UMLAnnotation(name, readLocation());
+                for (int j = readInt(); j > 0; j--) {
+                    annotation.addValue(readString(), readString());
+                }
+                readAnnotations().forEach(annotation::addNestedAnnotation);
+                annotations.add(annotation);
+            }
+            return annotations;
+        }
+
+        private LocationInfo readLocation() throws IOException {
+            int kind = readInt();
+            if (kind == 0) {
+                return null;
+            }
+            CodeElementType[] types = CodeElementType.values();
+            if (kind < 0 || kind - 2 >= types.length) {
+                throw new IOException("Corrupt UML model, unknown element type " + (kind - 2));
+            }
+            String filePath = readString();
+            Point start = new Point(readInt(), readInt());
+            Point end = new Point(readInt(), readInt());
+            return new LocationInfo(filePath, start, end, kind > 1 ? types[kind - 2] : null);
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = readInt();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        // Primitives
+        private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+            int ordinal = readInt();
+            if (ordinal > values.length) {
+                throw new IOException("Corrupt UML model, unknown constant " + (ordinal - 1));
+            }
+            return ordinal > 0 ? values[ordinal - 1] : null;
+        }
+
+        private String readString() throws IOException {
+            int reference = readInt();
+            if (reference == 0) {
+                return null;
+            }
+            if (reference == 1) {
+                String value = new String(readBytes(), StandardCharsets.UTF_8);
+                strings.add(value);
+                return value;
+            }
+            if (reference - 2 >= strings.size()) {
+                throw new IOException("Corrupt UML model, unknown string " + (reference - 2));
+            }
+            return strings.get(reference - 2);
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = readInt();
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length - 1];
+            readFully(in, bytes, bytes.length);
+            return bytes;
+        }
+
+        private long readLong() throws IOException {
+            readFully(in, scratch, 8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (scratch[i] & 0xFF);
+            }
+            return value;
+        }
+
+        private int readInt() throws IOException {
+            return readVarint(in);
+        }
+
+        private static int readVarint(InputStream in) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated UML model");
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt UML model, varint too long");
+        }
+
+        private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                int n = in.read(bytes, read, length - read);
+                if (n < 0) {
+                    throw new EOFException("Truncated UML model");
+                }
+                read += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+
+    // Flags
+    private static int bits(boolean... values) {
+        int bits = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i]) {
+                bits |= 1 << i;
+            }
+        }
+        return bits;
+    }
+
+    private static boolean bit(int bits, int index) {
+        return (bits & (1 << index)) != 0;
+    }
+}
@@ -0,0 +1,164 @@
+package ca.dal.treefactor.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import ca.dal.treefactor.model.core.UMLComment;
+import ca.dal.treefactor.model.core.UMLImport;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+
+/**
+ * Everything read from a single source file.
+ * A visitor collects the elements of its file into a Builder and publishes the built
+ * fragment once the file has been visited completely, so a UMLModel never holds
+ * a partially read file and files can be read independently of each other.
+ * Building a fragment freezes its classes and operations.
+ * Definitions that belong to a class of another file, such as the out-of-class initializer
+ * of a C++ static member, are kept as static initializers that the model applies on merge.
+ */
+public final class UMLModelFragment {
+    private final String filePath;
+    private final String packageName;  // null when the file declares none
+    private final List<UMLClass> classes;
+    private final List<UMLOperation> operations;  // Standalone functions/methods
+    private final List<UMLImport> imports;
+    private final List<UMLComment> comments;
+    private final List<StaticInitializer> staticInitializers;
+
+    /**
+     * Initial value given in this file to a static attribute of a class declared in another file
+     */
+    public record StaticInitializer(String className, String attributeName, String value) {
+    }
+
+    private UMLModelFragment(Builder builder) {
+        this.filePath = builder.filePath;
+        this.packageName = builder.packageName;
+        this.classes = List.copyOf(builder.classes);
+        this.operations = List.copyOf(builder.operations);
+        this.imports = List.copyOf(builder.imports);
+        this.comments = List.copyOf(builder.comments);
+        this.staticInitializers = List.copyOf(builder.staticInitializers);
+        classes.forEach(UMLClass::freeze);
+        operations.forEach(UMLOperation::freeze);
+    }
+
+    public static Builder builder(String filePath) {
+        return new Builder(filePath);
+    }
+
+    // Getters
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<UMLClass> getClasses() {
+        return classes;
+    }
+
+    public List<UMLOperation> getOperations() {
+        return operations;
+    }
+
+    public List<UMLImport> getImports() {
+        return imports;
+    }
+
+    public List<UMLComment> getComments() {
+        return comments;
+    }
+
+    public List<StaticInitializer> getStaticInitializers() {
+        return staticInitializers;
+    }
+
+    public boolean isEmpty() {
+        return packageName == null && classes.isEmpty() && operations.isEmpty()
+                && imports.isEmpty() && comments.isEmpty() && staticInitializers.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "UMLModelFragment{" + filePath +
+                ", classes=" + classes.size() +
+                ", operations=" + operations.size() +
+                ", imports=" + imports.size() + "}";
+    }
+
+    public static class Builder {
+        private final String filePath;
+        private String packageName;
+        // Visitors may reach the same declaration more than once, insertion-ordered sets keep the first one
+        private final Set<UMLClass> classes = new LinkedHashSet<>();
+        private final Set<UMLOperation> operations = new LinkedHashSet<>();
+        private final List<UMLImport> imports = new ArrayList<>();
+        private final List<UMLComment> comments = new ArrayList<>();
+        private final List<StaticInitializer> staticInitializers = new ArrayList<>();
+
+        private Builder(String filePath) {
+            this.filePath = filePath;
+        }
+
+        public Builder packageName(String packageName) {
+            this.packageName = packageName;
+            return this;
+        }
+
+        public Builder addClass(UMLClass umlClass) {
+            classes.add(umlClass);
+            return this;
+        }
+
+        public Builder addOperation(UMLOperation operation) {
+            operations.add(operation);
+            return this;
+        }
+
+        public Builder addImport(UMLImport umlImport) {
+            imports.add(umlImport);
+            return this;
+        }
+
+        public Builder addComment(UMLComment comment) {
+            comments.add(comment);
+            return this;
+        }
+
+        public Builder addStaticInitializer(StaticInitializer initializer) {
+            staticInitializers.add(initializer);
+            return this;
+        }
+
+        /**
+         * Looks up a class collected so far by its simple name
+         */
+        public Optional<UMLClass> getClass(String className) {
+            for (UMLClass umlClass : classes) {
+                if (umlClass.getName().equals(className)) {
+                    return Optional.of(umlClass);
+                }
+            }
+            return Optional.empty();
+        }
+
+        public int getClassCount() {
+            return classes.size();
+        }
+
+        public int getOperationCount() {
+            return operations.size();
+        }
+
+        public UMLModelFragment build() {
+            return new UMLModelFragment(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ca.dal.treefactor.model.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the names and simple types read from source files.
+ * File paths, identifiers and type names repeat across files and commits, so the
+ * visitors share one instance of each through a pool. Types handed out by the pool
+ * are frozen flyweights, which lets equality checks succeed on identity.
+ *
+ * A pool is bounded: once it holds maxEntries values of a kind, further values of that
+ * kind are returned as they are instead of being pooled. A run can use its own pool
+ * so that its values are released with it; otherwise the global pool is used.
+ */
+public final class CanonicalPool {
+    public static final String MAX_ENTRIES_PROPERTY = "treefactor.pool.maxEntries";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+    private static final CanonicalPool GLOBAL =
+            new CanonicalPool(Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, String> strings;
+    private final ConcurrentHashMap<String, UMLType> types;
+
+    public CanonicalPool(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.strings = new ConcurrentHashMap<>();
+        this.types = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Pool shared by everything that does not use a pool of its own
+     */
+    public static CanonicalPool global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Pool bounded by the treefactor.pool.maxEntries system property, for the scope of one run
+     */
+    public static CanonicalPool forRun() {
+        return new CanonicalPool(Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Returns the canonical instance of a string
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (strings.size() >= maxEntries) {
+            return value;
+        }
+        canonical = strings.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * Returns the canonical type of a name, without type parameters or annotations.
+     * The returned type is frozen and must be treated as immutable.
+     */
+    public UMLType type(String typeName) {
+        UMLType canonical = types.get(typeName);
+        if (canonical != null) {
+            return canonical;
+        }
+        UMLType type = new UMLType(intern(typeName));
+        type.freeze();
+        if (types.size() >= maxEntries) {
+            return type;
+        }
+        canonical = types.putIfAbsent(type.getTypeName(), type);
+        return canonical != null ? canonical : type;
+    }
+
+    public int size() {
+        return strings.size() + types.size();
+    }
+
+    public void clear() {
+        strings.clear();
+        types.clear();
+    }
+}
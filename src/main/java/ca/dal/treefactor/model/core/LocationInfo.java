@@ -9,6 +9,7 @@ public class LocationInfo {
     private final Point startPoint;
     private final Point endPoint;
     private final CodeElementType type;
+    private int hash;  // Computed on first use
 
     public LocationInfo(String filePath, Point startPoint, Point endPoint, CodeElementType type) {
         this.filePath = filePath;
@@ -164,7 +165,12 @@ public class LocationInfo {
 
     @Override
     public int hashCode() {
-        return Objects.hash(filePath, startPoint, endPoint, type);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(filePath, startPoint, endPoint, type);
+            hash = h;
+        }
+        return h;
     }
 
     /**
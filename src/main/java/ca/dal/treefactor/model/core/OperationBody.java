@@ -0,0 +1,117 @@
+package ca.dal.treefactor.model.core;
+
+/**
+ * Lazy reference to the body of an operation.
+ * Instead of copying the body text out of the file, it keeps the source the
+ * body was parsed from together with the [start, end) range of the body and
+ * a content hash. The text is only materialized when it is actually needed,
+ * which in practice is when two bodies with different content get mapped.
+ */
+public class OperationBody {
+    private final String sourceId;  // Identifies the source (file path or blob id)
+    private final SourceText source;
+    private final int startOffset;
+    private final int endOffset;
+    private final long contentHash;
+
+    private OperationBody(String sourceId, SourceText source, int startOffset, int endOffset) {
+        if (startOffset < 0 || endOffset > source.length() || startOffset > endOffset) {
+            throw new IllegalArgumentException("Invalid body range [" + startOffset + ", " + endOffset + ")");
+        }
+        this.sourceId = sourceId;
+        this.source = source;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.contentHash = source.hash(startOffset, endOffset);
+    }
+
+    /**
+     * Creates a body that owns its complete text
+     */
+    public static OperationBody of(String text) {
+        SourceText source = SourceText.of(text);
+        return new OperationBody(null, source, 0, source.length());
+    }
+
+    /**
+     * Creates a body referring to the range [startOffset, endOffset) of the given source,
+     * in byte offsets into its UTF-8 encoding as for any SourceText
+     */
+    public static OperationBody of(String sourceId, String source, int startOffset, int endOffset) {
+        return new OperationBody(sourceId, SourceText.of(source), startOffset, endOffset);
+    }
+
+    public static OperationBody of(String sourceId, SourceText source, int startOffset, int endOffset) {
+        return new OperationBody(sourceId, source, startOffset, endOffset);
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Length in bytes of the UTF-8 encoding
+     */
+    public int length() {
+        return endOffset - startOffset;
+    }
+
+    public boolean isEmpty() {
+        return startOffset == endOffset;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Materializes the body text
+     */
+    public String getText() {
+        return source.getText(startOffset, endOffset);
+    }
+
+    /**
+     * Materializes the body as statements, one per source line
+     */
+    public String[] getStatements() {
+        return getText().split("\n");
+    }
+
+    /**
+     * Checks whether both bodies have the same text without materializing either of them
+     * when they come from sources of the same kind
+     */
+    public boolean contentEquals(OperationBody other) {
+        if (this == other) return true;
+        if (other == null || contentHash != other.contentHash) {
+            return false;
+        }
+        return source.regionMatches(startOffset, endOffset, other.source, other.startOffset, other.endOffset);
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return contentEquals((OperationBody) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(contentHash);
+    }
+}
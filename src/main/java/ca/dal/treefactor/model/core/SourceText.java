@@ -0,0 +1,444 @@
+package ca.dal.treefactor.model.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Content of a source file.
+ * It is either held as a String, or as UTF-8 bytes that are typically memory-mapped,
+ * so that large files never have to exist on the heap as a whole. Whatever the kind, offsets
+ * are the byte offsets into the UTF-8 encoding of the content that tree-sitter reports, and
+ * hashes and comparisons are on that encoding, so equal text hashes and compares equal across
+ * kinds. A lazy source is only a reference to content that is loaded on use, such as a blob
+ * of a repository; its loader must always return the same kind of source.
+ */
+public abstract class SourceText {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Creates a source backed by a String
+     */
+    public static SourceText of(String text) {
+        return new StringSourceText(text);
+    }
+
+    /**
+     * Creates a source backed by UTF-8 encoded bytes, the buffer must not be modified afterwards
+     */
+    public static SourceText ofUtf8(ByteBuffer bytes) {
+        return new Utf8SourceText(bytes);
+    }
+
+    /**
+     * Memory-maps a UTF-8 encoded file
+     */
+    public static SourceText map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Utf8SourceText(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Creates a source whose content is obtained from the loader every time it is used,
+     * so that the content can be released in between, typically by a cache
+     */
+    public static SourceText lazy(Supplier<SourceText> loader) {
+        return new LazySourceText(loader, -1);
+    }
+
+    /**
+     * Creates a lazy source whose size in bytes is known up front, so that it can be
+     * checked without loading the content
+     */
+    public static SourceText lazy(Supplier<SourceText> loader, long sizeInBytes) {
+        return new LazySourceText(loader, sizeInBytes);
+    }
+
+    /**
+     * Length in offset units, which is the size in bytes as an int
+     */
+    public abstract int length();
+
+    /**
+     * Size of the content once encoded as UTF-8
+     */
+    public abstract long sizeInBytes();
+
+    /**
+     * Materializes the text in the range [start, end)
+     */
+    public abstract String getText(int start, int end);
+
+    public String getText() {
+        return getText(0, length());
+    }
+
+    /**
+     * Returns the content if it is held as a String, or null if it is only available as bytes
+     */
+    public abstract String asString();
+
+    /**
+     * Decodes at most maxBytes of UTF-8 starting at byteOffset, ending on a character boundary.
+     * Returns an empty string at the end of the content.
+     */
+    public abstract String readUtf8Chunk(int byteOffset, int maxBytes);
+
+    /**
+     * FNV-1a hash of the UTF-8 encoding of the range [start, end)
+     */
+    public abstract long hash(int start, int end);
+
+    /**
+     * FNV-1a hash of the UTF-8 encoding of the range [start, end), skipping ASCII whitespace
+     */
+    public abstract long hashIgnoringWhitespace(int start, int end);
+
+    private static boolean isWhitespace(int unit) {
+        return unit == ' ' || unit == '\t' || unit == '\n' || unit == '\r' || unit == '\f';
+    }
+
+    /**
+     * Checks whether the range [start, end) of this source has the same content as the range
+     * [otherStart, otherEnd) of other, the ranges being in the offset units of their own source
+     */
+    public abstract boolean regionMatches(int start, int end, SourceText other, int otherStart, int otherEnd);
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+
+    private static final class StringSourceText extends SourceText {
+        // Code points between two entries of the byte index
+        private static final int INDEX_STEP = 64;
+
+        private final String text;
+        private volatile ByteIndex index;  // Built on first use
+
+        /**
+         * Size of the UTF-8 encoding of the text, and for non-ASCII text the char index and byte
+         * offset of every INDEX_STEP-th code point, from which any byte offset is found by a binary
+         * search and a short scan. ASCII text needs no entries, its byte offsets are char indices.
+         */
+        private record ByteIndex(int size, int[] charIndices, int[] byteOffsets) {
+            boolean isAscii() {
+                return charIndices == null;
+            }
+        }
+
+        private StringSourceText(String text) {
+            this.text = text;
+        }
+
+        private ByteIndex index() {
+            ByteIndex index = this.index;
+            if (index == null) {
+                index = buildIndex();
+                this.index = index;
+            }
+            return index;
+        }
+
+        private ByteIndex buildIndex() {
+            int i = 0;
+            while (i < text.length() && text.charAt(i) < 0x80) {
+                i++;
+            }
+            if (i == text.length()) {
+                return new ByteIndex(text.length(), null, null);
+            }
+            int[] charIndices = new int[text.length() / INDEX_STEP + 1];
+            int[] byteOffsets = new int[charIndices.length];
+            int entries = 0;
+            long offset = 0;
+            int codePoints = 0;
+            for (i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+                if (codePoints++ % INDEX_STEP == 0) {
+                    charIndices[entries] = i;
+                    byteOffsets[entries] = (int) offset;
+                    entries++;
+                }
+                offset += utf8Length(codePointAt(i));
+            }
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Source text larger than 2 GB once encoded as UTF-8");
+            }
+            return new ByteIndex((int) offset, Arrays.copyOf(charIndices, entries), Arrays.copyOf(byteOffsets, entries));
+        }
+
+        // Index of the char starting at the given byte offset, the first char after it if it is inside a character
+        private int charIndex(int byteOffset) {
+            ByteIndex index = index();
+            if (byteOffset < 0 || byteOffset > index.size()) {
+                throw new IndexOutOfBoundsException("Byte offset " + byteOffset + " out of [0, " + index.size() + "]");
+            }
+            if (index.isAscii()) {
+                return byteOffset;
+            }
+            int entry = Arrays.binarySearch(index.byteOffsets(), byteOffset);
+            if (entry < 0) {
+                entry = -entry - 2;
+            }
+            int offset = index.byteOffsets()[entry];
+            int i = index.charIndices()[entry];
+            while (offset < byteOffset) {
+                offset += utf8Length(codePointAt(i));
+                i += Character.charCount(text.codePointAt(i));
+            }
+            return i;
+        }
+
+        @Override
+        public int length() {
+            return index().size();
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return index().size();
+        }
+
+        // Code point at i as it is encoded, unpaired surrogates being encoded as '?'
+        private int codePointAt(int i) {
+            int codePoint = text.codePointAt(i);
+            return Character.isSurrogate(text.charAt(i)) && codePoint <= Character.MAX_VALUE ? '?' : codePoint;
+        }
+
+        private static int utf8Length(int codePoint) {
+            if (codePoint < 0x80) {
+                return 1;
+            } else if (codePoint < 0x800) {
+                return 2;
+            }
+            return codePoint < 0x10000 ? 3 : 4;
+        }
+
+        private static long hashUtf8(long hash, int codePoint) {
+            if (codePoint < 0x80) {
+                return (hash ^ codePoint) * FNV_PRIME;
+            } else if (codePoint < 0x800) {
+                hash = (hash ^ (0xC0 | codePoint >>> 6)) * FNV_PRIME;
+            } else if (codePoint < 0x10000) {
+                hash = (hash ^ (0xE0 | codePoint >>> 12)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (codePoint >>> 6) & 0x3F)) * FNV_PRIME;
+            } else {
+                hash = (hash ^ (0xF0 | codePoint >>> 18)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (codePoint >>> 12) & 0x3F)) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (codePoint >>> 6) & 0x3F)) * FNV_PRIME;
+            }
+            return (hash ^ (0x80 | codePoint & 0x3F)) * FNV_PRIME;
+        }
+
+        @Override
+        public String getText(int start, int end) {
+            int startIndex = charIndex(start);
+            int endIndex = charIndex(end);
+            if (startIndex == 0 && endIndex == text.length()) {
+                return text;
+            }
+            return text.substring(startIndex, endIndex);
+        }
+
+        @Override
+        public String asString() {
+            return text;
+        }
+
+        @Override
+        public String readUtf8Chunk(int byteOffset, int maxBytes) {
+            if (byteOffset >= length()) {
+                return "";
+            }
+            int start = charIndex(byteOffset);
+            int index = start;
+            long offset = byteOffset;
+            long limit = offset + maxBytes;
+            while (index < text.length()) {
+                int size = utf8Length(codePointAt(index));
+                // A character larger than maxBytes is returned whole rather than split
+                if (offset + size > limit && index > start) {
+                    break;
+                }
+                offset += size;
+                index += Character.charCount(text.codePointAt(index));
+            }
+            return text.substring(start, index);
+        }
+
+        @Override
+        public long hash(int start, int end) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = charIndex(start), endIndex = charIndex(end); i < endIndex; i += Character.charCount(text.codePointAt(i))) {
+                hash = hashUtf8(hash, codePointAt(i));
+            }
+            return hash;
+        }
+
+        @Override
+        public long hashIgnoringWhitespace(int start, int end) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = charIndex(start), endIndex = charIndex(end); i < endIndex; i += Character.charCount(text.codePointAt(i))) {
+                int codePoint = codePointAt(i);
+                if (!isWhitespace(codePoint)) {
+                    hash = hashUtf8(hash, codePoint);
+                }
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean regionMatches(int start, int end, SourceText other, int otherStart, int otherEnd) {
+            if (end - start != otherEnd - otherStart) {
+                return false;
+            }
+            if (other instanceof StringSourceText otherText) {
+                int startIndex = charIndex(start);
+                int length = charIndex(end) - startIndex;
+                int otherStartIndex = otherText.charIndex(otherStart);
+                return length == otherText.charIndex(otherEnd) - otherStartIndex &&
+                        text.regionMatches(startIndex, otherText.text, otherStartIndex, length);
+            }
+            return getText(start, end).equals(other.getText(otherStart, otherEnd));
+        }
+    }
+
+    private static final class Utf8SourceText extends SourceText {
+        private final ByteBuffer bytes;
+
+        private Utf8SourceText(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return bytes.limit();
+        }
+
+        @Override
+        public String getText(int start, int end) {
+            return StandardCharsets.UTF_8.decode(bytes.slice(start, end - start)).toString();
+        }
+
+        @Override
+        public String asString() {
+            return null;
+        }
+
+        @Override
+        public String readUtf8Chunk(int byteOffset, int maxBytes) {
+            int size = bytes.limit();
+            if (byteOffset >= size) {
+                return "";
+            }
+            int end = (int) Math.min((long) byteOffset + maxBytes, size);
+            // Back off to the start of a character so that it is not split across chunks
+            int boundary = end;
+            while (boundary > byteOffset && boundary < size && (bytes.get(boundary) & 0xC0) == 0x80) {
+                boundary--;
+            }
+            if (boundary > byteOffset) {
+                end = boundary;
+            }
+            return getText(byteOffset, end);
+        }
+
+        @Override
+        public long hash(int start, int end) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = start; i < end; i++) {
+                hash ^= bytes.get(i) & 0xFF;
+                hash *= FNV_PRIME;
+            }
+            return hash;
+        }
+
+        @Override
+        public long hashIgnoringWhitespace(int start, int end) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = start; i < end; i++) {
+                int b = bytes.get(i) & 0xFF;
+                if (!isWhitespace(b)) {
+                    hash ^= b;
+                    hash *= FNV_PRIME;
+                }
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean regionMatches(int start, int end, SourceText other, int otherStart, int otherEnd) {
+            if (other instanceof Utf8SourceText otherText) {
+                return end - start == otherEnd - otherStart &&
+                        bytes.slice(start, end - start).equals(otherText.bytes.slice(otherStart, otherEnd - otherStart));
+            }
+            return getText(start, end).equals(other.getText(otherStart, otherEnd));
+        }
+    }
+
+    private static final class LazySourceText extends SourceText {
+        private final Supplier<SourceText> loader;
+        private final long sizeInBytes;  // -1 when unknown
+
+        private LazySourceText(Supplier<SourceText> loader, long sizeInBytes) {
+            this.loader = loader;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        private static SourceText resolve(SourceText source) {
+            return source instanceof LazySourceText lazy ? lazy.loader.get() : source;
+        }
+
+        @Override
+        public int length() {
+            return loader.get().length();
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return sizeInBytes >= 0 ? sizeInBytes : loader.get().sizeInBytes();
+        }
+
+        @Override
+        public String getText(int start, int end) {
+            return loader.get().getText(start, end);
+        }
+
+        @Override
+        public String asString() {
+            return loader.get().asString();
+        }
+
+        @Override
+        public String readUtf8Chunk(int byteOffset, int maxBytes) {
+            return loader.get().readUtf8Chunk(byteOffset, maxBytes);
+        }
+
+        @Override
+        public long hash(int start, int end) {
+            return loader.get().hash(start, end);
+        }
+
+        @Override
+        public long hashIgnoringWhitespace(int start, int end) {
+            return loader.get().hashIgnoringWhitespace(start, end);
+        }
+
+        @Override
+        public boolean regionMatches(int start, int end, SourceText other, int otherStart, int otherEnd) {
+            return loader.get().regionMatches(start, end, resolve(other), otherStart, otherEnd);
+        }
+    }
+}
@@ -46,7 +46,7 @@ public class UMLAnnotation {
     }
 
     public List<UMLAnnotation> getNestedAnnotations() {
-        return new ArrayList<>(nestedAnnotations);
+        return Collections.unmodifiableList(nestedAnnotations);
     }
 
     // Basic getters
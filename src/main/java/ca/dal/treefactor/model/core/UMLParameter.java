@@ -8,55 +8,86 @@ import org.slf4j.LoggerFactory;
 
 public class UMLParameter {
     private static final Logger LOGGER = LoggerFactory.getLogger(UMLParameter.class);
+
+    // Property flags
+    private static final int VARARGS = 1;
+    private static final int FINAL = 1 << 1;
+    private static final int DEFAULT_VALUE_PRESENT = 1 << 2;
+    private static final int KEYWORD_ONLY = 1 << 3;       // Python-specific
+    private static final int REFERENCE = 1 << 4;          // C++-specific
+    private static final int RVALUE_REFERENCE = 1 << 5;   // C++-specific
+    private static final int CONST = 1 << 6;              // C++-specific
+    private static final int POINTER = 1 << 7;            // C++-specific
+    private static final int VOLATILE = 1 << 8;           // Additional C++ qualifier that might be useful
+    private static final int FROZEN = 1 << 9;
+
     private final String name;
     private final UMLType type;
-    private final List<UMLAnnotation> annotations;
+    private List<UMLAnnotation> annotations;
     private final LocationInfo locationInfo;
 
-    // Common parameter properties
+    // Common parameter properties, boolean properties are packed into flags
     private String kind;
-    private boolean isVarargs;
-    private boolean isFinal;
-    private boolean isDefaultValuePresent;
     private String defaultValue;
-
-    // Python-specific properties
-    private boolean isKeywordOnly;
-
-    // C++-specific properties
-    private boolean isReference;
-    private boolean isRValueReference;
-    private boolean isConst;
-    private boolean isPointer;
-    private boolean isVolatile; // Additional C++ qualifier that might be useful
+    private int flags;
+    private int hash;  // Cached once frozen, 0 until computed
 
     public UMLParameter(String name, UMLType type, LocationInfo locationInfo) {
         this.name = name;
         this.type = type;
         this.locationInfo = locationInfo;
-        this.annotations = new ArrayList<>();
+        this.annotations = new ArrayList<>(0);
         this.kind = "in"; // default to "in" parameter
-        this.isKeywordOnly = false;
-        this.isReference = false;
-        this.isRValueReference = false;
-        this.isConst = false;
-        this.isPointer = false;
-        this.isVolatile = false;
     }
 
     // Existing annotation methods remain the same
     public void addAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         if (!annotations.contains(annotation)) {
             annotations.add(annotation);
         }
     }
 
     public void removeAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         annotations.remove(annotation);
     }
 
     public List<UMLAnnotation> getAnnotations() {
-        return new ArrayList<>(annotations);
+        return isFrozen() ? annotations : Collections.unmodifiableList(annotations);
+    }
+
+    // Freezing
+    /**
+     * Makes the annotations of this parameter and its type read-only and caches its hash code.
+     * The kind, default value and flags stay settable.
+     */
+    public void freeze() {
+        if (!isFrozen()) {
+            if (type != null) {
+                type.freeze();
+            }
+            annotations = List.copyOf(annotations);
+            setFlag(FROZEN, true);
+        }
+    }
+
+    public boolean isFrozen() {
+        return hasFlag(FROZEN);
+    }
+
+    private void checkNotFrozen() {
+        if (isFrozen()) {
+            throw new IllegalStateException("Cannot modify frozen parameter " + name);
+        }
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+        flags = value ? flags | flag : flags & ~flag;
     }
 
     // Existing basic getters remain the same
@@ -86,23 +117,23 @@ public class UMLParameter {
     }
 
     public boolean isVarargs() {
-        return isVarargs;
+        return hasFlag(VARARGS);
     }
 
     public void setVarargs(boolean isVarargs) {
-        this.isVarargs = isVarargs;
+        setFlag(VARARGS, isVarargs);
     }
 
     public boolean isFinal() {
-        return isFinal;
+        return hasFlag(FINAL);
     }
 
     public void setFinal(boolean isFinal) {
-        this.isFinal = isFinal;
+        setFlag(FINAL, isFinal);
     }
 
     public boolean hasDefaultValue() {
-        return isDefaultValuePresent && defaultValue != null;
+        return hasFlag(DEFAULT_VALUE_PRESENT) && defaultValue != null;
     }
 
     public String getDefaultValue() {
@@ -123,73 +154,73 @@ public class UMLParameter {
             } else {
                 this.defaultValue = defaultValue;
             }
-            this.isDefaultValuePresent = true;
+            setFlag(DEFAULT_VALUE_PRESENT, true);
 
             // Debug logging
             LOGGER.debug("UMLParameter: Setting default value to: {}", this.defaultValue);
-            LOGGER.debug("UMLParameter: isDefaultValuePresent = {}", this.isDefaultValuePresent);
+            LOGGER.debug("UMLParameter: isDefaultValuePresent = {}", hasFlag(DEFAULT_VALUE_PRESENT));
         } else {
             this.defaultValue = null;
-            this.isDefaultValuePresent = false;
+            setFlag(DEFAULT_VALUE_PRESENT, false);
         }
     }
 
     // Python-specific getters and setters
     public boolean isKeywordOnly() {
-        return isKeywordOnly;
+        return hasFlag(KEYWORD_ONLY);
     }
 
     public void setKeywordOnly(boolean keywordOnly) {
-        this.isKeywordOnly = keywordOnly;
+        setFlag(KEYWORD_ONLY, keywordOnly);
     }
 
     // C++-specific getters and setters
     public boolean isReference() {
-        return isReference;
+        return hasFlag(REFERENCE);
     }
 
     public void setReference(boolean reference) {
         // Cannot be both reference and rvalue reference
-        if (reference && this.isRValueReference) {
-            this.isRValueReference = false;
+        if (reference && hasFlag(RVALUE_REFERENCE)) {
+            setFlag(RVALUE_REFERENCE, false);
         }
-        this.isReference = reference;
+        setFlag(REFERENCE, reference);
     }
 
     public boolean isRValueReference() {
-        return isRValueReference;
+        return hasFlag(RVALUE_REFERENCE);
     }
 
     public void setRValueReference(boolean rValueReference) {
         // Cannot be both reference and rvalue reference
-        if (rValueReference && this.isReference) {
-            this.isReference = false;
+        if (rValueReference && hasFlag(REFERENCE)) {
+            setFlag(REFERENCE, false);
         }
-        this.isRValueReference = rValueReference;
+        setFlag(RVALUE_REFERENCE, rValueReference);
     }
 
     public boolean isConst() {
-        return isConst;
+        return hasFlag(CONST);
     }
 
     public void setConst(boolean isConst) {
-        this.isConst = isConst;
+        setFlag(CONST, isConst);
     }
 
     public boolean isPointer() {
-        return isPointer;
+        return hasFlag(POINTER);
     }
 
     public void setPointer(boolean pointer) {
-        this.isPointer = pointer;
+        setFlag(POINTER, pointer);
     }
 
     public boolean isVolatile() {
-        return isVolatile;
+        return hasFlag(VOLATILE);
     }
 
     public void setVolatile(boolean volatile_) {
-        this.isVolatile = volatile_;
+        setFlag(VOLATILE, volatile_);
     }
 
     // Updated getSignature() to include C++ qualifiers
@@ -202,17 +233,17 @@ public class UMLParameter {
         }
 
         // Add const qualifier if present
-        if (isConst) {
+        if (hasFlag(CONST)) {
             sb.append("const ");
         }
 
         // Add volatile qualifier if present
-        if (isVolatile) {
+        if (hasFlag(VOLATILE)) {
             sb.append("volatile ");
         }
 
         // Add final modifier if present
-        if (isFinal) {
+        if (hasFlag(FINAL)) {
             sb.append("final ");
         }
 
@@ -220,18 +251,18 @@ public class UMLParameter {
         sb.append(type.toString());
 
         // Add pointer or reference symbols
-        if (isPointer) {
+        if (hasFlag(POINTER)) {
             sb.append("*");
         }
-        if (isReference) {
+        if (hasFlag(REFERENCE)) {
             sb.append("&");
         }
-        if (isRValueReference) {
+        if (hasFlag(RVALUE_REFERENCE)) {
             sb.append("&&");
         }
 
         // Add varargs if applicable
-        if (isVarargs) {
+        if (hasFlag(VARARGS)) {
             sb.append("...");
         }
 
@@ -239,7 +270,7 @@ public class UMLParameter {
         sb.append(" ").append(name);
 
         // Add default value if present
-        if (isDefaultValuePresent && defaultValue != null) {
+        if (hasFlag(DEFAULT_VALUE_PRESENT) && defaultValue != null) {
             sb.append(" = ").append(defaultValue); // Use the exact stored value
         }
 
@@ -265,7 +296,14 @@ public class UMLParameter {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, type, locationInfo);
+        if (isFrozen() && hash != 0) {
+            return hash;
+        }
+        int h = Objects.hash(name, type, locationInfo);
+        if (isFrozen()) {
+            hash = h;
+        }
+        return h;
     }
 
     // Updated Builder pattern to include C++ features
@@ -3,6 +3,14 @@ package ca.dal.treefactor.model.core;
 import java.util.*;
 
 public class UMLType {
+    private static final Set<String> PRIMITIVE_TYPES = Set.of(
+            "byte", "short", "int", "long", "float", "double", "boolean", "char",
+            // Python numeric types
+            "complex",
+            // C++ primitive types
+            "size_t", "wchar_t"
+    );
+
     private final String typeName;
     private final List<UMLType> typeParameters; // For generics/templates
     private final List<UMLAnnotation> annotations;
@@ -19,6 +27,10 @@ public class UMLType {
     private boolean isVarargs;
     private String packageName; // For non-primitive types
 
+    // Set for types shared as flyweights, which must not change afterwards
+    private boolean frozen;
+    private int hash;  // Cached once frozen, 0 until computed
+
     public UMLType(String typeName) {
         this.typeName = typeName;
         this.typeParameters = new ArrayList<>();
@@ -28,14 +40,7 @@ public class UMLType {
 
     private void initializeType() {
         // Determine if it's a primitive type
-        Set<String> primitiveTypes = new HashSet<>(Arrays.asList(
-                "byte", "short", "int", "long", "float", "double", "boolean", "char",
-                // Python numeric types
-                "int", "float", "complex",
-                // C++ primitive types
-                "size_t", "wchar_t"
-        ));
-        this.isPrimitive = primitiveTypes.contains(typeName.toLowerCase());
+        this.isPrimitive = PRIMITIVE_TYPES.contains(typeName.toLowerCase());
 
         // Check if it's void
         this.isVoid = typeName.equals("void");
@@ -49,30 +54,55 @@ public class UMLType {
 
     // Type parameters management
     public void addTypeParameter(UMLType typeParameter) {
+        checkNotFrozen();
         typeParameters.add(typeParameter);
     }
 
     public void removeTypeParameter(UMLType typeParameter) {
+        checkNotFrozen();
         typeParameters.remove(typeParameter);
     }
 
     public List<UMLType> getTypeParameters() {
-        return new ArrayList<>(typeParameters);
+        return Collections.unmodifiableList(typeParameters);
     }
 
     // Annotation management
     public void addAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         if (!annotations.contains(annotation)) {
             annotations.add(annotation);
         }
     }
 
     public void removeAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         annotations.remove(annotation);
     }
 
     public List<UMLAnnotation> getAnnotations() {
-        return new ArrayList<>(annotations);
+        return Collections.unmodifiableList(annotations);
+    }
+
+    // Freezing
+    /**
+     * Makes this type immutable, so that it can be shared
+     */
+    public void freeze() {
+        if (!frozen) {
+            typeParameters.forEach(UMLType::freeze);
+            frozen = true;
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify shared type " + typeName);
+        }
     }
 
     // Basic getters
@@ -86,6 +116,7 @@ public class UMLType {
 
     // Array properties
     public void setArray(boolean isArray, int dimensions) {
+        checkNotFrozen();
         this.isArray = isArray;
         this.arrayDimensions = dimensions;
     }
@@ -100,6 +131,7 @@ public class UMLType {
 
     // Collection properties
     public void setCollection(boolean isCollection) {
+        checkNotFrozen();
         this.isCollection = isCollection;
     }
 
@@ -108,6 +140,7 @@ public class UMLType {
     }
 
     public void setMap(boolean isMap) {
+        checkNotFrozen();
         this.isMap = isMap;
     }
 
@@ -125,6 +158,7 @@ public class UMLType {
     }
 
     public void setVarargs(boolean isVarargs) {
+        checkNotFrozen();
         this.isVarargs = isVarargs;
     }
 
@@ -188,7 +222,14 @@ public class UMLType {
 
     @Override
     public int hashCode() {
-        return Objects.hash(typeName, typeParameters, isArray, arrayDimensions, isVarargs);
+        if (frozen && hash != 0) {
+            return hash;
+        }
+        int h = Objects.hash(typeName, typeParameters, isArray, arrayDimensions, isVarargs);
+        if (frozen) {
+            hash = h;
+        }
+        return h;
     }
 
     // Builder pattern for fluent API
@@ -0,0 +1,181 @@
+package ca.dal.treefactor.model.diff;
+
+import java.util.*;
+
+/**
+ * Index of normalized method names, returning the keys whose name is related to a given one:
+ * equal to it, containing it, contained in it, or within a small edit distance of it.
+ *
+ * Names within edit distance k of each other share a string obtained by deleting at most k
+ * characters from each, so every name is indexed under its deletion variants and a query only
+ * verifies the names sharing one of its own variants. Names containing the query are found
+ * through the trigram of the query with the fewest names, names contained in it by looking up
+ * each of its substrings.
+ */
+public final class MethodNameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final int maxEditDistance;
+    private final List<String> keys;
+    private final Map<String, List<Integer>> keysByName;
+    private final Map<String, Set<String>> namesByVariant;
+    private final Map<String, Set<String>> namesByGram;
+    private int maxNameLength;
+
+    public MethodNameIndex(int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+        this.keys = new ArrayList<>();
+        this.keysByName = new HashMap<>();
+        this.namesByVariant = new HashMap<>();
+        this.namesByGram = new HashMap<>();
+    }
+
+    public void add(String name, String key) {
+        List<Integer> keysOfName = keysByName.get(name);
+        if (keysOfName == null) {
+            keysOfName = new ArrayList<>();
+            keysByName.put(name, keysOfName);
+            for (String variant : deletionVariants(name, maxEditDistance)) {
+                namesByVariant.computeIfAbsent(variant, v -> new HashSet<>()).add(name);
+            }
+            for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+                namesByGram.computeIfAbsent(name.substring(i, i + GRAM_LENGTH), g -> new HashSet<>()).add(name);
+            }
+            maxNameLength = Math.max(maxNameLength, name.length());
+        }
+        keysOfName.add(keys.size());
+        keys.add(key);
+    }
+
+    /**
+     * Keys whose name is related to the given one, in the order they were added
+     */
+    public List<String> getRelatedKeys(String name) {
+        Set<String> related = new HashSet<>();
+
+        // Within the edit distance, equal names included
+        for (String variant : deletionVariants(name, maxEditDistance)) {
+            for (String candidate : namesByVariant.getOrDefault(variant, Collections.emptySet())) {
+                if (!related.contains(candidate) && isWithinEditDistance(name, candidate, maxEditDistance)) {
+                    related.add(candidate);
+                }
+            }
+        }
+
+        // Contained in the name
+        for (int start = 0; start <= name.length(); start++) {
+            for (int end = start; end <= name.length() && end - start <= maxNameLength; end++) {
+                String substring = name.substring(start, end);
+                if (keysByName.containsKey(substring)) {
+                    related.add(substring);
+                }
+            }
+        }
+
+        // Containing the name
+        related.addAll(getNamesContaining(name));
+
+        List<Integer> indices = new ArrayList<>();
+        for (String relatedName : related) {
+            indices.addAll(keysByName.get(relatedName));
+        }
+        Collections.sort(indices);
+        List<String> result = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            result.add(keys.get(index));
+        }
+        return result;
+    }
+
+    private Collection<String> getNamesContaining(String name) {
+        Collection<String> candidates = null;
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            Set<String> names = namesByGram.get(name.substring(i, i + GRAM_LENGTH));
+            if (names == null) {
+                return Collections.emptyList();
+            }
+            if (candidates == null || names.size() < candidates.size()) {
+                candidates = names;
+            }
+        }
+        if (candidates == null) {
+            // Names shorter than a trigram are checked against every name
+            candidates = keysByName.keySet();
+        }
+        List<String> result = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (candidate.contains(name)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether two normalized names are related as defined by this index
+     */
+    public static boolean areRelated(String name1, String name2, int maxEditDistance) {
+        return name1.contains(name2) ||
+                name2.contains(name1) ||
+                isWithinEditDistance(name1, name2, maxEditDistance);
+    }
+
+    /**
+     * Whether the Levenshtein distance of the two strings is at most k.
+     * Only the diagonal band of width 2k+1 is computed, and the computation stops as soon as
+     * a whole row exceeds k.
+     */
+    public static boolean isWithinEditDistance(String s1, String s2, int k) {
+        int n = s1.length();
+        int m = s2.length();
+        if (Math.abs(n - m) > k) {
+            return false;
+        }
+        int beyond = k + 1;  // Distances above k are all equivalent
+        int[] previous = new int[m + 1];
+        int[] row = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, beyond);
+        }
+        for (int i = 1; i <= n; i++) {
+            int low = Math.max(1, i - k);
+            int high = Math.min(m, i + k);
+            row[low - 1] = low == 1 ? Math.min(i, beyond) : beyond;
+            int rowMinimum = row[low - 1];
+            for (int j = low; j <= high; j++) {
+                int substitution = previous[j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1);
+                int distance = Math.min(substitution, Math.min(previous[j], row[j - 1]) + 1);
+                row[j] = Math.min(distance, beyond);
+                rowMinimum = Math.min(rowMinimum, row[j]);
+            }
+            if (high < m) {
+                row[high + 1] = beyond;
+            }
+            if (rowMinimum > k) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[m] <= k;
+    }
+
+    // The name and every string obtained by deleting up to count of its characters
+    private static Set<String> deletionVariants(String name, int count) {
+        Set<String> variants = new HashSet<>();
+        variants.add(name);
+        Set<String> current = variants;
+        for (int d = 0; d < count; d++) {
+            Set<String> next = new HashSet<>();
+            for (String variant : current) {
+                for (int i = 0; i < variant.length(); i++) {
+                    next.add(variant.substring(0, i) + variant.substring(i + 1));
+                }
+            }
+            variants.addAll(next);
+            current = next;
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,166 @@
+package ca.dal.treefactor.model.diff;
+
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.elements.UMLOperation;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Locality-sensitive index of operations by the statements of their bodies.
+ * Each body is summarized by a MinHash signature of its set of statements, parameter names being
+ * replaced by their position so that renamed parameters do not hide a match. Signatures are split
+ * into bands, and two operations are candidates when they agree on all the rows of some band: with
+ * 16 bands of 2 rows, bodies sharing half of their statements collide with a probability above 99%
+ * while unrelated ones rarely do. Candidates are ranked by the number of agreeing rows, which
+ * estimates the Jaccard similarity of the two statement sets.
+ *
+ * Operations without statements are not indexed, their body similarity is always 0.
+ */
+public final class OperationCandidateIndex {
+    private static final int BANDS = 16;
+    private static final int ROWS = 2;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    // Only the first operations of a bucket are looked at, a bucket of identical trivial bodies can be huge
+    public static final int MAX_BUCKET_SCAN = 1024;
+
+    private final List<String> keys;
+    private final List<long[]> signatures;
+    private final Map<Long, List<Integer>> buckets;
+
+    /**
+     * Indexes the operations, in the iteration order of the map
+     */
+    public OperationCandidateIndex(Map<String, UMLOperation> operations) {
+        this.keys = new ArrayList<>();
+        this.signatures = new ArrayList<>();
+        this.buckets = new HashMap<>();
+        for (Map.Entry<String, UMLOperation> entry : operations.entrySet()) {
+            long[] signature = signature(entry.getValue());
+            if (signature == null) {
+                continue;
+            }
+            int index = keys.size();
+            keys.add(entry.getKey());
+            signatures.add(signature);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>()).add(index);
+            }
+        }
+    }
+
+    /**
+     * Keys of the indexed operations colliding with the given one and accepted by the filter,
+     * the most similar first and at most limit of them
+     */
+    public List<String> getCandidates(UMLOperation operation, Predicate<String> filter, int limit) {
+        long[] signature = signature(operation);
+        if (signature == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Integer> agreements = new HashMap<>();
+        for (int band = 0; band < BANDS; band++) {
+            List<Integer> bucket = buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (int index : bucket.subList(0, Math.min(bucket.size(), MAX_BUCKET_SCAN))) {
+                if (!agreements.containsKey(index)) {
+                    agreements.put(index, filter.test(keys.get(index)) ? agreement(signature, signatures.get(index)) : -1);
+                }
+            }
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : agreements.entrySet()) {
+            if (entry.getValue() >= 0) {
+                candidates.add(entry.getKey());
+            }
+        }
+        candidates.sort(Comparator.<Integer>comparingInt(agreements::get).reversed().thenComparingInt(index -> index));
+        List<String> result = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (int index : candidates.subList(0, Math.min(limit, candidates.size()))) {
+            result.add(keys.get(index));
+        }
+        return result;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    // Signature
+
+    private static long[] signature(UMLOperation operation) {
+        if (!operation.hasBody()) {
+            return null;
+        }
+        String[] statements = operation.getOperationBody().getStatements();
+        if (statements.length == 0) {
+            return null;
+        }
+        Map<String, String> placeholders = new HashMap<>();
+        List<UMLParameter> parameters = operation.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            placeholders.putIfAbsent(parameters.get(i).getName(), "$" + i);
+        }
+
+        long[] signature = new long[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String statement : statements) {
+            long hash = hashStatement(statement.trim(), placeholders);
+            for (int k = 0; k < SIGNATURE_LENGTH; k++) {
+                signature[k] = Math.min(signature[k], mix(hash + (k + 1) * 0x9E3779B97F4A7C15L));
+            }
+        }
+        return signature;
+    }
+
+    // 64-bit FNV-1a of the statement, identifiers naming a parameter being hashed as its placeholder
+    private static long hashStatement(String statement, Map<String, String> placeholders) {
+        long hash = 0xcbf29ce484222325L;
+        int i = 0;
+        while (i < statement.length()) {
+            char c = statement.charAt(i);
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < statement.length() && Character.isJavaIdentifierPart(statement.charAt(end))) {
+                    end++;
+                }
+                String identifier = statement.substring(i, end);
+                String token = placeholders.getOrDefault(identifier, identifier);
+                for (int t = 0; t < token.length(); t++) {
+                    hash = (hash ^ token.charAt(t)) * 0x100000001b3L;
+                }
+                i = end;
+            } else {
+                hash = (hash ^ c) * 0x100000001b3L;
+                i++;
+            }
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int r = 0; r < ROWS; r++) {
+            key = mix(key ^ signature[band * ROWS + r]);
+        }
+        return key;
+    }
+
+    private static int agreement(long[] signature1, long[] signature2) {
+        int count = 0;
+        for (int k = 0; k < SIGNATURE_LENGTH; k++) {
+            if (signature1[k] == signature2[k]) count++;
+        }
+        return count;
+    }
+}
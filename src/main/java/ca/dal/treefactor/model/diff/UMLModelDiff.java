@@ -8,24 +8,58 @@ import ca.dal.treefactor.model.diff.refactoring.*;
 import ca.dal.treefactor.model.diff.mappers.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 public class UMLModelDiff {
+    // Above this many unmatched pairs, body similarity candidates come from an OperationCandidateIndex
+    private static final long CANDIDATE_INDEX_MIN_PAIRS = Long.getLong("treefactor.diff.candidateIndexMinPairs", 1L << 16);
+    // Candidates scored per unmatched operation when the index is used
+    private static final int MAX_BODY_CANDIDATES = Integer.getInteger("treefactor.diff.maxBodyCandidates", 32);
+    // Threads mapping operation bodies by default, 1 maps them on the calling thread
+    private static final int DEFAULT_PARALLELISM = Integer.getInteger("treefactor.diff.parallelism",
+            Runtime.getRuntime().availableProcessors());
+    // One pool per parallelism, shared by the diffs using it, its idle threads time out
+    private static final Map<Integer, ForkJoinPool> MAPPER_POOLS = new ConcurrentHashMap<>();
+
     private final UMLModel oldModel;
     private final UMLModel newModel;
     private final List<UMLOperationBodyMapper> operationBodyMappers;
     private final Map<String, UMLOperation> oldOperations;
     private final Map<String, UMLOperation> newOperations;
+    private final Map<UMLOperation, String> operationKeys;  // By identity, operations of both models
     private final Map<String, UMLClass> oldClasses;
     private final Map<String, UMLClass> newClasses;
+    private final Map<UMLClass, UMLClass> matchedClasses;
+    private final Map<String, String> normalizedMethodNames;
+    private final ForkJoinPool mapperPool;  // Null when mapping on the calling thread
+    private int unchangedOperationCount;  // Operations with identical signatures that were not mapped
 
     public UMLModelDiff(UMLModel oldModel, UMLModel newModel) {
+        this(oldModel, newModel, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Diff mapping operation bodies on the given number of threads, 1 mapping them on the calling thread.
+     * The refactorings found do not depend on the parallelism.
+     */
+    public UMLModelDiff(UMLModel oldModel, UMLModel newModel, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
         this.oldModel = oldModel;
         this.newModel = newModel;
         this.operationBodyMappers = new ArrayList<>();
         this.oldOperations = new HashMap<>();
         this.newOperations = new HashMap<>();
+        this.operationKeys = new IdentityHashMap<>();
         this.oldClasses = new HashMap<>();
         this.newClasses = new HashMap<>();
+        this.matchedClasses = new LinkedHashMap<>();
+        this.normalizedMethodNames = new ConcurrentHashMap<>();
+        this.mapperPool = parallelism > 1 ? MAPPER_POOLS.computeIfAbsent(parallelism, ForkJoinPool::new) : null;
 
         // Initialize maps
         mapOperations();
@@ -35,25 +69,31 @@ public class UMLModelDiff {
     private void mapOperations() {
         // Map all operations from old model
         for (UMLOperation op : oldModel.getOperations()) {
-            oldOperations.put(getOperationKey(op), op);
+            putOperation(oldOperations, op.getLocationInfo().getFilePath() + ":", op);
         }
         for (UMLClass cls : oldModel.getClasses()) {
             for (UMLOperation op : cls.getOperations()) {
-                oldOperations.put(getOperationKey(op), op);
+                putOperation(oldOperations, cls.getFullyQualifiedName() + ".", op);
             }
         }
 
         // Map all operations from new model
         for (UMLOperation op : newModel.getOperations()) {
-            newOperations.put(getOperationKey(op), op);
+            putOperation(newOperations, op.getLocationInfo().getFilePath() + ":", op);
         }
         for (UMLClass cls : newModel.getClasses()) {
             for (UMLOperation op : cls.getOperations()) {
-                newOperations.put(getOperationKey(op), op);
+                putOperation(newOperations, cls.getFullyQualifiedName() + ".", op);
             }
         }
     }
 
+    private void putOperation(Map<String, UMLOperation> operations, String prefix, UMLOperation operation) {
+        String key = prefix + getOperationSignature(operation);
+        operationKeys.put(operation, key);
+        operations.put(key, operation);
+    }
+
     private void mapClasses() {
         for (UMLClass cls : oldModel.getClasses()) {
             oldClasses.put(cls.getFullyQualifiedName(), cls);
@@ -63,11 +103,17 @@ public class UMLModelDiff {
         }
     }
 
+    /**
+     * Methods are keyed by the qualified name of their class, standalone functions by their file,
+     * so that same-named classes or functions of different modules never share a key
+     */
     private String getOperationKey(UMLOperation operation) {
+        return operationKeys.get(operation);
+    }
+
+    // Name and, for statically typed languages, parameter types
+    private String getOperationSignature(UMLOperation operation) {
         StringBuilder key = new StringBuilder();
-        if (operation.getClassName() != null) {
-            key.append(operation.getClassName()).append(".");
-        }
         key.append(operation.getName());
         key.append("(");
         // Add parameter types for statically typed languages
@@ -88,6 +134,9 @@ public class UMLModelDiff {
         // First match operations with identical signatures
         matchOperationsWithIdenticalSignatures();
 
+        // Then match the classes the remaining operations can be matched within
+        matchClasses();
+
         // Then try to match remaining operations based on body similarity
         matchOperationsBasedOnBodySimilarity();
 
@@ -97,17 +146,42 @@ public class UMLModelDiff {
         return refactorings;
     }
 
+    private record OperationPair(UMLOperation oldOperation, UMLOperation newOperation) {
+    }
+
+    /**
+     * Applies the function to the items on the mapper pool, the results being in the order of the items
+     */
+    private <T, R> List<R> mapInParallel(List<T> items, Function<T, R> function) {
+        if (mapperPool == null || items.size() < 2) {
+            return items.stream().map(function).toList();
+        }
+        return mapperPool.submit(() -> items.parallelStream().map(function).toList()).join();
+    }
+
+    private List<UMLOperationBodyMapper> createMappers(List<OperationPair> pairs) {
+        return mapInParallel(pairs, pair -> new UMLOperationBodyMapper(pair.oldOperation(), pair.newOperation()));
+    }
+
     private void matchOperationsWithIdenticalSignatures() {
         Set<String> commonKeys = new HashSet<>(oldOperations.keySet());
         commonKeys.retainAll(newOperations.keySet());
 
+        List<OperationPair> pairs = new ArrayList<>();
         for (String key : commonKeys) {
             UMLOperation oldOp = oldOperations.get(key);
             UMLOperation newOp = newOperations.get(key);
 
-            UMLOperationBodyMapper mapper = new UMLOperationBodyMapper(oldOp, newOp);
-            operationBodyMappers.add(mapper);
+            // Structurally identical definitions, and definitions with identical parameters and bodies,
+            // map every statement to itself, so mapping them cannot yield any refactoring
+            if (oldOp.hasSameStructure(newOp) || hasSameParametersAndBody(oldOp, newOp)) {
+                unchangedOperationCount++;
+                continue;
+            }
+
+            pairs.add(new OperationPair(oldOp, newOp));
         }
+        operationBodyMappers.addAll(createMappers(pairs));
     }
 
     /**
@@ -138,11 +212,131 @@ public class UMLModelDiff {
          */
         public static final int MAX_NAME_EDIT_DISTANCE = 2;
 
+        /**
+         * Minimum Jaccard similarity of the member signatures of two classes with different
+         * qualified names to consider one a rename or move of the other.
+         */
+        public static final double CLASS_SIMILARITY_THRESHOLD = 0.5;
+
         private OperationThresholds() {
             // Prevent instantiation of this constants class
         }
     }
 
+    // Compares the bodies by length and content hash first, without materializing them
+    private static boolean hasSameParametersAndBody(UMLOperation oldOp, UMLOperation newOp) {
+        if (oldOp.hasBody() != newOp.hasBody() ||
+                (oldOp.hasBody() && !oldOp.getOperationBody().contentEquals(newOp.getOperationBody()))) {
+            return false;
+        }
+        List<UMLParameter> oldParams = oldOp.getParameters();
+        List<UMLParameter> newParams = newOp.getParameters();
+        if (oldParams.size() != newParams.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldParams.size(); i++) {
+            if (!oldParams.get(i).getName().equals(newParams.get(i).getName()) ||
+                    !oldParams.get(i).getType().equals(newParams.get(i).getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of operations with identical signatures that took the fast path, their definitions
+     * or their parameters and bodies being identical
+     */
+    public int getUnchangedOperationCount() {
+        return unchangedOperationCount;
+    }
+
+    private void matchClasses() {
+        // Classes keeping their qualified name
+        List<UMLClass> unmatchedOldClasses = new ArrayList<>();
+        Set<UMLClass> unmatchedNewClasses = new LinkedHashSet<>(newClasses.values());
+        for (Map.Entry<String, UMLClass> entry : oldClasses.entrySet()) {
+            UMLClass newClass = newClasses.get(entry.getKey());
+            if (newClass != null) {
+                matchedClasses.put(entry.getValue(), newClass);
+                unmatchedNewClasses.remove(newClass);
+            } else {
+                unmatchedOldClasses.add(entry.getValue());
+            }
+        }
+
+        // Renamed or moved classes, by the similarity of their member signatures
+        for (UMLClass oldClass : unmatchedOldClasses) {
+            Set<String> oldSignatures = getMemberSignatures(oldClass);
+            UMLClass bestMatch = null;
+            double maxSimilarity = 0.0;
+            for (UMLClass newClass : unmatchedNewClasses) {
+                double similarity = jaccard(oldSignatures, getMemberSignatures(newClass));
+                if (similarity > maxSimilarity && similarity >= OperationThresholds.CLASS_SIMILARITY_THRESHOLD) {
+                    maxSimilarity = similarity;
+                    bestMatch = newClass;
+                }
+            }
+            if (bestMatch != null) {
+                matchedClasses.put(oldClass, bestMatch);
+                unmatchedNewClasses.remove(bestMatch);
+            }
+        }
+    }
+
+    private Set<String> getMemberSignatures(UMLClass umlClass) {
+        Set<String> signatures = new HashSet<>();
+        for (UMLOperation operation : umlClass.getOperations()) {
+            signatures.add(getOperationSignature(operation));
+        }
+        for (UMLAttribute attribute : umlClass.getAttributes()) {
+            signatures.add(attribute.getName());
+        }
+        return signatures;
+    }
+
+    private static double jaccard(Set<String> set1, Set<String> set2) {
+        if (set1.isEmpty() && set2.isEmpty()) {
+            return 0.0;
+        }
+        int common = 0;
+        for (String element : set1) {
+            if (set2.contains(element)) common++;
+        }
+        return (double) common / (set1.size() + set2.size() - common);
+    }
+
+    /**
+     * Matched classes, old to new, by qualified name first and then by member signatures
+     */
+    public Map<UMLClass, UMLClass> getMatchedClasses() {
+        return Collections.unmodifiableMap(matchedClasses);
+    }
+
+    // Keys of the given operations that are still unmatched
+    private Set<String> getUnmatchedKeys(List<UMLOperation> operations, Set<String> unmatchedKeys) {
+        Set<String> keys = new HashSet<>();
+        for (UMLOperation operation : operations) {
+            String key = getOperationKey(operation);
+            if (unmatchedKeys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static Map<String, List<UMLOperation>> getOperationsByFile(List<UMLOperation> operations) {
+        Map<String, List<UMLOperation>> operationsByFile = new LinkedHashMap<>();
+        for (UMLOperation operation : operations) {
+            operationsByFile.computeIfAbsent(operation.getLocationInfo().getFilePath(), f -> new ArrayList<>()).add(operation);
+        }
+        return operationsByFile;
+    }
+
+    // Unmatched operations of a matched class pair or file, matched before the leftovers
+    private record OperationGroup(Set<String> oldKeys, Set<String> newKeys) {
+    }
+
     private void matchOperationsBasedOnBodySimilarity() {
         Set<String> unmatchedOldKeys = new HashSet<>(oldOperations.keySet());
         unmatchedOldKeys.removeAll(newOperations.keySet());
@@ -150,35 +344,180 @@ public class UMLModelDiff {
         Set<String> unmatchedNewKeys = new HashSet<>(newOperations.keySet());
         unmatchedNewKeys.removeAll(oldOperations.keySet());
 
+        // Functions moved to another file and methods of classes moved to another package keep their signature
+        List<OperationPair> matches = matchOperationsWithUniqueSignatures(unmatchedOldKeys, unmatchedNewKeys);
+
+        // Operations are first matched within matched classes, and standalone functions within the
+        // same file. Keys are qualified, so the groups are disjoint and matched independently of each other.
+        List<OperationGroup> groups = new ArrayList<>();
+        for (Map.Entry<UMLClass, UMLClass> classMatch : matchedClasses.entrySet()) {
+            addGroup(groups, classMatch.getKey().getOperations(), classMatch.getValue().getOperations(),
+                    unmatchedOldKeys, unmatchedNewKeys);
+        }
+        Map<String, List<UMLOperation>> newOperationsByFile = getOperationsByFile(newModel.getOperations());
+        for (Map.Entry<String, List<UMLOperation>> file : getOperationsByFile(oldModel.getOperations()).entrySet()) {
+            List<UMLOperation> newFileOperations = newOperationsByFile.get(file.getKey());
+            if (newFileOperations != null) {
+                addGroup(groups, file.getValue(), newFileOperations, unmatchedOldKeys, unmatchedNewKeys);
+            }
+        }
+        for (List<OperationPair> groupMatches : mapInParallel(groups,
+                group -> matchOperationsBasedOnBodySimilarity(group.oldKeys(), group.newKeys(), false))) {
+            for (OperationPair match : groupMatches) {
+                // Classes defined twice under one qualified name would share keys, the first group keeps them
+                String oldKey = getOperationKey(match.oldOperation());
+                String newKey = getOperationKey(match.newOperation());
+                if (unmatchedOldKeys.contains(oldKey) && unmatchedNewKeys.contains(newKey)) {
+                    unmatchedOldKeys.remove(oldKey);
+                    unmatchedNewKeys.remove(newKey);
+                    matches.add(match);
+                }
+            }
+        }
+
+        // Leftovers are then matched across classes and files
+        matches.addAll(matchOperationsBasedOnBodySimilarity(unmatchedOldKeys, unmatchedNewKeys, true));
+        operationBodyMappers.addAll(createMappers(matches));
+    }
+
+    /**
+     * Matches the unmatched operations whose class name and signature, without package or file,
+     * belong to a single unmatched operation in each model. Matched keys are removed from the sets.
+     */
+    private List<OperationPair> matchOperationsWithUniqueSignatures(Set<String> unmatchedOldKeys,
+                                                                    Set<String> unmatchedNewKeys) {
+        Map<String, List<String>> oldKeysBySignature = getKeysByUnqualifiedSignature(unmatchedOldKeys, oldOperations);
+        Map<String, List<String>> newKeysBySignature = getKeysByUnqualifiedSignature(unmatchedNewKeys, newOperations);
+
+        List<OperationPair> matches = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : oldKeysBySignature.entrySet()) {
+            List<String> newKeys = newKeysBySignature.get(entry.getKey());
+            if (entry.getValue().size() != 1 || newKeys == null || newKeys.size() != 1) {
+                continue;
+            }
+            String oldKey = entry.getValue().get(0);
+            String newKey = newKeys.get(0);
+            unmatchedOldKeys.remove(oldKey);
+            unmatchedNewKeys.remove(newKey);
+
+            UMLOperation oldOp = oldOperations.get(oldKey);
+            UMLOperation newOp = newOperations.get(newKey);
+            if (hasSameParametersAndBody(oldOp, newOp)) {
+                unchangedOperationCount++;
+            } else {
+                matches.add(new OperationPair(oldOp, newOp));
+            }
+        }
+        return matches;
+    }
+
+    private Map<String, List<String>> getKeysByUnqualifiedSignature(Set<String> keys, Map<String, UMLOperation> operations) {
+        Map<String, List<String>> keysBySignature = new HashMap<>();
+        for (String key : keys) {
+            UMLOperation operation = operations.get(key);
+            String signature = getOperationSignature(operation);
+            if (operation.getClassName() != null) {
+                signature = operation.getClassName() + "." + signature;
+            }
+            keysBySignature.computeIfAbsent(signature, s -> new ArrayList<>()).add(key);
+        }
+        return keysBySignature;
+    }
+
+    private void addGroup(List<OperationGroup> groups, List<UMLOperation> oldGroupOperations,
+                          List<UMLOperation> newGroupOperations, Set<String> unmatchedOldKeys, Set<String> unmatchedNewKeys) {
+        Set<String> oldKeys = getUnmatchedKeys(oldGroupOperations, unmatchedOldKeys);
+        Set<String> newKeys = getUnmatchedKeys(newGroupOperations, unmatchedNewKeys);
+        if (!oldKeys.isEmpty() && !newKeys.isEmpty()) {
+            groups.add(new OperationGroup(oldKeys, newKeys));
+        }
+    }
+
+    /**
+     * Matches each old operation, in order, to the most similar unmatched new operation with a related name.
+     * Matched new keys are removed from unmatchedNewKeys. In parallel, the candidates are scored beforehand
+     * on the mapper pool.
+     */
+    private List<OperationPair> matchOperationsBasedOnBodySimilarity(Set<String> unmatchedOldKeys, Set<String> unmatchedNewKeys,
+                                                                     boolean parallel) {
+        // Names are normalized once, then each old operation only looks up the new ones with a related name
+        MethodNameIndex nameIndex = new MethodNameIndex(OperationThresholds.MAX_NAME_EDIT_DISTANCE);
+        for (String newKey : unmatchedNewKeys) {
+            nameIndex.add(normalizeMethodName(newOperations.get(newKey).getName()), newKey);
+        }
+        List<UMLOperation> oldOps = new ArrayList<>();
+        List<List<String>> relatedKeysOfOldOps = new ArrayList<>();
         for (String oldKey : unmatchedOldKeys) {
             UMLOperation oldOp = oldOperations.get(oldKey);
+            oldOps.add(oldOp);
+            relatedKeysOfOldOps.add(nameIndex.getRelatedKeys(normalizeMethodName(oldOp.getName())));
+        }
+
+        // Comparing every pair is quadratic, large sets of unmatched operations only compare
+        // each old operation to the new ones whose bodies look alike
+        OperationCandidateIndex candidateIndex = null;
+        if ((long) unmatchedOldKeys.size() * unmatchedNewKeys.size() >= CANDIDATE_INDEX_MIN_PAIRS) {
+            Map<String, UMLOperation> unmatchedNewOperations = new LinkedHashMap<>();
+            for (String newKey : unmatchedNewKeys) {
+                unmatchedNewOperations.put(newKey, newOperations.get(newKey));
+            }
+            candidateIndex = new OperationCandidateIndex(unmatchedNewOperations);
+        }
+
+        // Score the candidates of every old operation in parallel, against all the new operations
+        // unmatched so far. Scores below the threshold are not computed exactly, they never match.
+        OperationCandidateIndex index = candidateIndex;
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < oldOps.size(); i++) {
+            positions.add(i);
+        }
+        List<Map<String, Double>> scores = !parallel ? null : mapInParallel(positions, i -> {
+            Map<String, Double> candidateScores = new HashMap<>();
+            for (String newKey : getCandidateKeys(oldOps.get(i), new LinkedHashSet<>(relatedKeysOfOldOps.get(i)), index)) {
+                candidateScores.put(newKey, UMLOperationBodyMapper.bodyComparatorScore(oldOps.get(i), newOperations.get(newKey),
+                        OperationThresholds.BODY_SIMILARITY_THRESHOLD));
+            }
+            return candidateScores;
+        });
+
+        // The greedy selection then runs in order, each old operation taking its best unmatched candidate.
+        // With the candidate index, matched operations make room for new candidates, which are scored here,
+        // as are all the candidates when not in parallel.
+        List<OperationPair> matches = new ArrayList<>();
+        for (int i = 0; i < oldOps.size(); i++) {
+            UMLOperation oldOp = oldOps.get(i);
             UMLOperation bestMatch = null;
-            UMLOperationBodyMapper bestMapper = null;
             double maxSimilarity = 0.0;
 
-            for (String newKey : unmatchedNewKeys) {
+            // Skip new operations whose names are too different, and the ones already matched
+            Set<String> relatedKeys = new LinkedHashSet<>(relatedKeysOfOldOps.get(i));
+            relatedKeys.retainAll(unmatchedNewKeys);
+            for (String newKey : getCandidateKeys(oldOp, relatedKeys, candidateIndex)) {
                 UMLOperation newOp = newOperations.get(newKey);
 
-                // Skip if method names are too different
-                if (!areMethodNamesRelated(oldOp.getName(), newOp.getName())) {
-                    continue;
-                }
-
-                UMLOperationBodyMapper mapper = new UMLOperationBodyMapper(oldOp, newOp);
-                double similarity = mapper.bodyComparatorScore();
+                // Only score the bodies, candidates that cannot beat the best one are cut short
+                Double score = scores == null ? null : scores.get(i).get(newKey);
+                double minimumScore = Math.max(OperationThresholds.BODY_SIMILARITY_THRESHOLD, Math.nextUp(maxSimilarity));
+                double similarity = score != null ? score : UMLOperationBodyMapper.bodyComparatorScore(oldOp, newOp, minimumScore);
 
                 if (similarity > maxSimilarity && similarity >= OperationThresholds.BODY_SIMILARITY_THRESHOLD) {
                     maxSimilarity = similarity;
                     bestMatch = newOp;
-                    bestMapper = mapper;
                 }
             }
 
             if (bestMatch != null) {
-                operationBodyMappers.add(bestMapper);
+                matches.add(new OperationPair(oldOp, bestMatch));
                 unmatchedNewKeys.remove(getOperationKey(bestMatch));
             }
         }
+        return matches;
+    }
+
+    private static Collection<String> getCandidateKeys(UMLOperation oldOp, Set<String> relatedKeys,
+                                                       OperationCandidateIndex candidateIndex) {
+        return candidateIndex == null ? relatedKeys :
+                candidateIndex.getCandidates(oldOp, relatedKeys::contains, MAX_BODY_CANDIDATES);
     }
 
     private void detectRefactoringsFromMatches(List<Refactoring> refactorings) {
@@ -188,29 +527,6 @@ public class UMLModelDiff {
         }
     }
 
-    private boolean areMethodNamesRelated(String oldName, String newName) {
-        // Quick exact match check
-        if (oldName.equals(newName)) {
-            return true;
-        }
-
-        // Normalize names
-        String normalizedOld = normalizeMethodName(oldName);
-        String normalizedNew = normalizeMethodName(newName);
-
-        // Check various similarity conditions
-        boolean exactNormalizedMatch = normalizedOld.equals(normalizedNew);
-        boolean oldContainsNew = normalizedOld.contains(normalizedNew);
-        boolean newContainsOld = normalizedNew.contains(normalizedOld);
-        boolean closeEditDistance = getLevenshteinDistance(normalizedOld, normalizedNew)
-                <= OperationThresholds.MAX_NAME_EDIT_DISTANCE;
-
-        return exactNormalizedMatch ||
-                oldContainsNew ||
-                newContainsOld ||
-                closeEditDistance;
-    }
-
     /**
      * Constants for method name normalization patterns.
      * These patterns are used to standardize method names by removing common prefixes and suffixes.
@@ -241,10 +557,13 @@ public class UMLModelDiff {
                 "Helper"
         };
 
-        // Compiled patterns for better performance
         public static final String PREFIX_REGEX = "^(" + String.join("|", PREFIX_PATTERNS) + ")";
         public static final String SUFFIX_REGEX = "(" + String.join("|", SUFFIX_PATTERNS) + ")$";
 
+        // Compiled patterns for better performance
+        private static final Pattern PREFIX = Pattern.compile(PREFIX_REGEX);
+        private static final Pattern SUFFIX = Pattern.compile(SUFFIX_REGEX);
+
         private MethodNamePatterns() {
             // Prevent instantiation
         }
@@ -258,65 +577,9 @@ public class UMLModelDiff {
      * @return The normalized method name
      */
     private String normalizeMethodName(String name) {
-        return name
-                .replaceAll(MethodNamePatterns.PREFIX_REGEX, "")
-                .replaceAll(MethodNamePatterns.SUFFIX_REGEX, "")
-                .toLowerCase();
-    }
-
-
-    /**
-     * Calculates the Levenshtein distance between two strings.
-     * The Levenshtein distance is the minimum number of single-character edits
-     * required to change one string into another.
-     */
-    private int getLevenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        initializeFirstRow(dp, s2.length());
-        computeLevenshteinMatrix(dp, s1, s2);
-        return dp[s1.length()][s2.length()];
+        return normalizedMethodNames.computeIfAbsent(name, n -> {
+            String withoutPrefix = MethodNamePatterns.PREFIX.matcher(n).replaceAll("");
+            return MethodNamePatterns.SUFFIX.matcher(withoutPrefix).replaceAll("").toLowerCase();
+        });
     }
-
-    /**
-     * Initializes the first row and column of the distance matrix.
-     */
-    private void initializeFirstRow(int[][] dp, int length) {
-        // Initialize first row
-        for (int j = 0; j <= length; j++) {
-            dp[0][j] = j;
-        }
-    }
-
-    /**
-     * Computes the Levenshtein distance matrix.
-     */
-    private void computeLevenshteinMatrix(int[][] dp, String s1, String s2) {
-        for (int i = 1; i <= s1.length(); i++) {
-            // Initialize first column
-            dp[i][0] = i;
-
-            for (int j = 1; j <= s2.length(); j++) {
-                dp[i][j] = getMinimumEditDistance(
-                        dp, i, j,
-                        s1.charAt(i - 1) == s2.charAt(j - 1)
-                );
-            }
-        }
-    }
-
-    /**
-     * Calculates the minimum edit distance for a position in the matrix.
-     */
-    private int getMinimumEditDistance(int[][] dp, int i, int j, boolean charsMatch) {
-        // Cost of substitution
-        int substitutionCost = dp[i - 1][j - 1] + (charsMatch ? 0 : 1);
-
-        // Cost of insertion and deletion
-        int insertionCost = dp[i][j - 1] + 1;
-        int deletionCost = dp[i - 1][j] + 1;
-
-        // Return minimum of all operations
-        return Math.min(substitutionCost, Math.min(insertionCost, deletionCost));
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bit-parallel longest common subsequence of two id sequences, after Allison-Dix and Hyyrö.
+ * A row i of the LCS table is held as a bit vector over the statements of the second operation,
+ * a zero bit at j meaning that the table grows between columns j and j+1, so a row takes m/64
+ * words and is computed from the previous one with one addition per word. The value of any
+ * cell is recovered by counting bits, which lets the alignment be backtracked exactly as on
+ * the int table.
+ */
+public final class BitParallelLCS {
+    private final int[] symbols1;  // Index of each id of the first operation in positions2, -1 if absent
+    private final int[][] positions2;  // Positions of each id in the second operation
+    private final int columns;
+    private final int words;
+    private final long[] matchMask;  // Scratch mask of the positions matching the current row
+
+    public BitParallelLCS(int[] ids1, int[] ids2) {
+        Map<Integer, Integer> symbols = new HashMap<>();
+        int[] symbols2 = new int[ids2.length];
+        int[] counts = new int[ids2.length];
+        for (int j = 0; j < ids2.length; j++) {
+            int symbol = symbols.computeIfAbsent(ids2[j], id -> symbols.size());
+            symbols2[j] = symbol;
+            counts[symbol]++;
+        }
+        this.positions2 = new int[symbols.size()][];
+        for (int s = 0; s < positions2.length; s++) {
+            positions2[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int j = 0; j < ids2.length; j++) {
+            positions2[symbols2[j]][counts[symbols2[j]]++] = j;
+        }
+        this.symbols1 = new int[ids1.length];
+        for (int i = 0; i < ids1.length; i++) {
+            symbols1[i] = symbols.getOrDefault(ids1[i], -1);
+        }
+        this.columns = ids2.length;
+        this.words = (ids2.length + 63) >>> 6;
+        this.matchMask = new long[words];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Row 0 of the table, where every cell is 0
+     */
+    public long[] firstRow() {
+        long[] row = new long[words];
+        Arrays.fill(row, -1L);
+        return row;
+    }
+
+    /**
+     * Computes row i+1 of the table from row i, the two arrays must be distinct
+     */
+    public void nextRow(int i, long[] previous, long[] row) {
+        int symbol = symbols1[i];
+        if (symbol < 0) {
+            System.arraycopy(previous, 0, row, 0, words);
+            return;
+        }
+        int[] positions = positions2[symbol];
+        for (int j : positions) {
+            matchMask[j >>> 6] |= 1L << j;
+        }
+        long carry = 0;
+        for (int w = 0; w < words; w++) {
+            long v = previous[w];
+            long u = v & matchMask[w];
+            long sum = v + u;
+            boolean overflow = Long.compareUnsigned(sum, v) < 0;
+            long total = sum + carry;
+            carry = overflow || (carry != 0 && total == 0) ? 1 : 0;
+            row[w] = total | (v & ~matchMask[w]);
+        }
+        for (int j : positions) {
+            matchMask[j >>> 6] = 0;
+        }
+    }
+
+    /**
+     * Value of the cell of the given row at column j, for 0 <= j <= m
+     */
+    public int value(long[] row, int j) {
+        int ones = 0;
+        int fullWords = j >>> 6;
+        for (int w = 0; w < fullWords; w++) {
+            ones += Long.bitCount(row[w]);
+        }
+        int rest = j & 63;
+        if (rest != 0) {
+            ones += Long.bitCount(row[fullWords] & ((1L << rest) - 1));
+        }
+        return j - ones;
+    }
+
+    /**
+     * Whether the table grows between columns j and j+1 of the given row
+     */
+    public boolean grows(long[] row, int j) {
+        return (row[j >>> 6] & (1L << j)) == 0;
+    }
+}
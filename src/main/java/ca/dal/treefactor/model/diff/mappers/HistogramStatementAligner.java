@@ -0,0 +1,140 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aligns statements as git's histogram diff aligns lines.
+ * A region is split around the longest run of common statements that contains the statements
+ * occurring the least in the first operation, so that unique statements such as returns or
+ * calls anchor the alignment rather than repeated braces or blank statements. Regions whose
+ * common statements all occur too often are aligned with Myers' algorithm instead.
+ */
+public class HistogramStatementAligner implements StatementAligner {
+    // Statements occurring more often than this in a region are not used as anchors
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    @Override
+    public int[] align(int[] ids1, int[] ids2) {
+        int[] alignment = new int[ids1.length];
+        Arrays.fill(alignment, -1);
+
+        // Ids are made dense so that occurrences are counted in arrays, statements of the
+        // second operation that the first one does not have can never match and become -1
+        Map<Integer, Integer> denseIds = new HashMap<>();
+        int[] a = new int[ids1.length];
+        for (int i = 0; i < ids1.length; i++) {
+            a[i] = denseIds.computeIfAbsent(ids1[i], id -> denseIds.size());
+        }
+        int[] b = new int[ids2.length];
+        for (int j = 0; j < ids2.length; j++) {
+            b[j] = denseIds.getOrDefault(ids2[j], -1);
+        }
+        Occurrences occurrences = new Occurrences(denseIds.size(), a.length);
+
+        // Regions are processed from a stack, a recursion could be as deep as the operations are long
+        Deque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[]{0, a.length, 0, b.length});
+        while (!regions.isEmpty()) {
+            int[] region = regions.pop();
+            alignRegion(a, region[0], region[1], b, region[2], region[3], occurrences, alignment, regions);
+        }
+        return alignment;
+    }
+
+    // Occurrences of each id in the current region of the first operation, in increasing order
+    private static final class Occurrences {
+        private final int[] counts;
+        private final int[] first;
+        private final int[] next;
+
+        private Occurrences(int ids, int length) {
+            this.counts = new int[ids];
+            this.first = new int[ids];
+            this.next = new int[length];
+        }
+
+        private void index(int[] a, int left, int right) {
+            for (int i = right - 1; i >= left; i--) {
+                counts[a[i]]++;
+                next[i] = counts[a[i]] == 1 ? -1 : first[a[i]];
+                first[a[i]] = i;
+            }
+        }
+
+        private void clear(int[] a, int left, int right) {
+            for (int i = left; i < right; i++) {
+                counts[a[i]] = 0;
+            }
+        }
+    }
+
+    private void alignRegion(int[] a, int left, int right, int[] b, int top, int bottom,
+                             Occurrences occurrences, int[] alignment, Deque<int[]> regions) {
+        while (left < right && top < bottom && a[left] == b[top]) {
+            alignment[left++] = top++;
+        }
+        while (left < right && top < bottom && a[right - 1] == b[bottom - 1]) {
+            alignment[--right] = --bottom;
+        }
+        if (left == right || top == bottom) {
+            return;
+        }
+
+        occurrences.index(a, left, right);
+        int[] counts = occurrences.counts;
+        int bestCount = MAX_CHAIN_LENGTH + 1;
+        int bestLength = 0;
+        int best1 = -1;
+        int best2 = -1;
+        for (int j = top; j < bottom; ) {
+            int next = j + 1;
+            int id = b[j];
+            if (id >= 0 && counts[id] > 0 && counts[id] <= bestCount) {
+                for (int i = occurrences.first[id]; i >= 0; i = occurrences.next[i]) {
+                    // Extend the common run around (i, j) in both directions
+                    int start1 = i;
+                    int start2 = j;
+                    while (start1 > left && start2 > top && a[start1 - 1] == b[start2 - 1]) {
+                        start1--;
+                        start2--;
+                    }
+                    int end1 = i + 1;
+                    int end2 = j + 1;
+                    while (end1 < right && end2 < bottom && a[end1] == b[end2]) {
+                        end1++;
+                        end2++;
+                    }
+                    int count = MAX_CHAIN_LENGTH + 1;
+                    for (int k = start1; k < end1; k++) {
+                        count = Math.min(count, counts[a[k]]);
+                    }
+                    int length = end1 - start1;
+                    if (count < bestCount || (count == bestCount && length > bestLength)) {
+                        bestCount = count;
+                        bestLength = length;
+                        best1 = start1;
+                        best2 = start2;
+                    }
+                    next = Math.max(next, end2);
+                }
+            }
+            j = next;
+        }
+        occurrences.clear(a, left, right);
+
+        if (best1 < 0) {
+            // Only frequent statements are shared, or none at all
+            MyersStatementAligner.align(a, left, right, b, top, bottom, alignment);
+            return;
+        }
+        for (int k = 0; k < bestLength; k++) {
+            alignment[best1 + k] = best2 + k;
+        }
+        regions.push(new int[]{best1 + bestLength, right, best2 + bestLength, bottom});
+        regions.push(new int[]{left, best1, top, best2});
+    }
+}
@@ -0,0 +1,111 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+import java.util.Arrays;
+
+/**
+ * Aligns statements with a longest common subsequence table.
+ * When backtracking, a diagonal step is only taken if it extends the subsequence,
+ * and ties between skipping a statement of either operation skip the second one.
+ *
+ * The table rows are computed and kept as bit vectors, see BitParallelLCS, so a table takes
+ * one bit per cell and is filled in O(n·m/64) time. Tables larger than maxTableCells are not
+ * kept whole: only every k-th row is stored, k being about the square root of the number of
+ * rows, and the rows between two stored ones are recomputed while backtracking through them.
+ * This takes O(sqrt(n)·m) memory for about twice the time, and yields exactly the alignment
+ * of the full table.
+ */
+public class LCSStatementAligner implements StatementAligner {
+    public static final String MAX_TABLE_CELLS_PROPERTY = "treefactor.mapper.maxTableCells";
+
+    private static final long DEFAULT_MAX_TABLE_CELLS = 1L << 28;
+
+    private final long maxTableCells;
+
+    public LCSStatementAligner() {
+        this(Long.getLong(MAX_TABLE_CELLS_PROPERTY, DEFAULT_MAX_TABLE_CELLS));
+    }
+
+    public LCSStatementAligner(long maxTableCells) {
+        this.maxTableCells = maxTableCells;
+    }
+
+    @Override
+    public int[] align(int[] ids1, int[] ids2) {
+        int[] alignment = new int[ids1.length];
+        Arrays.fill(alignment, -1);
+        BitParallelLCS lcs = new BitParallelLCS(ids1, ids2);
+        if ((long) (ids1.length + 1) * (ids2.length + 1) <= maxTableCells) {
+            backtrack(lcs, computeLCSMatrix(lcs, ids1.length), 0, ids1.length, ids2.length, alignment);
+        } else {
+            alignWithCheckpoints(lcs, ids1.length, alignment);
+        }
+        return alignment;
+    }
+
+    private long[][] computeLCSMatrix(BitParallelLCS lcs, int rows) {
+        long[][] matrix = new long[rows + 1][];
+        matrix[0] = lcs.firstRow();
+        for (int i = 1; i <= rows; i++) {
+            matrix[i] = new long[matrix[0].length];
+            lcs.nextRow(i - 1, matrix[i-1], matrix[i]);
+        }
+        return matrix;
+    }
+
+    /**
+     * Backtracks from (i, j) while i is above firstRow, rows holds the table rows from firstRow on.
+     * Returns the column the path reaches.
+     */
+    private static int backtrack(BitParallelLCS lcs, long[][] rows, int firstRow, int i, int j, int[] alignment) {
+        while (i > firstRow && j > 0) {
+            long[] row = rows[i - firstRow];
+            long[] above = rows[i - 1 - firstRow];
+            int current = lcs.value(row, j);
+            int up = lcs.value(above, j);
+            int left = lcs.grows(row, j - 1) ? current - 1 : current;
+            if (current > Math.max(up, left)) {
+                alignment[i-1] = j-1;
+                i--;
+                j--;
+            } else if (up > left) {
+                i--;
+            } else {
+                j--;
+            }
+        }
+        return j;
+    }
+
+    private void alignWithCheckpoints(BitParallelLCS lcs, int n, int[] alignment) {
+        int step = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+
+        // Forward pass keeping rows 0, step, 2·step, ...
+        long[][] checkpoints = new long[n / step + 1][];
+        long[] previous = lcs.firstRow();
+        long[] row = new long[previous.length];
+        checkpoints[0] = previous.clone();
+        for (int i = 1; i <= n; i++) {
+            lcs.nextRow(i - 1, previous, row);
+            if (i % step == 0) {
+                checkpoints[i / step] = row.clone();
+            }
+            long[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+
+        // Backtrack one block of rows at a time, from the last one
+        long[][] block = new long[step + 1][previous.length];
+        int i = n;
+        int j = lcs.getColumns();
+        while (i > 0 && j > 0) {
+            int firstRow = ((i - 1) / step) * step;
+            System.arraycopy(checkpoints[firstRow / step], 0, block[0], 0, block[0].length);
+            for (int r = firstRow + 1; r <= i; r++) {
+                lcs.nextRow(r - 1, block[r - 1 - firstRow], block[r - firstRow]);
+            }
+            j = backtrack(lcs, block, firstRow, i, j, alignment);
+            i = firstRow;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+import java.util.Arrays;
+
+/**
+ * Aligns statements with Myers' O(ND) difference algorithm, in its linear space variant.
+ * Each region is split on its middle snake, found by searching for the shortest edit from
+ * both ends at once, and common prefixes and suffixes are aligned directly. The result is a
+ * longest common subsequence, though not necessarily the one the LCS table would pick.
+ */
+public class MyersStatementAligner implements StatementAligner {
+
+    @Override
+    public int[] align(int[] ids1, int[] ids2) {
+        int[] alignment = new int[ids1.length];
+        Arrays.fill(alignment, -1);
+        align(ids1, 0, ids1.length, ids2, 0, ids2.length, alignment);
+        return alignment;
+    }
+
+    /**
+     * Aligns the region [left, right) x [top, bottom)
+     */
+    static void align(int[] a, int left, int right, int[] b, int top, int bottom, int[] alignment) {
+        // Common prefix and suffix
+        while (left < right && top < bottom && a[left] == b[top]) {
+            alignment[left++] = top++;
+        }
+        while (left < right && top < bottom && a[right - 1] == b[bottom - 1]) {
+            alignment[--right] = --bottom;
+        }
+        if (left == right || top == bottom) {
+            return;
+        }
+        int[] snake = middleSnake(a, left, right, b, top, bottom);
+        align(a, left, snake[0], b, top, snake[1], alignment);
+        // A snake is at most one edit next to a diagonal, which the prefix and suffix cover
+        align(a, snake[0], snake[2], b, snake[1], snake[3], alignment);
+        align(a, snake[2], right, b, snake[3], bottom, alignment);
+    }
+
+    /**
+     * Returns the start and end points {x0, y0, x1, y1} of the middle snake of a region
+     * that has no common prefix or suffix
+     */
+    private static int[] middleSnake(int[] a, int left, int right, int[] b, int top, int bottom) {
+        int width = right - left;
+        int height = bottom - top;
+        int delta = width - height;
+        boolean odd = (delta & 1) != 0;
+        int max = (width + height + 1) / 2;
+        int offset = max + 1;
+        // Furthest x reached forward on each diagonal k = x - y, furthest y reached backward on each c = k - delta
+        int[] forward = new int[2 * max + 3];
+        int[] backward = new int[2 * max + 3];
+        forward[offset + 1] = left;
+        backward[offset + 1] = bottom;
+
+        for (int d = 0; d <= max; d++) {
+            for (int k = d; k >= -d; k -= 2) {
+                int px;
+                int x;
+                if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    px = x = forward[offset + k + 1];
+                } else {
+                    px = forward[offset + k - 1];
+                    x = px + 1;
+                }
+                int y = top + (x - left) - k;
+                int py = (d == 0 || x != px) ? y : y - 1;
+                while (x < right && y < bottom && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                int c = k - delta;
+                if (odd && c >= -(d - 1) && c <= d - 1 && y >= backward[offset + c]) {
+                    return new int[]{px, py, x, y};
+                }
+            }
+            for (int c = d; c >= -d; c -= 2) {
+                int py;
+                int y;
+                if (c == -d || (c != d && backward[offset + c - 1] > backward[offset + c + 1])) {
+                    py = y = backward[offset + c + 1];
+                } else {
+                    py = backward[offset + c - 1];
+                    y = py - 1;
+                }
+                int k = c + delta;
+                int x = left + (y - top) + k;
+                int px = (d == 0 || y != py) ? x : x + 1;
+                while (x > left && y > top && a[x - 1] == b[y - 1]) {
+                    x--;
+                    y--;
+                }
+                backward[offset + c] = y;
+                if (!odd && k >= -d && k <= d && x <= forward[offset + k]) {
+                    return new int[]{x, y, px, py};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake in a region of " + width + "x" + height);
+    }
+}
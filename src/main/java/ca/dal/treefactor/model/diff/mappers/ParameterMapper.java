@@ -69,11 +69,11 @@ public class ParameterMapper {
     }
 
     public Map<String, String> getParameterReplacements() {
-        return new HashMap<>(parameterReplacements);
+        return Collections.unmodifiableMap(parameterReplacements);
     }
 
     public List<Refactoring> getRefactorings() {
-        return new ArrayList<>(refactorings);
+        return Collections.unmodifiableList(refactorings);
     }
 
     /**
@@ -0,0 +1,65 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+/**
+ * Aligns the statements of two operations, given as the ids of a StatementNormalizer.
+ * An alignment pairs equal ids in order: for each statement of the first operation it gives
+ * the index of the statement of the second operation it is aligned with, or -1, and the
+ * aligned indices increase along both sequences.
+ *
+ * The aligner used by UMLOperationBodyMapper is chosen through the treefactor.mapper.aligner
+ * system property: lcs, myers, histogram or adaptive, the default.
+ */
+public interface StatementAligner {
+    String ALIGNER_PROPERTY = "treefactor.mapper.aligner";
+    // Largest table the adaptive aligner fills, larger inputs are aligned in O(ND)
+    int ADAPTIVE_MAX_TABLE_CELLS = 1 << 22;
+
+    int[] align(int[] ids1, int[] ids2);
+
+    /**
+     * Longest common subsequence from an O(n·m) table of bits, with the tie-breaking the mapper always used.
+     * Tables above treefactor.mapper.maxTableCells are not kept whole, see LCSStatementAligner.
+     */
+    static StatementAligner lcs() {
+        return new LCSStatementAligner();
+    }
+
+    /**
+     * Longest common subsequence in O((n+m)·D) time and linear space, D being the size of the edit
+     */
+    static StatementAligner myers() {
+        return new MyersStatementAligner();
+    }
+
+    /**
+     * Alignment anchored on the rarest statements, as in git's histogram diff
+     */
+    static StatementAligner histogram() {
+        return new HistogramStatementAligner();
+    }
+
+    /**
+     * Uses the LCS table for small inputs and Myers' algorithm for larger ones
+     */
+    static StatementAligner adaptive() {
+        StatementAligner table = lcs();
+        StatementAligner myers = myers();
+        return (ids1, ids2) -> (long) ids1.length * ids2.length <= ADAPTIVE_MAX_TABLE_CELLS ?
+                table.align(ids1, ids2) :
+                myers.align(ids1, ids2);
+    }
+
+    static StatementAligner fromSystemProperties() {
+        return byName(System.getProperty(ALIGNER_PROPERTY, "adaptive"));
+    }
+
+    static StatementAligner byName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "lcs" -> lcs();
+            case "myers" -> myers();
+            case "histogram" -> histogram();
+            case "adaptive" -> adaptive();
+            default -> throw new IllegalArgumentException("Unknown statement aligner: " + name);
+        };
+    }
+}
@@ -35,43 +35,6 @@ public class StatementMapper {
                 ));
             }
         }
-
-        // If statements match after parameter replacements, we're done
-        if (mappedStatement1.equals(statement2)) {
-            return;
-        }
-
-        // Otherwise look for other types of replacements
-        findMethodInvocationReplacements(mappedStatement1, statement2);
-        findVariableNameReplacements(mappedStatement1, statement2);
-        findLiteralReplacements(mappedStatement1, statement2);
-        findArgumentReplacements(mappedStatement1, statement2);
-    }
-
-    private void findMethodInvocationReplacements(String stmt1, String stmt2) {
-        // Match method calls: name(args)
-        Pattern methodPattern = Pattern.compile("\\b(\\w+)\\s*\\(([^)]*)\\)");
-        // Implementation would look for method name changes and argument changes
-    }
-
-    private void findVariableNameReplacements(String stmt1, String stmt2) {
-        // Match variable names: look for identifiers that differ
-        Pattern varPattern = Pattern.compile("\\b[a-zA-Z_]\\w*\\b");
-        // Implementation would look for variable name changes
-    }
-
-    private void findLiteralReplacements(String stmt1, String stmt2) {
-        // Match string literals: "..." or '...'
-        Pattern stringPattern = Pattern.compile("([\"'])(?:(?!\\1).)*\\1");
-        // Match number literals: digits with optional decimal point
-        Pattern numberPattern = Pattern.compile("\\b\\d*\\.?\\d+\\b");
-        // Implementation would look for literal value changes
-    }
-
-    private void findArgumentReplacements(String stmt1, String stmt2) {
-        // Look for method calls with different argument counts or ordering
-        Pattern argListPattern = Pattern.compile("\\((.*?)\\)");
-        // Implementation would analyze argument differences
     }
 
     public boolean match() {
@@ -90,17 +53,7 @@ public class StatementMapper {
     }
 
     public Set<Replacement> getReplacements() {
-        return new HashSet<>(replacements);
-    }
-
-    /**
-     * Normalize a statement for comparison
-     */
-    private String normalizeStatement(String statement) {
-        return statement.replaceAll("\\s+", " ")  // Normalize whitespace
-                .replaceAll("\\(\\s+", "(")  // Remove space after opening parenthesis
-                .replaceAll("\\s+\\)", ")")  // Remove space before closing parenthesis
-                .trim();
+        return Collections.unmodifiableSet(replacements);
     }
 
     /**
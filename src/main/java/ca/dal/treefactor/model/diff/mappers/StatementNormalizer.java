@@ -0,0 +1,146 @@
+package ca.dal.treefactor.model.diff.mappers;
+
+import ca.dal.treefactor.model.diff.mapping.*;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Statements of two operations, normalized once so that they are compared as ints.
+ * A statement of the first operation matches a statement of the second one when it equals it
+ * once the parameter renames are applied, which is what a StatementMapper checks for one pair.
+ * Here each rename is compiled once, applied once per statement of the first operation, and the
+ * resulting texts are interned into ids: two statements match exactly when their ids are equal.
+ */
+public final class StatementNormalizer {
+    private final String[] statements1;  // Trimmed
+    private final String[] statements2;
+    private final int[] ids1;
+    private final int[] ids2;
+    private final List<Set<Replacement>> replacements1;  // Renames applied to each statement of the first operation
+    private final int distinctStatements;
+
+    public StatementNormalizer(String[] statements1, String[] statements2, Map<String, String> parameterReplacements) {
+        this.statements1 = trim(statements1);
+        this.statements2 = trim(statements2);
+        this.ids1 = new int[statements1.length];
+        this.ids2 = new int[statements2.length];
+        this.replacements1 = new ArrayList<>(statements1.length);
+
+        Map<String, Pattern> patterns = new LinkedHashMap<>();
+        for (String parameterName : parameterReplacements.keySet()) {
+            patterns.put(parameterName, Pattern.compile("\\b" + Pattern.quote(parameterName) + "\\b"));
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < this.statements1.length; i++) {
+            Set<Replacement> replacements = findReplacements(this.statements1[i], parameterReplacements, patterns);
+            replacements1.add(replacements);
+            ids1[i] = intern(ids, applyReplacements(this.statements1[i], replacements, patterns));
+        }
+        for (int j = 0; j < this.statements2.length; j++) {
+            ids2[j] = intern(ids, this.statements2[j]);
+        }
+        this.distinctStatements = ids.size();
+    }
+
+    private static String[] trim(String[] statements) {
+        String[] trimmed = new String[statements.length];
+        for (int i = 0; i < statements.length; i++) {
+            trimmed[i] = statements[i].trim();
+        }
+        return trimmed;
+    }
+
+    private static int intern(Map<String, Integer> ids, String statement) {
+        Integer id = ids.get(statement);
+        if (id == null) {
+            id = ids.size();
+            ids.put(statement, id);
+        }
+        return id;
+    }
+
+    // Renames are applied in sequence, keeping the ones that changed the statement, as in StatementMapper
+    private static Set<Replacement> findReplacements(String statement, Map<String, String> parameterReplacements,
+                                                     Map<String, Pattern> patterns) {
+        Set<Replacement> replacements = Collections.emptySet();
+        String mappedStatement = statement;
+        for (Map.Entry<String, String> replacement : parameterReplacements.entrySet()) {
+            String before = mappedStatement;
+            mappedStatement = patterns.get(replacement.getKey()).matcher(mappedStatement).replaceAll(replacement.getValue());
+            if (!before.equals(mappedStatement)) {
+                if (replacements.isEmpty()) {
+                    replacements = new HashSet<>();
+                }
+                replacements.add(new Replacement(
+                        replacement.getKey(),
+                        replacement.getValue(),
+                        ReplacementType.PARAMETER_NAME
+                ));
+            }
+        }
+        return replacements;
+    }
+
+    // The kept renames are then applied to the original statement, in the order of the set
+    private static String applyReplacements(String statement, Set<Replacement> replacements, Map<String, Pattern> patterns) {
+        String result = statement;
+        for (Replacement replacement : replacements) {
+            result = patterns.get(replacement.getBefore()).matcher(result).replaceAll(replacement.getAfter());
+        }
+        return result;
+    }
+
+    public boolean matches(int i, int j) {
+        return ids1[i] == ids2[j];
+    }
+
+    /**
+     * Creates the mapping of two matching statements, as StatementMapper#createMapping would
+     */
+    public Optional<StatementMapping> createMapping(int i, int j) {
+        if (!matches(i, j)) {
+            return Optional.empty();
+        }
+        StatementMapping mapping = new StatementMapping(statements1[i], statements2[j]);
+        replacements1.get(i).forEach(mapping::addReplacement);
+        return Optional.of(mapping);
+    }
+
+    // Getters
+    public int getStatementCount1() {
+        return statements1.length;
+    }
+
+    public int getStatementCount2() {
+        return statements2.length;
+    }
+
+    public String getStatement1(int i) {
+        return statements1[i];
+    }
+
+    public String getStatement2(int j) {
+        return statements2[j];
+    }
+
+    /**
+     * Ids of the statements of the first operation, in order
+     */
+    public int[] getIds1() {
+        return ids1.clone();
+    }
+
+    /**
+     * Ids of the statements of the second operation, in order
+     */
+    public int[] getIds2() {
+        return ids2.clone();
+    }
+
+    /**
+     * Number of distinct ids, ids range from 0 to this value exclusive
+     */
+    public int getDistinctStatementCount() {
+        return distinctStatements;
+    }
+}
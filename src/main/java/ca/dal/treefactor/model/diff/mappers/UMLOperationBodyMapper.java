@@ -8,17 +8,31 @@ import ca.dal.treefactor.model.diff.refactoring.*;
 import java.util.*;
 
 public class UMLOperationBodyMapper {
+    private static final StatementAligner DEFAULT_ALIGNER = StatementAligner.fromSystemProperties();
+
     private final UMLOperation operation1;
     private final UMLOperation operation2;
     private final List<StatementMapping> mappings;
     private final ParameterMapper parameterMapper;
+    private final Map<String, String> parameterReplacements;
+    private final StatementAligner aligner;
     private List<Refactoring> refactorings;
 
+    // Body statements, materialized once and only when both operations have a body
+    private String[] statements1;
+    private String[] statements2;
+
     public UMLOperationBodyMapper(UMLOperation operation1, UMLOperation operation2) {
+        this(operation1, operation2, DEFAULT_ALIGNER);
+    }
+
+    public UMLOperationBodyMapper(UMLOperation operation1, UMLOperation operation2, StatementAligner aligner) {
         this.operation1 = operation1;
         this.operation2 = operation2;
         this.mappings = new ArrayList<>();
         this.parameterMapper = new ParameterMapper(operation1, operation2);
+        this.parameterReplacements = parameterMapper.getParameterReplacements();
+        this.aligner = aligner;
         this.refactorings = new ArrayList<>();
         mapOperations();
     }
@@ -28,7 +42,9 @@ public class UMLOperationBodyMapper {
         refactorings.addAll(parameterMapper.getRefactorings());
 
         // Then map statements using parameter mapping information
-        if (operation1.getBody() != null && operation2.getBody() != null) {
+        if (operation1.hasBody() && operation2.hasBody()) {
+            statements1 = operation1.getOperationBody().getStatements();
+            statements2 = operation2.getOperationBody().getStatements();
             mapStatements();
         }
 
@@ -37,107 +53,50 @@ public class UMLOperationBodyMapper {
     }
 
     private void mapStatements() {
-        String[] statements1 = operation1.getBody().split("\n");
-        String[] statements2 = operation2.getBody().split("\n");
-
-        // Using LCS (Longest Common Subsequence) to match statements in order
-        int[][] lcsMatrix = computeLCSMatrix(statements1, statements2);
-        List<StatementMapping> orderedMappings = extractMappingsFromLCS(lcsMatrix, statements1, statements2);
-        mappings.addAll(orderedMappings);
-
-        // Try to match remaining statements
-        matchRemainingStatements(statements1, statements2);
-    }
-
-    private int[][] computeLCSMatrix(String[] statements1, String[] statements2) {
-        int[][] matrix = new int[statements1.length + 1][statements2.length + 1];
-
-        for (int i = 1; i <= statements1.length; i++) {
-            for (int j = 1; j <= statements2.length; j++) {
-                StatementMapper mapper = new StatementMapper(
-                        statements1[i-1].trim(),
-                        statements2[j-1].trim(),
-                        parameterMapper.getParameterReplacements()
-                );
-
-                if (mapper.match()) {
-                    matrix[i][j] = matrix[i-1][j-1] + 1;
-                } else {
-                    matrix[i][j] = Math.max(matrix[i-1][j], matrix[i][j-1]);
-                }
-            }
-        }
-        return matrix;
-    }
-
-    private List<StatementMapping> extractMappingsFromLCS(int[][] matrix, String[] statements1, String[] statements2) {
-        List<StatementMapping> result = new ArrayList<>();
-        int i = statements1.length;
-        int j = statements2.length;
-
-        while (i > 0 && j > 0) {
-            if (matrix[i][j] > Math.max(matrix[i-1][j], matrix[i][j-1])) {
-                StatementMapper mapper = new StatementMapper(
-                        statements1[i-1].trim(),
-                        statements2[j-1].trim(),
-                        parameterMapper.getParameterReplacements()
-                );
-
-                mapper.createMapping().ifPresent(result::add);
-                i--;
-                j--;
-            } else if (matrix[i-1][j] > matrix[i][j-1]) {
-                i--;
-            } else {
-                j--;
+        // Statements are normalized once, the alignment then only compares ids
+        StatementNormalizer normalizer = new StatementNormalizer(statements1, statements2, parameterReplacements);
+
+        // Match statements in order, by default as a longest common subsequence
+        int[] alignment = aligner.align(normalizer.getIds1(), normalizer.getIds2());
+        for (int i = 0; i < alignment.length; i++) {
+            if (alignment[i] >= 0) {
+                normalizer.createMapping(i, alignment[i]).ifPresent(mappings::add);
             }
         }
 
-        Collections.reverse(result);
-        return result;
+        // Try to match remaining statements
+        matchRemainingStatements(normalizer);
     }
 
-    // Inside the matchRemainingStatements method, change:
-    private void matchRemainingStatements(String[] statements1, String[] statements2) {
-        final Set<Integer> mapped1 = getMappedIndices(statements1, true);
-        final Set<Integer> mapped2 = getMappedIndices(statements2, false);
-
-        for (int i = 0; i < statements1.length; i++) {
-            if (mapped1.contains(i)) continue;
+    private void matchRemainingStatements(StatementNormalizer normalizer) {
+        boolean[] mapped1 = getMappedIndices(normalizer, true);
+        boolean[] mapped2 = getMappedIndices(normalizer, false);
 
-            final int iCopy = i;  // Create a final copy for the lambda
+        for (int i = 0; i < mapped1.length; i++) {
+            if (mapped1[i]) continue;
 
-            for (int j = 0; j < statements2.length; j++) {
-                if (mapped2.contains(j)) continue;
+            for (int j = 0; j < mapped2.length; j++) {
+                if (mapped2[j] || !normalizer.matches(i, j)) continue;
 
-                final int jCopy = j;  // Create a final copy for the lambda
-
-                StatementMapper mapper = new StatementMapper(
-                        statements1[iCopy].trim(),
-                        statements2[jCopy].trim(),
-                        parameterMapper.getParameterReplacements()
-                );
-
-                mapper.createMapping().ifPresent(mapping -> {
-                    mappings.add(mapping);
-                    mapped1.add(iCopy);
-                    mapped2.add(jCopy);
-                });
+                // A statement of operation1 may be mapped to several equal statements of operation2
+                normalizer.createMapping(i, j).ifPresent(mappings::add);
+                mapped1[i] = true;
+                mapped2[j] = true;
             }
         }
     }
 
-    // And in the getMappedIndices method:
-    private Set<Integer> getMappedIndices(final String[] statements, final boolean isFromOperation1) {
-        final Set<Integer> indices = new HashSet<>();
-        for (int i = 0; i < statements.length; i++) {
-            final int iCopy = i;  // Create a final copy for the lambda
-            mappings.forEach(mapping -> {
-                String statement = isFromOperation1 ? mapping.getStatement1() : mapping.getStatement2();
-                if (statements[iCopy].trim().equals(statement)) {
-                    indices.add(iCopy);
-                }
-            });
+    // A statement is mapped when a mapping has the same text, repeated statements included
+    private boolean[] getMappedIndices(StatementNormalizer normalizer, boolean isFromOperation1) {
+        Set<String> mappedStatements = new HashSet<>();
+        for (StatementMapping mapping : mappings) {
+            mappedStatements.add(isFromOperation1 ? mapping.getStatement1() : mapping.getStatement2());
+        }
+        int count = isFromOperation1 ? normalizer.getStatementCount1() : normalizer.getStatementCount2();
+        boolean[] indices = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            String statement = isFromOperation1 ? normalizer.getStatement1(i) : normalizer.getStatement2(i);
+            indices[i] = mappedStatements.contains(statement);
         }
         return indices;
     }
@@ -163,23 +122,83 @@ public class UMLOperationBodyMapper {
     }
 
     public double bodyComparatorScore() {
-        if (operation1.getBody() == null || operation2.getBody() == null) {
+        if (statements1 == null || statements2 == null) {
             return 0.0;
         }
 
-        String[] statements1 = operation1.getBody().split("\n");
-        String[] statements2 = operation2.getBody().split("\n");
         int maxStatements = Math.max(statements1.length, statements2.length);
 
         return maxStatements == 0 ? 0.0 : (double) mappings.size() / maxStatements;
     }
 
+    /**
+     * The bodyComparatorScore of a mapper of the two operations, computed without building the mappings
+     * or looking for refactorings. Statements of operation2 that no statement of operation1 normalizes to
+     * can never be mapped, so when the other ones are too few to reach minimumScore the bodies are not
+     * aligned and 0.0 is returned.
+     */
+    public static double bodyComparatorScore(UMLOperation operation1, UMLOperation operation2, double minimumScore) {
+        if (!operation1.hasBody() || !operation2.hasBody()) {
+            return 0.0;
+        }
+        String[] statements1 = operation1.getOperationBody().getStatements();
+        String[] statements2 = operation2.getOperationBody().getStatements();
+        int maxStatements = Math.max(statements1.length, statements2.length);
+        if (maxStatements == 0) {
+            return 0.0;
+        }
+
+        Map<String, String> parameterReplacements = new ParameterMapper(operation1, operation2).getParameterReplacements();
+        StatementNormalizer normalizer = new StatementNormalizer(statements1, statements2, parameterReplacements);
+        int[] ids1 = normalizer.getIds1();
+        int[] ids2 = normalizer.getIds2();
+
+        // Every mapping maps a distinct statement of operation2
+        boolean[] inOperation1 = new boolean[normalizer.getDistinctStatementCount()];
+        for (int id : ids1) {
+            inOperation1[id] = true;
+        }
+        int mappable = 0;
+        for (int id : ids2) {
+            if (inOperation1[id]) mappable++;
+        }
+        if ((double) mappable / maxStatements < minimumScore) {
+            return 0.0;
+        }
+
+        // Count the aligned statements, then the remaining ones matchRemainingStatements would map:
+        // each unmapped statement of operation2 equal to some unmapped statement of operation1
+        int[] alignment = DEFAULT_ALIGNER.align(ids1, ids2);
+        Set<String> mappedStatements1 = new HashSet<>();
+        Set<String> mappedStatements2 = new HashSet<>();
+        int mappingCount = 0;
+        for (int i = 0; i < alignment.length; i++) {
+            if (alignment[i] >= 0) {
+                mappedStatements1.add(normalizer.getStatement1(i));
+                mappedStatements2.add(normalizer.getStatement2(alignment[i]));
+                mappingCount++;
+            }
+        }
+        boolean[] unmappedInOperation1 = new boolean[inOperation1.length];
+        for (int i = 0; i < ids1.length; i++) {
+            if (!mappedStatements1.contains(normalizer.getStatement1(i))) {
+                unmappedInOperation1[ids1[i]] = true;
+            }
+        }
+        for (int j = 0; j < ids2.length; j++) {
+            if (unmappedInOperation1[ids2[j]] && !mappedStatements2.contains(normalizer.getStatement2(j))) {
+                mappingCount++;
+            }
+        }
+        return (double) mappingCount / maxStatements;
+    }
+
     public List<Refactoring> getRefactorings() {
-        return new ArrayList<>(refactorings);
+        return Collections.unmodifiableList(refactorings);
     }
 
     public List<StatementMapping> getMappings() {
-        return new ArrayList<>(mappings);
+        return Collections.unmodifiableList(mappings);
     }
 
     public UMLOperation getOperation1() {
@@ -27,7 +27,7 @@ public class StatementMapping {
     }
 
     public Set<Replacement> getReplacements() {
-        return new HashSet<>(replacements);
+        return Collections.unmodifiableSet(replacements);
     }
 
     @Override
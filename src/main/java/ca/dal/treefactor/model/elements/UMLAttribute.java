@@ -11,8 +11,8 @@ public class UMLAttribute {
     private String className;  // The class this attribute belongs to
 
     // Documentation and metadata
-    private final List<UMLComment> comments;
-    private final List<UMLAnnotation> annotations;
+    private List<UMLComment> comments;
+    private List<UMLAnnotation> annotations;
 
     // Modifiers
     private Visibility visibility;
@@ -26,6 +26,9 @@ public class UMLAttribute {
     // Value
     private String initialValue;
 
+    // Set once the element is part of a model, its collections are then read-only
+    private boolean frozen;
+
     public UMLAttribute(String name, UMLType type, LocationInfo locationInfo) {
         this.name = name;
         this.type = type;
@@ -37,32 +40,60 @@ public class UMLAttribute {
 
     // Comment management
     public void addComment(UMLComment comment) {
+        checkNotFrozen();
         if (!comments.contains(comment)) {
             comments.add(comment);
         }
     }
 
     public void removeComment(UMLComment comment) {
+        checkNotFrozen();
         comments.remove(comment);
     }
 
     public List<UMLComment> getComments() {
-        return new ArrayList<>(comments);
+        return frozen ? comments : Collections.unmodifiableList(comments);
     }
 
     // Annotation management
     public void addAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         if (!annotations.contains(annotation)) {
             annotations.add(annotation);
         }
     }
 
     public void removeAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         annotations.remove(annotation);
     }
 
     public List<UMLAnnotation> getAnnotations() {
-        return new ArrayList<>(annotations);
+        return frozen ? annotations : Collections.unmodifiableList(annotations);
+    }
+
+    // Freezing
+    /**
+     * Makes the collections of this attribute read-only, trimmed into immutable lists.
+     * Scalar properties such as the initial value stay settable: a visitor may complete them
+     * after the class was built, e.g. for a C++ static member defined outside of its class.
+     */
+    public void freeze() {
+        if (!frozen) {
+            comments = List.copyOf(comments);
+            annotations = List.copyOf(annotations);
+            frozen = true;
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify frozen attribute " + name);
+        }
     }
 
     // Basic getters and setters
@@ -8,12 +8,12 @@ public class UMLClass {
     private final String packageName;
     private final String name;
     private final LocationInfo locationInfo;
-    private final List<UMLOperation> operations;
-    private final List<UMLAttribute> attributes;
-    private final List<UMLComment> comments;
-    private final List<UMLAnnotation> annotations;
-    private final List<String> superclasses;
-    private final List<String> interfaces;
+    private List<UMLOperation> operations;
+    private List<UMLAttribute> attributes;
+    private List<UMLComment> comments;
+    private List<UMLAnnotation> annotations;
+    private List<String> superclasses;
+    private List<String> interfaces;
 
     // Class properties
     private Visibility visibility;
@@ -26,6 +26,13 @@ public class UMLClass {
     private boolean isInnerClass;
     private boolean isTemplate;  // For C++ templates
 
+    // Structural hash of the definition, 0 when unknown
+    private long structuralHash;
+
+    // Set once the element is part of a model, its collections are then read-only
+    private boolean frozen;
+    private int hash;  // Computed on first use, the hashed fields never change
+
     // Constructor
     public UMLClass(String packageName, String name, LocationInfo locationInfo) {
         this.packageName = packageName;
@@ -42,6 +49,7 @@ public class UMLClass {
 
     // Operation management
     public void addOperation(UMLOperation operation) {
+        checkNotFrozen();
         if (!operations.contains(operation)) {
             operation.setClassName(name);
             operations.add(operation);
@@ -50,11 +58,12 @@ public class UMLClass {
     }
 
     public void removeOperation(UMLOperation operation) {
+        checkNotFrozen();
         operations.remove(operation);
     }
 
     public List<UMLOperation> getOperations() {
-        return new ArrayList<>(operations);
+        return frozen ? operations : Collections.unmodifiableList(operations);
     }
 
     public Optional<UMLOperation> getOperation(String operationName) {
@@ -65,6 +74,7 @@ public class UMLClass {
 
     // Attribute management
     public void addAttribute(UMLAttribute attribute) {
+        checkNotFrozen();
         if (!attributes.contains(attribute)) {
             attribute.setClassName(name);
             attributes.add(attribute);
@@ -72,11 +82,12 @@ public class UMLClass {
     }
 
     public void removeAttribute(UMLAttribute attribute) {
+        checkNotFrozen();
         attributes.remove(attribute);
     }
 
     public List<UMLAttribute> getAttributes() {
-        return new ArrayList<>(attributes);
+        return frozen ? attributes : Collections.unmodifiableList(attributes);
     }
 
     public Optional<UMLAttribute> getAttribute(String attributeName) {
@@ -87,32 +98,36 @@ public class UMLClass {
 
     // Comment management
     public void addComment(UMLComment comment) {
+        checkNotFrozen();
         if (!comments.contains(comment)) {
             comments.add(comment);
         }
     }
 
     public void removeComment(UMLComment comment) {
+        checkNotFrozen();
         comments.remove(comment);
     }
 
     public List<UMLComment> getComments() {
-        return new ArrayList<>(comments);
+        return frozen ? comments : Collections.unmodifiableList(comments);
     }
 
     // Annotation management
     public void addAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         if (!annotations.contains(annotation)) {
             annotations.add(annotation);
         }
     }
 
     public void removeAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         annotations.remove(annotation);
     }
 
     public List<UMLAnnotation> getAnnotations() {
-        return new ArrayList<>(annotations);
+        return frozen ? annotations : Collections.unmodifiableList(annotations);
     }
 
     public boolean hasAnnotation(String annotationName) {
@@ -122,31 +137,66 @@ public class UMLClass {
 
     // Inheritance management
     public void addSuperclass(String superclass) {
+        checkNotFrozen();
         if (!superclasses.contains(superclass)) {
             superclasses.add(superclass);
         }
     }
 
     public void removeSuperclass(String superclass) {
+        checkNotFrozen();
         superclasses.remove(superclass);
     }
 
     public List<String> getSuperclasses() {
-        return new ArrayList<>(superclasses);
+        return frozen ? superclasses : Collections.unmodifiableList(superclasses);
     }
 
     public void addInterface(String interfaceName) {
+        checkNotFrozen();
         if (!interfaces.contains(interfaceName)) {
             interfaces.add(interfaceName);
         }
     }
 
     public void removeInterface(String interfaceName) {
+        checkNotFrozen();
         interfaces.remove(interfaceName);
     }
 
     public List<String> getInterfaces() {
-        return new ArrayList<>(interfaces);
+        return frozen ? interfaces : Collections.unmodifiableList(interfaces);
+    }
+
+    // Freezing
+    /**
+     * Makes the collections of this class read-only, along with those of its members.
+     * They are trimmed into immutable lists. Scalar properties such as the visibility or the
+     * modifiers stay settable.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        operations.forEach(UMLOperation::freeze);
+        attributes.forEach(UMLAttribute::freeze);
+        operations = List.copyOf(operations);
+        attributes = List.copyOf(attributes);
+        comments = List.copyOf(comments);
+        annotations = List.copyOf(annotations);
+        superclasses = List.copyOf(superclasses);
+        interfaces = List.copyOf(interfaces);
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify frozen class " + name);
+        }
     }
 
     // Getters and setters
@@ -234,6 +284,21 @@ public class UMLClass {
         this.isTemplate = isTemplate;
     }
 
+    public long getStructuralHash() {
+        return structuralHash;
+    }
+
+    public void setStructuralHash(long structuralHash) {
+        this.structuralHash = structuralHash;
+    }
+
+    /**
+     * Checks whether both definitions are known to be identical up to whitespace
+     */
+    public boolean hasSameStructure(UMLClass other) {
+        return structuralHash != 0 && structuralHash == other.structuralHash;
+    }
+
     // Utility methods
     public String getFullyQualifiedName() {
         return packageName.isEmpty() ? name : packageName + "." + name;
@@ -335,7 +400,12 @@ public class UMLClass {
 
     @Override
     public int hashCode() {
-        return Objects.hash(packageName, name, locationInfo);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(packageName, name, locationInfo);
+            hash = h;
+        }
+        return h;
     }
 
     // Builder pattern
@@ -4,6 +4,19 @@ import ca.dal.treefactor.model.core.*;
 import java.util.*;
 
 public class UMLOperation {
+    // Modifier flags
+    private static final int STATIC = 1;
+    private static final int ABSTRACT = 1 << 1;
+    private static final int FINAL = 1 << 2;
+    private static final int CONSTRUCTOR = 1 << 3;
+    private static final int DESTRUCTOR = 1 << 4;   // For C++
+    private static final int ASYNC = 1 << 5;        // For JavaScript/Python
+    private static final int GENERATOR = 1 << 6;    // For JavaScript/Python
+    private static final int VIRTUAL = 1 << 7;      // For C++
+    private static final int CONST = 1 << 8;        // For C++
+    private static final int INLINE = 1 << 9;       // For C++
+    private static final int NOEXCEPT = 1 << 10;    // For C++
+
     // Core attributes
     private final String name;
     private final LocationInfo locationInfo;
@@ -11,28 +24,25 @@ public class UMLOperation {
 
     // Type information
     private UMLType returnType;
-    private final List<UMLParameter> parameters;
+    private List<UMLParameter> parameters;
 
     // Documentation and metadata
-    private final List<UMLComment> comments;
-    private final List<UMLAnnotation> annotations;  // For decorators/attributes
+    private List<UMLComment> comments;
+    private List<UMLAnnotation> annotations;  // For decorators/attributes
 
-    // Modifiers
+    // Modifiers, boolean modifiers are packed into flags
     private Visibility visibility;
-    private boolean isStatic;
-    private boolean isAbstract;
-    private boolean isFinal;
-    private boolean isConstructor;
-    private boolean isDestructor;  // For C++
-    private boolean isAsync;       // For JavaScript/Python
-    private boolean isGenerator;   // For JavaScript/Python
-    private boolean isVirtual;     // For C++
-    private boolean isConst;       // For C++
-    private boolean isInline;      // For C++
-    private boolean isNoexcept;    // For C++
-
-    // Method body
-    private String body;
+    private int flags;
+
+    // Method body, materialized lazily from its source
+    private OperationBody body;
+
+    // Structural hash of the definition, 0 when unknown
+    private long structuralHash;
+
+    // Set once the element is part of a model, its collections are then read-only
+    private boolean frozen;
+    private int hash;  // Cached once frozen, 0 until computed
 
     public UMLOperation(String name, LocationInfo locationInfo) {
         this.name = name;
@@ -45,15 +55,17 @@ public class UMLOperation {
 
     // Parameter management
     public void addParameter(UMLParameter parameter) {
+        checkNotFrozen();
         parameters.add(parameter);
     }
 
     public void removeParameter(UMLParameter parameter) {
+        checkNotFrozen();
         parameters.remove(parameter);
     }
 
     public List<UMLParameter> getParameters() {
-        return new ArrayList<>(parameters);
+        return frozen ? parameters : Collections.unmodifiableList(parameters);
     }
 
     public Optional<UMLParameter> getParameter(String paramName) {
@@ -64,32 +76,36 @@ public class UMLOperation {
 
     // Documentation management
     public void addComment(UMLComment comment) {
+        checkNotFrozen();
         if (!comments.contains(comment)) {
             comments.add(comment);
         }
     }
 
     public void removeComment(UMLComment comment) {
+        checkNotFrozen();
         comments.remove(comment);
     }
 
     public List<UMLComment> getComments() {
-        return new ArrayList<>(comments);
+        return frozen ? comments : Collections.unmodifiableList(comments);
     }
 
     // Annotation/Decorator management
     public void addAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         if (!annotations.contains(annotation)) {
             annotations.add(annotation);
         }
     }
 
     public void removeAnnotation(UMLAnnotation annotation) {
+        checkNotFrozen();
         annotations.remove(annotation);
     }
 
     public List<UMLAnnotation> getAnnotations() {
-        return new ArrayList<>(annotations);
+        return frozen ? annotations : Collections.unmodifiableList(annotations);
     }
 
     public boolean hasAnnotation(String annotationName) {
@@ -97,6 +113,33 @@ public class UMLOperation {
                 .anyMatch(a -> a.getName().equals(annotationName));
     }
 
+    // Freezing
+    /**
+     * Makes the collections of this operation read-only.
+     * They are trimmed into immutable lists, and the hash code is cached from then on.
+     * Scalar properties such as the modifiers or the body stay settable.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        parameters.forEach(UMLParameter::freeze);
+        parameters = List.copyOf(parameters);
+        comments = List.copyOf(comments);
+        annotations = List.copyOf(annotations);
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify frozen operation " + name);
+        }
+    }
+
     // Getters and setters
     public String getName() {
         return name;
@@ -111,6 +154,7 @@ public class UMLOperation {
     }
 
     public void setClassName(String className) {
+        checkNotFrozen();  // The class name is part of the cached hash code
         this.className = className;
     }
 
@@ -123,13 +167,40 @@ public class UMLOperation {
     }
 
     public String getBody() {
+        return body != null ? body.getText() : null;
+    }
+
+    public OperationBody getOperationBody() {
         return body;
     }
 
+    public boolean hasBody() {
+        return body != null;
+    }
+
     public void setBody(String body) {
+        this.body = body != null ? OperationBody.of(body) : null;
+    }
+
+    public void setBody(OperationBody body) {
         this.body = body;
     }
 
+    public long getStructuralHash() {
+        return structuralHash;
+    }
+
+    public void setStructuralHash(long structuralHash) {
+        this.structuralHash = structuralHash;
+    }
+
+    /**
+     * Checks whether both definitions are known to be identical up to whitespace
+     */
+    public boolean hasSameStructure(UMLOperation other) {
+        return structuralHash != 0 && structuralHash == other.structuralHash;
+    }
+
     // Modifier getters and setters
     public Visibility getVisibility() {
         return visibility;
@@ -140,100 +211,108 @@ public class UMLOperation {
     }
 
     public boolean isStatic() {
-        return isStatic;
+        return hasFlag(STATIC);
     }
 
     public void setStatic(boolean isStatic) {
-        this.isStatic = isStatic;
+        setFlag(STATIC, isStatic);
     }
 
     public boolean isAbstract() {
-        return isAbstract;
+        return hasFlag(ABSTRACT);
     }
 
     public void setAbstract(boolean isAbstract) {
-        this.isAbstract = isAbstract;
+        setFlag(ABSTRACT, isAbstract);
     }
 
     public boolean isFinal() {
-        return isFinal;
+        return hasFlag(FINAL);
     }
 
     public void setFinal(boolean isFinal) {
-        this.isFinal = isFinal;
+        setFlag(FINAL, isFinal);
     }
 
     public boolean isConstructor() {
-        return isConstructor;
+        return hasFlag(CONSTRUCTOR);
     }
 
     public void setConstructor(boolean isConstructor) {
-        this.isConstructor = isConstructor;
+        setFlag(CONSTRUCTOR, isConstructor);
     }
 
     public boolean isDestructor() {
-        return isDestructor;
+        return hasFlag(DESTRUCTOR);
     }
 
     public void setDestructor(boolean isDestructor) {
-        this.isDestructor = isDestructor;
+        setFlag(DESTRUCTOR, isDestructor);
     }
 
     public boolean isAsync() {
-        return isAsync;
+        return hasFlag(ASYNC);
     }
 
     public void setAsync(boolean isAsync) {
-        this.isAsync = isAsync;
+        setFlag(ASYNC, isAsync);
     }
 
     public boolean isGenerator() {
-        return isGenerator;
+        return hasFlag(GENERATOR);
     }
 
     public void setGenerator(boolean isGenerator) {
-        this.isGenerator = isGenerator;
+        setFlag(GENERATOR, isGenerator);
     }
 
     public boolean isVirtual() {
-        return isVirtual;
+        return hasFlag(VIRTUAL);
     }
 
     public void setVirtual(boolean isVirtual) {
-        this.isVirtual = isVirtual;
+        setFlag(VIRTUAL, isVirtual);
     }
 
     public boolean isConst() {
-        return isConst;
+        return hasFlag(CONST);
     }
 
     public void setConst(boolean isConst) {
-        this.isConst = isConst;
+        setFlag(CONST, isConst);
     }
 
     public boolean isInline() {
-        return isInline;
+        return hasFlag(INLINE);
     }
 
     public void setInline(boolean isInline) {
-        this.isInline = isInline;
+        setFlag(INLINE, isInline);
     }
 
     public boolean isNoexcept() {
-        return isNoexcept;
+        return hasFlag(NOEXCEPT);
     }
 
     public void setNoexcept(boolean isNoexcept) {
-        this.isNoexcept = isNoexcept;
+        setFlag(NOEXCEPT, isNoexcept);
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+        flags = value ? flags | flag : flags & ~flag;
     }
 
     // Utility methods
     public boolean isInstanceMethod() {
-        return !isStatic && className != null;
+        return !isStatic() && className != null;
     }
 
     public boolean isClassMethod() {
-        return isStatic && className != null;
+        return isStatic() && className != null;
     }
 
     public boolean isStandaloneFunction() {
@@ -252,14 +331,14 @@ public class UMLOperation {
         if (visibility != Visibility.DEFAULT) {
             sb.append(visibility.toString().toLowerCase()).append(" ");
         }
-        if (isStatic) sb.append("static ");
-        if (isAbstract) sb.append("abstract ");
-        if (isFinal) sb.append("final ");
-        if (isVirtual) sb.append("virtual ");
-        if (isAsync) sb.append("async ");
+        if (isStatic()) sb.append("static ");
+        if (isAbstract()) sb.append("abstract ");
+        if (isFinal()) sb.append("final ");
+        if (isVirtual()) sb.append("virtual ");
+        if (isAsync()) sb.append("async ");
 
         // Add return type if not constructor
-        if (!isConstructor && returnType != null) {
+        if (!isConstructor() && returnType != null) {
             sb.append(returnType.toString()).append(" ");
         }
 
@@ -271,11 +350,11 @@ public class UMLOperation {
         }
         sb.append(")");
 
-        if (isInline) sb.append("inline ");
+        if (isInline()) sb.append("inline ");
 
         // Add const qualifier for C++
-        if (isConst) sb.append(" const");
-        if (isNoexcept) sb.append(" noexcept");
+        if (isConst()) sb.append(" const");
+        if (isNoexcept()) sb.append(" noexcept");
 
         return sb.toString();
     }
@@ -291,6 +370,9 @@ public class UMLOperation {
         if (o == null || getClass() != o.getClass()) return false;
 
         UMLOperation that = (UMLOperation) o;
+        if (frozen && that.frozen && hashCode() != that.hashCode()) {
+            return false;
+        }
         return Objects.equals(name, that.name) &&
                 Objects.equals(className, that.className) &&
                 Objects.equals(parameters, that.parameters) &&
@@ -299,7 +381,14 @@ public class UMLOperation {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, className, parameters, locationInfo);
+        if (frozen && hash != 0) {
+            return hash;
+        }
+        int h = Objects.hash(name, className, parameters, locationInfo);
+        if (frozen) {
+            hash = h;
+        }
+        return h;
     }
 
     // Builder pattern for easier construction
@@ -320,7 +409,8 @@ public class UMLOperation {
         private boolean isConst;
         private boolean isInline;
         private boolean isNoexcept;
-        private String body;
+        private OperationBody body;
+        private long structuralHash;
 
         public Builder(String name, LocationInfo locationInfo) {
             this.name = name;
@@ -378,10 +468,20 @@ public class UMLOperation {
         }
 
         public Builder body(String body) {
+            this.body = body != null ? OperationBody.of(body) : null;
+            return this;
+        }
+
+        public Builder body(OperationBody body) {
             this.body = body;
             return this;
         }
 
+        public Builder structuralHash(long structuralHash) {
+            this.structuralHash = structuralHash;
+            return this;
+        }
+
         public Builder setVirtual(boolean isVirtual) {
             this.isVirtual = isVirtual;
             return this;
@@ -419,6 +519,7 @@ public class UMLOperation {
             operation.setInline(isInline);    // Make sure this is being set
             operation.setNoexcept(isNoexcept);// Make sure this is being set
             operation.setBody(body);
+            operation.setStructuralHash(structuralHash);
             return operation;
         }
     }
@@ -1,8 +1,12 @@
 package ca.dal.treefactor.util;
 
+import ca.dal.treefactor.model.core.SourceText;
 import io.github.treesitter.jtreesitter.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,9 +20,30 @@ public class ASTUtil {
         private ASTNode parent;
         private int startByte;
         private int endByte;
+        // Interned grammar ids; symbols is null for nodes not built from a parse tree
+        private final GrammarSymbols symbols;
+        private int kindId;
+        private int fieldId;
+        private ASTNode[] childrenByField;  // First child per field id, built on first lookup
+        private long structuralHash;  // Merkle hash of the subtree, 0 until computed
 
         public ASTNode(String type, String fieldName, Point startPoint, Point endPoint,
                        int startByte, int endByte, ASTNode parent) {
+            this(null, GrammarSymbols.UNKNOWN_KIND, GrammarSymbols.NO_FIELD, type, fieldName,
+                    startPoint, endPoint, startByte, endByte, parent);
+        }
+
+        public ASTNode(GrammarSymbols symbols, int kindId, int fieldId, Point startPoint, Point endPoint,
+                       int startByte, int endByte, ASTNode parent) {
+            this(symbols, kindId, fieldId, symbols.kindName(kindId), symbols.fieldName(fieldId),
+                    startPoint, endPoint, startByte, endByte, parent);
+        }
+
+        private ASTNode(GrammarSymbols symbols, int kindId, int fieldId, String type, String fieldName,
+                        Point startPoint, Point endPoint, int startByte, int endByte, ASTNode parent) {
+            this.symbols = symbols;
+            this.kindId = kindId;
+            this.fieldId = fieldId;
             this.type = type;
             this.fieldName = fieldName;
             this.children = new ArrayList<>();
@@ -42,6 +67,14 @@ public class ASTUtil {
             return Collections.unmodifiableList(children);
         }
 
+        public int getChildCount() {
+            return children.size();
+        }
+
+        public ASTNode getChild(int index) {
+            return children.get(index);
+        }
+
         public Point getStartPoint() {
             return startPoint;
         }
@@ -62,13 +95,110 @@ public class ASTUtil {
             return Optional.ofNullable(parent);
         }
 
+        public GrammarSymbols getSymbols() {
+            return symbols;
+        }
+
+        public int getKindId() {
+            return kindId;
+        }
+
+        public int getFieldId() {
+            return fieldId;
+        }
+
+        /**
+         * Returns the first child assigned to the given field id, or null
+         */
+        public ASTNode getChildByFieldId(int fieldId) {
+            if (fieldId <= GrammarSymbols.NO_FIELD) {
+                return null;
+            }
+            if (childrenByField == null) {
+                childrenByField = indexChildrenByField();
+            }
+            return fieldId < childrenByField.length ? childrenByField[fieldId] : null;
+        }
+
+        private ASTNode[] indexChildrenByField() {
+            int maxFieldId = GrammarSymbols.NO_FIELD;
+            for (ASTNode child : children) {
+                maxFieldId = Math.max(maxFieldId, child.fieldId);
+            }
+            ASTNode[] index = new ASTNode[maxFieldId + 1];
+            for (ASTNode child : children) {
+                if (child.fieldId > GrammarSymbols.NO_FIELD && index[child.fieldId] == null) {
+                    index[child.fieldId] = child;
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Returns the Merkle hash of this subtree, computed on first use.
+         * It covers the node kinds, field names and the tokens of the subtree, but not
+         * the whitespace between tokens, so reformatted code keeps its hash.
+         * Hashes of the subtrees below are kept, so hashing an enclosing subtree later reuses them.
+         */
+        public long getStructuralHash(SourceText sourceText) {
+            if (structuralHash == 0) {
+                walk(this, new ASTWalker() {
+                    @Override
+                    public boolean enter(ASTNode node) {
+                        return node.structuralHash == 0;
+                    }
+
+                    @Override
+                    public void leave(ASTNode node) {
+                        if (node.structuralHash == 0) {
+                            node.structuralHash = node.computeStructuralHash(sourceText);
+                        }
+                    }
+                });
+            }
+            return structuralHash;
+        }
+
+        // Requires the hashes of all children to be computed
+        private long computeStructuralHash(SourceText sourceText) {
+            long hash = mixHash(type.hashCode(), fieldName != null ? fieldName.hashCode() : 0);
+            if (children.isEmpty()) {
+                // Tokens are hashed verbatim, whitespace may be significant inside them
+                hash = mixHash(hash, sourceText.hash(startByte, endByte));
+            } else {
+                // Anonymous tokens such as operators are not kept as nodes, hash the text between children
+                int position = startByte;
+                for (ASTNode child : children) {
+                    if (child.startByte > position) {
+                        hash = mixHash(hash, sourceText.hashIgnoringWhitespace(position, child.startByte));
+                    }
+                    hash = mixHash(hash, child.structuralHash);
+                    position = Math.max(position, child.endByte);
+                }
+                if (endByte > position) {
+                    hash = mixHash(hash, sourceText.hashIgnoringWhitespace(position, endByte));
+                }
+            }
+            return hash != 0 ? hash : 1;
+        }
+
+        private static long mixHash(long hash, long value) {
+            hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+            return hash ^ (hash >>> 31);
+        }
+
         // Protected setters for internal use
         protected void setType(String type) {
             this.type = type;
+            this.kindId = symbols != null ? symbols.kindId(type) : GrammarSymbols.UNKNOWN_KIND;
         }
 
         protected void setFieldName(String fieldName) {
             this.fieldName = fieldName;
+            this.fieldId = symbols != null && fieldName != null ? symbols.fieldId(fieldName) : GrammarSymbols.NO_FIELD;
+            if (parent != null) {
+                parent.childrenByField = null;
+            }
         }
 
         protected void setStartPoint(Point startPoint) {
@@ -96,66 +226,162 @@ public class ASTUtil {
             if (child != null) {
                 children.add(child);
                 child.setParent(this);
+                childrenByField = null;
             }
         }
 
         public String getText(String sourceCode) {
-            return sourceCode.substring(startByte, endByte);
+            return SourceText.of(sourceCode).getText(startByte, endByte);
+        }
+
+        public String getText(SourceText sourceText) {
+            return sourceText.getText(startByte, endByte);
+        }
+    }
+
+    /**
+     * Callbacks of an iterative walk over an AST
+     */
+    public interface ASTWalker {
+        /**
+         * Called in pre-order, returns whether the children of the node should be walked
+         */
+        boolean enter(ASTNode node);
+
+        /**
+         * Called in post-order, after the children of the node were walked or skipped
+         */
+        default void leave(ASTNode node) {
+        }
+    }
+
+    /**
+     * Walks the subtree of root with an explicit stack, so the depth of the tree
+     * is not limited by the depth of the call stack
+     */
+    public static void walk(ASTNode root, ASTWalker walker) {
+        if (!walker.enter(root)) {
+            walker.leave(root);
+            return;
+        }
+        ASTNode[] nodes = new ASTNode[32];
+        int[] nextChild = new int[32];
+        int top = 0;
+        nodes[0] = root;
+        while (top >= 0) {
+            ASTNode node = nodes[top];
+            if (nextChild[top] < node.getChildCount()) {
+                ASTNode child = node.getChild(nextChild[top]++);
+                if (walker.enter(child)) {
+                    if (++top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                        nextChild = Arrays.copyOf(nextChild, top * 2);
+                    }
+                    nodes[top] = child;
+                    nextChild[top] = 0;
+                } else {
+                    walker.leave(child);
+                }
+            } else {
+                nodes[top--] = null;
+                walker.leave(node);
+            }
         }
     }
 
-    // Rest of the ASTUtil class remains unchanged
     public static ASTNode buildASTWithCursor(Node rootNode) {
+        GrammarSymbols symbols = GrammarSymbols.forLanguage(rootNode.getTree().getLanguage());
         try (TreeCursor cursor = rootNode.walk()) {
-            return buildNodeWithCursor(cursor, null);
+            return buildNodeWithCursor(cursor, symbols);
         }
     }
 
-    private static ASTNode buildNodeWithCursor(TreeCursor cursor, ASTNode parent) {
-        Node currentNode = cursor.getCurrentNode();
-        String nodeType = currentNode.getType();
-        String fieldName = cursor.getCurrentFieldName();
-        Point startPoint = currentNode.getStartPoint();
-        Point endPoint = currentNode.getEndPoint();
-        int startByte = currentNode.getStartByte();
-        int endByte = currentNode.getEndByte();
-
-        ASTNode node = new ASTNode(nodeType, fieldName, startPoint, endPoint,
-                startByte, endByte, parent);
-
-        if (cursor.gotoFirstChild()) {
-            do {
-                ASTNode childNode = buildNodeWithCursor(cursor, node);
-                if (childNode != null) {
-                    node.addChild(childNode);
-                }
-            } while (cursor.gotoNextSibling());
-            cursor.gotoParent();
+    /**
+     * Node under construction, kept on the explicit stack until all its children are built
+     */
+    private static final class PendingNode {
+        final ASTNode node;
+        final boolean named;
+
+        PendingNode(ASTNode node, boolean named) {
+            this.node = node;
+            this.named = named;
         }
 
-        if (currentNode.isNamed()) {
-            return node;
-        } else if (!node.getChildren().isEmpty()) {
-            return node.getChildren().size() == 1 ? node.getChildren().get(0) : node;
+        /**
+         * Named nodes are kept, anonymous nodes collapse into their only child or are dropped when empty
+         */
+        ASTNode complete() {
+            if (named) {
+                return node;
+            } else if (node.getChildCount() > 0) {
+                return node.getChildCount() == 1 ? node.getChild(0) : node;
+            }
+            return null;
+        }
+    }
+
+    private static ASTNode buildNodeWithCursor(TreeCursor cursor, GrammarSymbols symbols) {
+        Deque<PendingNode> pending = new ArrayDeque<>();
+        pending.push(createPendingNode(cursor, symbols, null));
+        while (true) {
+            if (cursor.gotoFirstChild()) {
+                pending.push(createPendingNode(cursor, symbols, pending.peek().node));
+                continue;
+            }
+            // Complete nodes bottom-up until one has a next sibling
+            while (true) {
+                ASTNode completed = pending.pop().complete();
+                if (pending.isEmpty()) {
+                    return completed;
+                }
+                ASTNode parent = pending.peek().node;
+                if (completed != null) {
+                    parent.addChild(completed);
+                }
+                if (cursor.gotoNextSibling()) {
+                    pending.push(createPendingNode(cursor, symbols, parent));
+                    break;
+                }
+                cursor.gotoParent();
+            }
         }
-        return null;
+    }
+
+    private static PendingNode createPendingNode(TreeCursor cursor, GrammarSymbols symbols, ASTNode parent) {
+        Node currentNode = cursor.getCurrentNode();
+        int kindId = symbols.kindIdOfSymbol(Short.toUnsignedInt(currentNode.getSymbol()));
+        int fieldId = Short.toUnsignedInt(cursor.getCurrentFieldId());
+        ASTNode node = new ASTNode(symbols, kindId, fieldId, currentNode.getStartPoint(), currentNode.getEndPoint(),
+                currentNode.getStartByte(), currentNode.getEndByte(), parent);
+        return new PendingNode(node, currentNode.isNamed());
     }
 
     public static String printAST(ASTNode node, int depth) {
         StringBuilder sb = new StringBuilder();
-        printASTHelper(node, depth, sb);
+        walk(node, new ASTWalker() {
+            private int currentDepth = depth;
+
+            @Override
+            public boolean enter(ASTNode current) {
+                appendNode(current, currentDepth++, sb);
+                return true;
+            }
+
+            @Override
+            public void leave(ASTNode current) {
+                currentDepth--;
+            }
+        });
         return sb.toString();
     }
 
-    private static void printASTHelper(ASTNode node, int depth, StringBuilder sb) {
+    private static void appendNode(ASTNode node, int depth, StringBuilder sb) {
         String indent = "  ".repeat(depth);
         String fieldInfo = node.getFieldName() != null ? node.getFieldName() + ": " : "";
         String positionInfo = String.format("[%d, %d] - [%d, %d]",
                 node.getStartPoint().row(), node.getStartPoint().column(),
                 node.getEndPoint().row(), node.getEndPoint().column());
         sb.append(String.format("%s%s%s %s\n", indent, fieldInfo, node.getType(), positionInfo));
-        for (ASTNode child : node.getChildren()) {
-            printASTHelper(child, depth + 1, sb);
-        }
     }
 }
\ No newline at end of file
@@ -1,26 +1,123 @@
 package ca.dal.treefactor.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.UMLModelFragment;
+import ca.dal.treefactor.model.core.CanonicalPool;
+import ca.dal.treefactor.model.core.OperationBody;
+import ca.dal.treefactor.model.core.SourceText;
+import ca.dal.treefactor.model.core.UMLType;
 import ca.dal.treefactor.util.ASTUtil.ASTNode;
 
-public abstract class ASTVisitor {
+public abstract class ASTVisitor implements ASTUtil.ASTWalker {
     protected final UMLModel model;
-    protected final String sourceCode;
+    protected final UMLModelFragment.Builder fragment;  // Elements of the file, published to the model after the visit
+    protected final SourceText sourceCode;
     protected final String filePath;
+    protected final VisitorTrace trace;
+
+    // Number of nodes entered between two checks of the visit deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private CanonicalPool canonicalPool = CanonicalPool.global();
+    private int visitDepth;  // Visits nested in process methods publish with the outermost one
+    private long visitDeadline;  // System.nanoTime() bound of the visit, 0 when unbounded
+    private int nodesUntilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+    private final ASTUtil.ASTWalker deadlineWalker = new ASTUtil.ASTWalker() {
+        @Override
+        public boolean enter(ASTNode node) {
+            if (--nodesUntilDeadlineCheck == 0) {
+                nodesUntilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+                checkVisitDeadline();
+            }
+            return ASTVisitor.this.enter(node);
+        }
+
+        @Override
+        public void leave(ASTNode node) {
+            ASTVisitor.this.leave(node);
+        }
+    };
+
+    // Last enum bound by kindOf, visitors dispatch on a single grammar
+    private GrammarSymbols boundSymbols;
+    private Class<?> boundKindType;
+    private Enum<?>[] boundKinds;
 
     public ASTVisitor(UMLModel model, String sourceCode, String filePath) {
+        this(model, SourceText.of(sourceCode), filePath);
+    }
+
+    public ASTVisitor(UMLModel model, SourceText sourceCode, String filePath) {
         this.model = model;
+        this.fragment = UMLModelFragment.builder(filePath);
         this.sourceCode = sourceCode;
         this.filePath = filePath;
+        this.trace = VisitorTrace.forFile(filePath);
     }
 
     /**
-     * Main visit method to traverse the AST
+     * Main visit method to traverse the AST.
+     * The subtree is walked iteratively, calling enter and leave for each node.
+     * Once the outermost visit completes, the file's fragment is merged into the model;
+     * a visit that throws leaves the model unchanged.
      */
-    public abstract void visit(ASTNode node);
+    public void visit(ASTNode node) {
+        visitDepth++;
+        try {
+            ASTUtil.walk(node, visitDeadline != 0 ? deadlineWalker : this);
+        } finally {
+            visitDepth--;
+        }
+        if (visitDepth == 0) {
+            model.addFragment(fragment.build());
+        }
+    }
+
+    /**
+     * Bounds the time spent visiting, see ParseBudget#newVisitDeadline.
+     * Once the deadline has passed, visit throws a ParseBudget.BudgetExceededException.
+     */
+    public void setVisitDeadline(long visitDeadline) {
+        this.visitDeadline = visitDeadline;
+    }
+
+    /**
+     * Sets the pool the names and types read by this visitor are shared through
+     */
+    public void setCanonicalPool(CanonicalPool canonicalPool) {
+        this.canonicalPool = canonicalPool;
+    }
+
+    /**
+     * Canonical instance of a name read from the source
+     */
+    protected String name(String name) {
+        return canonicalPool.intern(name);
+    }
+
+    /**
+     * Canonical, immutable type of a type name read from the source
+     */
+    protected UMLType type(String typeName) {
+        return canonicalPool.type(typeName);
+    }
+
+    private void checkVisitDeadline() {
+        if (System.nanoTime() - visitDeadline > 0) {
+            throw new ParseBudget.BudgetExceededException("Visit of " + filePath + " exceeded its time budget");
+        }
+    }
+
+    /**
+     * Processes a node in pre-order, returns whether its children should be visited
+     */
+    @Override
+    public abstract boolean enter(ASTNode node);
 
     /**
      * Process module/namespace/package level declarations
@@ -47,13 +144,50 @@ public abstract class ASTVisitor {
      */
     protected abstract void processImport(ASTNode node);
 
+    /**
+     * Resolves the dispatch kind of a node against an enum of node kinds.
+     * Returns the fallback for kinds the enum does not list.
+     */
+    protected <E extends Enum<E> & GrammarSymbols.Kind> E kindOf(ASTNode node, Class<E> kindType, E fallback) {
+        GrammarSymbols symbols = node.getSymbols();
+        if (symbols == null) {
+            for (E kind : kindType.getEnumConstants()) {
+                if (node.getType().equals(kind.grammarName())) {
+                    return kind;
+                }
+            }
+            return fallback;
+        }
+        if (symbols != boundSymbols || kindType != boundKindType) {
+            boundKinds = symbols.bind(kindType);
+            boundSymbols = symbols;
+            boundKindType = kindType;
+        }
+        int kindId = node.getKindId();
+        if (kindId < 0 || kindId >= boundKinds.length || boundKinds[kindId] == null) {
+            return fallback;
+        }
+        return kindType.cast(boundKinds[kindId]);
+    }
+
     /**
      * Helper method to find a child node by type
      */
     protected ASTNode findChildByType(ASTNode parent, String type) {
         if (parent == null) return null;
+        GrammarSymbols symbols = parent.getSymbols();
+        if (symbols == null) {
+            for (ASTNode child : parent.getChildren()) {
+                if (child.getType().equals(type)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+        int kindId = symbols.kindId(type);
+        if (kindId == GrammarSymbols.UNKNOWN_KIND) return null;
         for (ASTNode child : parent.getChildren()) {
-            if (child.getType().equals(type)) {
+            if (child.getKindId() == kindId) {
                 return child;
             }
         }
@@ -64,6 +198,10 @@ public abstract class ASTVisitor {
         if (parent == null || fieldName == null) {
             return null;
         }
+        GrammarSymbols symbols = parent.getSymbols();
+        if (symbols != null) {
+            return parent.getChildByFieldId(symbols.fieldId(fieldName));
+        }
         for (ASTNode child : parent.getChildren()) {
             // Defensive check for null field name
             if (child != null && child.getFieldName() != null && child.getFieldName().equals(fieldName)) {
@@ -79,8 +217,9 @@ public abstract class ASTVisitor {
     protected List<ASTNode> findChildrenByType(ASTNode parent, String type) {
         List<ASTNode> children = new ArrayList<>();
         if (parent == null) return children;
+        int kindId = kindIdOf(parent, type);
         for (ASTNode child : parent.getChildren()) {
-            if (child.getType().equals(type)) {
+            if (isOfKind(child, kindId, type)) {
                 children.add(child);
             }
         }
@@ -92,9 +231,13 @@ public abstract class ASTVisitor {
      */
     protected ASTNode findChildByTypes(ASTNode parent, String... types) {
         if (parent == null) return null;
+        int[] kindIds = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            kindIds[i] = kindIdOf(parent, types[i]);
+        }
         for (ASTNode child : parent.getChildren()) {
-            for (String type : types) {
-                if (child.getType().equals(type)) {
+            for (int i = 0; i < types.length; i++) {
+                if (isOfKind(child, kindIds[i], types[i])) {
                     return child;
                 }
             }
@@ -106,7 +249,7 @@ public abstract class ASTVisitor {
      * Helper method to check if a node has a specific type
      */
     protected boolean hasType(ASTNode node, String type) {
-        return node != null && node.getType().equals(type);
+        return node != null && isOfKind(node, kindIdOf(node, type), type);
     }
 
     /**
@@ -116,6 +259,20 @@ public abstract class ASTVisitor {
         return node != null ? node.getText(sourceCode) : null;
     }
 
+    /**
+     * Helper method to reference a node's text as an operation body without copying it
+     */
+    protected OperationBody getBodyReference(ASTNode node) {
+        return OperationBody.of(filePath, sourceCode, node.getStartByte(), node.getEndByte());
+    }
+
+    /**
+     * Helper method to get the structural hash of a definition, see ASTNode#getStructuralHash
+     */
+    protected long getStructuralHash(ASTNode node) {
+        return node.getStructuralHash(sourceCode);
+    }
+
     /**
      * Helper method to get text of a child node by type
      */
@@ -128,13 +285,20 @@ public abstract class ASTVisitor {
      * Helper method to find first node of a given type in the subtree
      */
     protected ASTNode findFirstNodeOfType(ASTNode root, String type) {
-        if (root.getType().equals(type)) {
-            return root;
-        }
-        for (ASTNode child : root.getChildren()) {
-            ASTNode result = findFirstNodeOfType(child, type);
-            if (result != null) {
-                return result;
+        return findFirstNodeOfKind(root, kindIdOf(root, type), type);
+    }
+
+    private ASTNode findFirstNodeOfKind(ASTNode root, int kindId, String type) {
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ASTNode node = stack.pop();
+            if (isOfKind(node, kindId, type)) {
+                return node;
+            }
+            // Push in reverse so that children are searched in pre-order
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
             }
         }
         return null;
@@ -145,12 +309,28 @@ public abstract class ASTVisitor {
      */
     protected List<ASTNode> findNodesOfType(ASTNode root, String type) {
         List<ASTNode> results = new ArrayList<>();
-        if (root.getType().equals(type)) {
-            results.add(root);
-        }
-        for (ASTNode child : root.getChildren()) {
-            results.addAll(findNodesOfType(child, type));
-        }
+        int kindId = kindIdOf(root, type);
+        ASTUtil.walk(root, node -> {
+            if (isOfKind(node, kindId, type)) {
+                results.add(node);
+            }
+            return true;
+        });
         return results;
     }
-}
\ No newline at end of file
+
+    /**
+     * Resolves a node-type name to a kind id in the grammar of the given node
+     */
+    private static int kindIdOf(ASTNode node, String type) {
+        GrammarSymbols symbols = node.getSymbols();
+        return symbols != null ? symbols.kindId(type) : GrammarSymbols.UNKNOWN_KIND;
+    }
+
+    private static boolean isOfKind(ASTNode node, int kindId, String type) {
+        if (node.getSymbols() != null) {
+            return kindId != GrammarSymbols.UNKNOWN_KIND && node.getKindId() == kindId;
+        }
+        return node.getType().equals(type);
+    }
+}
@@ -0,0 +1,153 @@
+package ca.dal.treefactor.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import ca.dal.treefactor.model.core.SourceText;
+
+/**
+ * Contents of the blobs of a repository, loaded on demand.
+ * Files are referred to by blob ObjectId through lazy SourceTexts, and loaded contents are kept
+ * in a least-recently-used cache bounded in bytes by the treefactor.source.cacheBytes system property.
+ * The most recently loaded blob is always kept, even when it is larger than the bound, so that
+ * a large file being parsed in chunks is not reloaded for every chunk.
+ *
+ * Blobs at least as large as the mapped threshold are streamed to a temporary file that is
+ * memory-mapped, so they never exist on the heap as a whole; smaller ones are held as Strings.
+ * The kind only depends on the size of the blob, so offsets stay valid across reloads.
+ * The size of a blob is read from its header when the reference is created, so that it can be
+ * checked against a parse budget without loading the blob.
+ */
+public final class BlobSourceCache {
+    public static final String MAX_BYTES_PROPERTY = "treefactor.source.cacheBytes";
+
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final Repository repository;
+    private final long maxBytes;
+    private final long utf8ThresholdBytes;
+    private final LinkedHashMap<ObjectId, Entry> entries;  // In access order, eldest first
+    private long sizeInBytes;
+    private long loads;
+
+    private record Entry(SourceText content, long sizeInBytes) {
+    }
+
+    public BlobSourceCache(Repository repository, long maxBytes, long utf8ThresholdBytes) {
+        this.repository = repository;
+        this.maxBytes = maxBytes;
+        this.utf8ThresholdBytes = utf8ThresholdBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Cache bounded by the treefactor.source.cacheBytes system property
+     */
+    public static BlobSourceCache fromSystemProperties(Repository repository, long utf8ThresholdBytes) {
+        return new BlobSourceCache(repository, Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES), utf8ThresholdBytes);
+    }
+
+    /**
+     * Returns a reference to the content of a blob, it is loaded when used
+     */
+    public SourceText get(ObjectId blobId) {
+        ObjectId id = blobId.copy();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return SourceText.lazy(() -> load(id), reader.getObjectSize(id, Constants.OBJ_BLOB));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read blob " + id.getName(), e);
+        }
+    }
+
+    private SourceText load(ObjectId blobId) {
+        synchronized (this) {
+            Entry entry = entries.get(blobId);
+            if (entry != null) {
+                return entry.content();
+            }
+        }
+        // Read without holding the lock, the blob of one file does not block the cached ones.
+        // Two threads may read the same blob, the first one to finish is kept.
+        Entry entry = read(blobId);
+        synchronized (this) {
+            loads++;
+            Entry cached = entries.get(blobId);
+            if (cached != null) {
+                return cached.content();
+            }
+            entries.put(blobId, entry);
+            sizeInBytes += entry.sizeInBytes();
+            evict();
+            return entry.content();
+        }
+    }
+
+    private Entry read(ObjectId blobId) {
+        try {
+            ObjectLoader loader = repository.open(blobId, Constants.OBJ_BLOB);
+            long size = loader.getSize();
+            if (size < utf8ThresholdBytes) {
+                return new Entry(SourceText.of(new String(loader.getBytes(Integer.MAX_VALUE), StandardCharsets.UTF_8)), size);
+            }
+            return new Entry(map(loader), size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read blob " + blobId.getName(), e);
+        }
+    }
+
+    // Streams the blob to a temporary file and maps it, the mapping outlives the deleted file
+    private static SourceText map(ObjectLoader loader) throws IOException {
+        Path file = Files.createTempFile("treefactor-blob", ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(file)) {
+                loader.copyTo(outputStream);
+            }
+            return SourceText.map(file);
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // Mapped files cannot be deleted on every platform
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    // Drops the least recently used contents, keeping the most recent one
+    private void evict() {
+        Iterator<Map.Entry<ObjectId, Entry>> iterator = entries.entrySet().iterator();
+        while (sizeInBytes > maxBytes && entries.size() > 1) {
+            sizeInBytes -= iterator.next().getValue().sizeInBytes();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Number of times a blob was read from the repository
+     */
+    public synchronized long getLoadCount() {
+        return loads;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+}
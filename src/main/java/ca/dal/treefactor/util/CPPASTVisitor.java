@@ -2,6 +2,7 @@ package ca.dal.treefactor.util;
 
 import ca.dal.treefactor.model.CodeElementType;
 import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.UMLModelFragment;
 import ca.dal.treefactor.model.elements.UMLOperation;
 import ca.dal.treefactor.model.elements.UMLClass;
 import ca.dal.treefactor.model.elements.UMLAttribute;
@@ -11,17 +12,46 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 public class CPPASTVisitor extends ASTVisitor {
-    private static final Logger LOGGER = LoggerFactory.getLogger(CPPASTVisitor.class);
+    /**
+     * Node kinds the visitor dispatches on
+     */
+    private enum NodeKind implements GrammarSymbols.Kind {
+        TRANSLATION_UNIT("translation_unit"),
+        CLASS_SPECIFIER("class_specifier"),
+        FUNCTION_DEFINITION("function_definition"),
+        DECLARATION("declaration"),
+        FIELD_DECLARATION("field_declaration"),
+        PREPROC_INCLUDE("preproc_include"),
+        STRING_LITERAL("string_literal"),
+        NUMBER_LITERAL("number_literal"),
+        FALSE("false"),
+        TRUE("true"),
+        NULL("null"),
+        OTHER(null);
+
+        private final String grammarName;
+
+        NodeKind(String grammarName) {
+            this.grammarName = grammarName;
+        }
+
+        @Override
+        public String grammarName() {
+            return grammarName;
+        }
+    }
+
     private UMLClass currentClass;
     private final List<String> currentScope;
     private String currentNamespace;
     private Visibility currentVisibility;  // Add this field
 
     public CPPASTVisitor(UMLModel model, String sourceCode, String filePath) {
+        this(model, SourceText.of(sourceCode), filePath);
+    }
+
+    public CPPASTVisitor(UMLModel model, SourceText sourceCode, String filePath) {
         super(model, sourceCode, filePath);
         this.currentClass = null;
         this.currentScope = new ArrayList<>();
@@ -30,47 +60,55 @@ public class CPPASTVisitor extends ASTVisitor {
     }
 
     @Override
-    public void visit(ASTUtil.ASTNode node) {
-        LOGGER.info("Visiting node type: {}", node.getType());
+    public boolean enter(ASTUtil.ASTNode node) {
+        trace.log("Visiting node type: {}", node.getType());
 
-        if (node.getType().equals("template_declaration")) {
+        if (hasType(node, "template_declaration")) {
             // Process the function definition inside the template
             ASTUtil.ASTNode funcDef = findFirstNodeOfType(node, "function_definition");
             if (funcDef != null) {
                 processMethod(funcDef);
             }
-        } else {
-            switch (node.getType()) {
-                case "translation_unit":
-                    for (ASTUtil.ASTNode child : node.getChildren()) {
-                        visit(child);
-                    }
-                    break;
-                case "class_specifier":
-                    LOGGER.info("Processing class_specifier: {}", node.getText(sourceCode));
-                    processClass(node);
-                    break;
-                case "function_definition":
-                    if (currentClass == null) {
-                        LOGGER.info("Processing standalone function: {}", node.getText(sourceCode));
-                        processMethod(node);
+            return false;
+        }
+
+        switch (kindOf(node, NodeKind.class, NodeKind.OTHER)) {
+            case TRANSLATION_UNIT:
+                // Only the translation unit has its children visited
+                return true;
+            case CLASS_SPECIFIER:
+                if (trace.isEnabled()) {
+                    trace.log("Processing class_specifier: {}", node.getText(sourceCode));
+                }
+                processClass(node);
+                break;
+            case FUNCTION_DEFINITION:
+                if (currentClass == null) {
+                    if (trace.isEnabled()) {
+                        trace.log("Processing standalone function: {}", node.getText(sourceCode));
                     }
-                    break;
-                case "declaration":
-                    if (currentClass == null) {
-                        LOGGER.info("Processing declaration: {}", node.getText(sourceCode));
-                        processDeclaration(node);
+                    processMethod(node);
+                }
+                break;
+            case DECLARATION:
+                if (currentClass == null) {
+                    if (trace.isEnabled()) {
+                        trace.log("Processing declaration: {}", node.getText(sourceCode));
                     }
-                    break;
-                case "field_declaration":
-                    LOGGER.info("Processing field_declaration: {}", node.getText(sourceCode));
-                    processField(node);
-                    break;
-                case "preproc_include":
-                    processImport(node);
-                    break;
-            }
+                    processDeclaration(node);
+                }
+                break;
+            case FIELD_DECLARATION:
+                if (trace.isEnabled()) {
+                    trace.log("Processing field_declaration: {}", node.getText(sourceCode));
+                }
+                processField(node);
+                break;
+            case PREPROC_INCLUDE:
+                processImport(node);
+                break;
         }
+        return false;
     }
 
     private String getDefaultValue(ASTUtil.ASTNode defaultValueNode) {
@@ -83,16 +121,16 @@ public class CPPASTVisitor extends ASTVisitor {
             ASTUtil.ASTNode valueNode = defaultValueNode.getChildren().get(0);
 
             // Direct text extraction based on node type
-            switch (valueNode.getType()) {
-                case "string_literal":
+            switch (kindOf(valueNode, NodeKind.class, NodeKind.OTHER)) {
+                case STRING_LITERAL:
                     return valueNode.getText(sourceCode); // Returns the full text including quotes
-                case "number_literal":
+                case NUMBER_LITERAL:
                     return valueNode.getText(sourceCode);
-                case "false":
+                case FALSE:
                     return "false";
-                case "true":
+                case TRUE:
                     return "true";
-                case "null":
+                case NULL:
                     return "nullptr";
                 default:
                     return valueNode.getText(sourceCode);
@@ -102,7 +140,7 @@ public class CPPASTVisitor extends ASTVisitor {
     }
 
     private void processParameter(ASTUtil.ASTNode paramNode, UMLOperation operation) {
-        boolean isOptional = paramNode.getType().equals("optional_parameter_declaration");
+        boolean isOptional = hasType(paramNode, "optional_parameter_declaration");
 
         // Build the parameter
         StringBuilder typeStr = new StringBuilder();
@@ -140,7 +178,7 @@ public class CPPASTVisitor extends ASTVisitor {
                     .type(CodeElementType.PARAMETER_DECLARATION)
                     .build();
 
-            UMLParameter parameter = new UMLParameter(paramName, new UMLType(typeStr.toString()), location);
+            UMLParameter parameter = new UMLParameter(name(paramName), type(typeStr.toString()), location);
 
             // Handle pointer and reference declarators
             ASTUtil.ASTNode pointerDec = findFirstNodeOfType(paramNode, "pointer_declarator");
@@ -210,11 +248,11 @@ public class CPPASTVisitor extends ASTVisitor {
 
     private void processAccessSpecifiers(ASTUtil.ASTNode node) {
         for (ASTUtil.ASTNode child : node.getChildren()) {
-            LOGGER.info("Processing body node: {}", child.getType());
+            trace.log("Processing body node: {}", child.getType());
 
-            if (child.getType().equals("access_specifier")) {
+            if (hasType(child, "access_specifier")) {
                 String specifier = child.getText(sourceCode);
-                LOGGER.info("Found access specifier: {}", specifier);
+                trace.log("Found access specifier: {}", specifier);
                 switch (specifier.toLowerCase()) {
                     case "public":
                         currentVisibility = Visibility.PUBLIC;
@@ -229,13 +267,13 @@ public class CPPASTVisitor extends ASTVisitor {
                 continue;
             }
 
-            if (child.getType().equals("function_definition")) {
-                LOGGER.info("Processing method within class");
+            if (hasType(child, "function_definition")) {
+                trace.log("Processing method within class");
                 processMethod(child);
             }
 
-            if (child.getType().equals("field_declaration")) {
-                LOGGER.info("Processing field within class");
+            if (hasType(child, "field_declaration")) {
+                trace.log("Processing field within class");
                 processField(child);
             }
         }
@@ -243,30 +281,30 @@ public class CPPASTVisitor extends ASTVisitor {
 
     @Override
     protected void processMethod(ASTUtil.ASTNode node) {
-        LOGGER.info("Starting method processing");
+        trace.log("Starting method processing");
 
         // Get function declarator
         ASTUtil.ASTNode declaratorNode = findFirstNodeOfType(node, "function_declarator");
         if (declaratorNode == null) {
-            LOGGER.info("No function declarator found");
+            trace.log("No function declarator found");
             return;
         }
 
         // Get direct child identifier of declarator (this will be the method name)
         String methodName = null;
         for (ASTUtil.ASTNode child : declaratorNode.getChildren()) {
-            if (child.getType().equals("identifier") || child.getType().equals("field_identifier")) {
+            if (hasType(child, "identifier") || hasType(child, "field_identifier")) {
                 methodName = child.getText(sourceCode);
                 break;
             }
         }
 
         if (methodName == null) {
-            LOGGER.info("No method name found");
+            trace.log("No method name found");
             return;
         }
 
-        LOGGER.info("Found method name: {}", methodName);
+        trace.log("Found method name: {}", methodName);
 
         LocationInfo location = LocationInfo.builder()
                 .filePath(filePath)
@@ -275,8 +313,9 @@ public class CPPASTVisitor extends ASTVisitor {
                 .type(CodeElementType.METHOD_DECLARATION)
                 .build();
 
-        UMLOperation operation = new UMLOperation(methodName, location);
+        UMLOperation operation = new UMLOperation(name(methodName), location);
         operation.setVisibility(currentVisibility);
+        operation.setStructuralHash(getStructuralHash(node));
 
         // Process method details
         processMethodDetails(node, operation);
@@ -285,15 +324,17 @@ public class CPPASTVisitor extends ASTVisitor {
         if (currentClass != null) {
             operation.setClassName(currentClass.getName());
             if (methodName.equals(currentClass.getName())) {
-                LOGGER.info("Found constructor: {}", methodName);
+                trace.log("Found constructor: {}", methodName);
                 operation.setConstructor(true);
             }
             currentClass.addOperation(operation);
-            LOGGER.info("Added method {} to class {}", methodName, currentClass.getName());
-            LOGGER.info("Class now has {} operations", currentClass.getOperations().size());
+            trace.log("Added method {} to class {}", methodName, currentClass.getName());
+            if (trace.isEnabled()) {
+                trace.log("Class now has {} operations", currentClass.getOperations().size());
+            }
         } else {
-            LOGGER.info("Adding standalone method: {}", methodName);
-            model.addOperation(operation);
+            trace.log("Adding standalone method: {}", methodName);
+            fragment.addOperation(operation);
         }
     }
 
@@ -301,8 +342,8 @@ public class CPPASTVisitor extends ASTVisitor {
         // Get return type
         ASTUtil.ASTNode typeNode = findFirstNodeOfType(node, "primitive_type");
         if (typeNode != null) {
-            operation.setReturnType(new UMLType(getNodeText(typeNode)));
-            LOGGER.info("Set return type: {}", getNodeText(typeNode));
+            operation.setReturnType(type(getNodeText(typeNode)));
+            trace.log("Set return type: {}", operation.getReturnType());
         }
 
         // Get function declarator
@@ -313,53 +354,57 @@ public class CPPASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode paramListNode = findFirstNodeOfType(declaratorNode, "parameter_list");
         if (paramListNode != null) {
             for (ASTUtil.ASTNode paramNode : paramListNode.getChildren()) {
-                if (paramNode.getType().equals("parameter_declaration") ||
-                        paramNode.getType().equals("optional_parameter_declaration")) {
+                if (hasType(paramNode, "parameter_declaration") ||
+                        hasType(paramNode, "optional_parameter_declaration")) {
                     processParameter(paramNode, operation);
                 }
             }
-            LOGGER.info("Processed {} parameters", operation.getParameters().size());
+            if (trace.isEnabled()) {
+                trace.log("Processed {} parameters", operation.getParameters().size());
+            }
         }
 
         // Process modifiers
         String declaratorText = declaratorNode.getText(sourceCode);
-        LOGGER.info("Processing declarator: {}", declaratorText);
+        trace.log("Processing declarator: {}", declaratorText);
 
         // Check for const modifier
         ASTUtil.ASTNode constNode = findFirstNodeOfType(declaratorNode, "type_qualifier");
         if (constNode != null && getNodeText(constNode).equals("const")) {
             operation.setConst(true);
-            LOGGER.info("Set const modifier");
+            trace.log("Set const modifier");
         }
 
         // Check for noexcept
         ASTUtil.ASTNode noexceptNode = findFirstNodeOfType(declaratorNode, "noexcept");
         if (noexceptNode != null) {
             operation.setNoexcept(true);
-            LOGGER.info("Set noexcept modifier");
+            trace.log("Set noexcept modifier");
         }
 
         // Check for virtual
         if (declaratorText.contains("virtual")) {
             operation.setVirtual(true);
-            LOGGER.info("Set virtual modifier");
+            trace.log("Set virtual modifier");
         }
 
         // Check for static
         if (declaratorText.contains("static")) {
             operation.setStatic(true);
-            LOGGER.info("Set static modifier");
+            trace.log("Set static modifier");
         }
 
         // Check if it's a pure virtual method (abstract)
         if (declaratorText.contains("= 0")) {
             operation.setAbstract(true);
-            LOGGER.info("Set abstract (pure virtual)");
+            trace.log("Set abstract (pure virtual)");
         }
     }
 
     private void processDeclaration(ASTUtil.ASTNode node) {
-        LOGGER.info("Processing declaration: {}", node.getText(sourceCode));
+        if (trace.isEnabled()) {
+            trace.log("Processing declaration: {}", node.getText(sourceCode));
+        }
         String fullText = node.getText(sourceCode);
 
         // Check if this is a static field initialization
@@ -385,7 +430,7 @@ public class CPPASTVisitor extends ASTVisitor {
         if (nameNode == null) return;
         String methodName = getNodeText(nameNode);
 
-        LOGGER.info("Processing method declaration: {}", methodName);
+        trace.log("Processing method declaration: {}", methodName);
 
         // Create operation
         LocationInfo location = LocationInfo.builder()
@@ -395,21 +440,22 @@ public class CPPASTVisitor extends ASTVisitor {
                 .type(CodeElementType.METHOD_DECLARATION)
                 .build();
 
-        UMLOperation operation = new UMLOperation(methodName, location);
-        operation.setReturnType(new UMLType(returnType));
+        UMLOperation operation = new UMLOperation(name(methodName), location);
+        operation.setReturnType(type(returnType));
+        operation.setStructuralHash(getStructuralHash(node));
 
         // Get full declaration text to check modifiers
         String fullText = node.getText(sourceCode);
 
         // Check virtual
         if (fullText.contains("virtual")) {
-            LOGGER.info("Setting virtual modifier");
+            trace.log("Setting virtual modifier");
             operation.setVirtual(true);
         }
 
         // Check pure virtual (abstract)
         if (fullText.contains("= 0")) {
-            LOGGER.info("Setting abstract modifier");
+            trace.log("Setting abstract modifier");
             operation.setAbstract(true);
         }
 
@@ -417,15 +463,15 @@ public class CPPASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode paramListNode = findFirstNodeOfType(declaratorNode, "parameter_list");
         if (paramListNode != null) {
             for (ASTUtil.ASTNode paramNode : paramListNode.getChildren()) {
-                if (paramNode.getType().equals("parameter_declaration") ||
-                        paramNode.getType().equals("optional_parameter_declaration")) {
+                if (hasType(paramNode, "parameter_declaration") ||
+                        hasType(paramNode, "optional_parameter_declaration")) {
                     processParameter(paramNode, operation);
                 }
             }
         }
 
-        LOGGER.info("Adding method declaration to model: {}", methodName);
-        model.addOperation(operation);
+        trace.log("Adding method declaration to model: {}", methodName);
+        fragment.addOperation(operation);
     }
 
     private void processQualifiedType(ASTUtil.ASTNode qualifiedType, StringBuilder typeStr) {
@@ -541,22 +587,26 @@ public class CPPASTVisitor extends ASTVisitor {
         // Store the final value to use in lambda
         final String value = fieldParts[1].replace(";", "").trim();
 
-        LOGGER.info("Found static field initialization:");
-        LOGGER.info("Class: {}", className);
-        LOGGER.info("Field: {}", fieldName);
-        LOGGER.info("Value: {}", value);
-
-        // Find the class and update the field
-        UMLClass classNode = model.getClass(className).orElse(null);
-        if (classNode != null) {
-            classNode.getAttributes().stream()
-                    .filter(attr -> attr.getName().equals(fieldName))
-                    .findFirst()
-                    .ifPresent(attr -> {
-                        attr.setInitialValue(value);
-                        LOGGER.info("Updated initial value for {} to {}", fieldName, value);
-                    });
+        trace.log("Found static field initialization:");
+        trace.log("Class: {}", className);
+        trace.log("Field: {}", fieldName);
+        trace.log("Value: {}", value);
+
+        // Update the field when the class is declared in this file, otherwise record the
+        // initializer so the model applies it once the declaring file's fragment is merged
+        UMLClass classNode = fragment.getClass(className).orElse(null);
+        if (classNode == null) {
+            fragment.addStaticInitializer(new UMLModelFragment.StaticInitializer(className, fieldName, value));
+            trace.log("Recorded initial value for {}::{}", className, fieldName);
+            return;
         }
+        classNode.getAttributes().stream()
+                .filter(attr -> attr.getName().equals(fieldName))
+                .findFirst()
+                .ifPresent(attr -> {
+                    attr.setInitialValue(value);
+                    trace.log("Updated initial value for {} to {}", fieldName, value);
+                });
     }
 
     @Override
@@ -580,7 +630,7 @@ public class CPPASTVisitor extends ASTVisitor {
         String fieldName = nameNode.getText(sourceCode);
         String fieldType = typeNode.getText(sourceCode);
 
-        LOGGER.info("Processing field: {} {}", fieldType, fieldName);
+        trace.log("Processing field: {} {}", fieldType, fieldName);
 
         LocationInfo locationInfo = LocationInfo.builder()
                 .filePath(filePath)
@@ -589,7 +639,7 @@ public class CPPASTVisitor extends ASTVisitor {
                 .type(CodeElementType.FIELD_DECLARATION)
                 .build();
 
-        UMLAttribute attribute = new UMLAttribute(fieldName, new UMLType(fieldType), locationInfo);
+        UMLAttribute attribute = new UMLAttribute(name(fieldName), type(fieldType), locationInfo);
 
         // Set visibility from current context
         attribute.setVisibility(currentVisibility);
@@ -597,7 +647,7 @@ public class CPPASTVisitor extends ASTVisitor {
         // Check for static modifier
         ASTUtil.ASTNode storageNode = findFirstNodeOfType(node, "storage_class_specifier");
         if (storageNode != null && storageNode.getText(sourceCode).equals("static")) {
-            LOGGER.info("Found static field: {}", fieldName);
+            trace.log("Found static field: {}", fieldName);
             attribute.setStatic(true);
         }
 
@@ -605,19 +655,19 @@ public class CPPASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode initNode = findFirstNodeOfType(node, "initializer");
         if (initNode != null) {
             String initialValue = initNode.getText(sourceCode);
-            LOGGER.info("Found initial value: {}", initialValue);
+            trace.log("Found initial value: {}", initialValue);
             attribute.setInitialValue(initialValue);
         }
 
         currentClass.addAttribute(attribute);
-        LOGGER.info("Added attribute {} to class {}", fieldName, currentClass.getName());
+        trace.log("Added attribute {} to class {}", fieldName, currentClass.getName());
     }
 
     @Override
     protected void processModule(ASTUtil.ASTNode node) {
         // Extract module name from file path
         String moduleName = extractModuleName(filePath);
-        model.addPackage(filePath, moduleName);
+        fragment.packageName(moduleName);
     }
 
     @Override
@@ -648,17 +698,17 @@ public class CPPASTVisitor extends ASTVisitor {
                 .type(UMLImport.ImportType.SINGLE)
                 .build();
 
-        model.addImport(filePath, umlImport);
+        fragment.addImport(umlImport);
     }
 
     @Override
     protected void processClass(ASTUtil.ASTNode node) {
-        LOGGER.info("Starting class processing");
+        trace.log("Starting class processing");
         ASTUtil.ASTNode nameNode = findFirstNodeOfType(node, "type_identifier");
         if (nameNode == null) return;
 
         String className = nameNode.getText(sourceCode);
-        LOGGER.info("Found class: {}", className);
+        trace.log("Found class: {}", className);
 
         LocationInfo location = LocationInfo.builder()
                 .filePath(filePath)
@@ -667,8 +717,9 @@ public class CPPASTVisitor extends ASTVisitor {
                 .type(CodeElementType.CLASS_DECLARATION)
                 .build();
 
-        currentClass = new UMLClass(extractModuleName(filePath), className, location);
-        LOGGER.info("Created new UMLClass: {}", currentClass.getName());
+        currentClass = new UMLClass(name(extractModuleName(filePath)), name(className), location);
+        currentClass.setStructuralHash(getStructuralHash(node));
+        trace.log("Created new UMLClass: {}", currentClass.getName());
 
         // Process inheritance
         processInheritance(node);
@@ -677,18 +728,24 @@ public class CPPASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode bodyNode = findFirstNodeOfType(node, "field_declaration_list");
         if (bodyNode != null) {
             currentVisibility = Visibility.PRIVATE; // C++ default
-            LOGGER.info("Processing class body");
+            trace.log("Processing class body");
             processAccessSpecifiers(bodyNode);
         }
 
-        LOGGER.info("Adding class to model with {} operations", currentClass.getOperations().size());
-        model.addClass(currentClass);
+        if (trace.isEnabled()) {
+            trace.log("Adding class to model with {} operations", currentClass.getOperations().size());
+        }
+        fragment.addClass(currentClass);
 
-        LOGGER.info("Model state after adding class:");
-        LOGGER.info("Total classes: {}", model.getClasses().size());
-        LOGGER.info("Total operations: {}", model.getOperations().size());
+        if (trace.isEnabled()) {
+            trace.log("Model state after adding class:");
+            trace.log("Total classes: {}", fragment.getClassCount());
+            trace.log("Total operations: {}", fragment.getOperationCount());
+        }
         if (!currentClass.getSuperclasses().isEmpty()) {
-            LOGGER.info("Superclasses: {}", currentClass.getSuperclasses());
+            if (trace.isEnabled()) {
+                trace.log("Superclasses: {}", currentClass.getSuperclasses());
+            }
         }
 
         currentClass = null;  // Reset current class
@@ -698,28 +755,34 @@ public class CPPASTVisitor extends ASTVisitor {
         // Find base class clause
         ASTUtil.ASTNode baseClassClause = findFirstNodeOfType(node, "base_class_clause");
         if (baseClassClause == null) {
-            LOGGER.info("No inheritance found");
+            trace.log("No inheritance found");
             return;
         }
 
-        LOGGER.info("Processing base class clause: {}", baseClassClause.getText(sourceCode));
+        if (trace.isEnabled()) {
+            trace.log("Processing base class clause: {}", baseClassClause.getText(sourceCode));
+        }
 
         // Process each base class
         for (ASTUtil.ASTNode child : baseClassClause.getChildren()) {
-            if (child.getType().equals("type_identifier")) {
+            if (hasType(child, "type_identifier")) {
                 String baseClassName = child.getText(sourceCode);
-                LOGGER.info("Found base class: {}", baseClassName);
+                trace.log("Found base class: {}", baseClassName);
                 currentClass.addSuperclass(baseClassName);
             }
             // Handle access specifier if present (public/protected/private inheritance)
-            if (child.getType().equals("access_specifier")) {
-                LOGGER.info("Found inheritance access specifier: {}", child.getText(sourceCode));
+            if (hasType(child, "access_specifier")) {
+                if (trace.isEnabled()) {
+                    trace.log("Found inheritance access specifier: {}", child.getText(sourceCode));
+                }
             }
         }
 
         // Check if we found and added any superclasses
         if (!currentClass.getSuperclasses().isEmpty()) {
-            LOGGER.info("Added superclasses: {}", currentClass.getSuperclasses());
+            if (trace.isEnabled()) {
+                trace.log("Added superclasses: {}", currentClass.getSuperclasses());
+            }
         }
     }
     private String extractModuleName(String filePath) {
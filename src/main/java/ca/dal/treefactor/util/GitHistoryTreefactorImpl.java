@@ -3,12 +3,12 @@ package ca.dal.treefactor.util;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -20,11 +20,18 @@ import org.eclipse.jgit.treewalk.TreeWalk;
 
 import ca.dal.treefactor.API.GitHistoryTreefactor;
 import ca.dal.treefactor.API.GitService;
-import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.OffHeapModelStore;
+import ca.dal.treefactor.model.core.CanonicalPool;
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.model.diff.UMLModelDiff;
 import ca.dal.treefactor.model.diff.refactoring.Refactoring;
 
 public class GitHistoryTreefactorImpl implements GitHistoryTreefactor {
+    // Files at least this large are memory-mapped as UTF-8 bytes instead of being loaded as Strings
+    private static final long MAPPED_SOURCE_THRESHOLD_BYTES =
+            Long.getLong("treefactor.source.mappedThresholdBytes", 1024 * 1024);
+    // Models are moved off the heap as files are read, and only the changed files are diffed on the heap
+    private static final boolean OFF_HEAP_MODELS = Boolean.getBoolean("treefactor.model.offHeap");
 
     @Override
 	public void detectAll(Repository repository, String branch) throws Exception {
@@ -60,43 +67,54 @@ public class GitHistoryTreefactorImpl implements GitHistoryTreefactor {
                 commitFolder.mkdir(); // Create the commit folder
             }
             
-            Map<String, String> fileContentsAfter = new HashMap<>();
-            fileContentsAfter = processAllFilesInCommit(repository, currentCommit, commitFolder);
+            BlobSourceCache blobSources = BlobSourceCache.fromSystemProperties(repository, MAPPED_SOURCE_THRESHOLD_BYTES);
+            Map<String, SourceText> fileContentsAfter = new HashMap<>();
+            fileContentsAfter = processAllFilesInCommit(repository, blobSources, currentCommit, commitFolder);
 
             if (currentCommit.getParentCount() == 0) {
                 // Initial commit, process all files in the tree
-                fileContentsAfter = processAllFilesInCommit(repository, currentCommit, commitFolder);
+                fileContentsAfter = processAllFilesInCommit(repository, blobSources, currentCommit, commitFolder);
             }
 
-            UMLModelReader currentUmlReader = new UMLModelReader(fileContentsAfter);
-            UMLModel currentUMLModel = currentUmlReader.getUmlModel();
-
-            if (currentCommit.getParentCount() > 0){
-                Map<String, String> fileContentsBefore = new HashMap<>();
-                RevCommit parentCommit = walk.parseCommit(currentCommit.getParent(0).getId());
-                String parentCommitId = parentCommit.getId().getName();
-
-                System.out.println("Parent Commit Id : "+parentCommitId);
-                System.out.println("Commit Message: " + parentCommit.getFullMessage());
-
-                File parentCommitFolder = new File(mainFolderPath + File.separator + parentCommitId);
-                if (!parentCommitFolder.exists()) {
-                    parentCommitFolder.mkdir(); // Create the commit folder
-                    fileContentsBefore = processAllFilesInCommit(repository, parentCommit, parentCommitFolder);
-                }
-
-                UMLModelReader parentUmlReader = new UMLModelReader(fileContentsBefore);
-                UMLModel parentUMLModel = parentUmlReader.getUmlModel();
-
-                UMLModelDiff modelDiff = new UMLModelDiff(parentUMLModel, currentUMLModel);
-                List<Refactoring> refactorings = modelDiff.detectRefactorings();
-                System.out.println("Refactorings:");
-                for (Refactoring refactoring : refactorings) {
-                    System.out.println("\t"+refactoring);
+            ParseBudget budget = ParseBudget.fromSystemProperties();
+            CanonicalPool canonicalPool = CanonicalPool.forRun();
+            UMLModelReader currentUmlReader = new UMLModelReader(fileContentsAfter, budget, canonicalPool, OFF_HEAP_MODELS);
+            List<ParseDiagnostic> diagnostics = new ArrayList<>(currentUmlReader.getDiagnostics());
+            UMLModelReader parentUmlReader = null;
+            try {
+                if (currentCommit.getParentCount() > 0){
+                    Map<String, SourceText> fileContentsBefore = new HashMap<>();
+                    RevCommit parentCommit = walk.parseCommit(currentCommit.getParent(0).getId());
+                    String parentCommitId = parentCommit.getId().getName();
+
+                    System.out.println("Parent Commit Id : "+parentCommitId);
+                    System.out.println("Commit Message: " + parentCommit.getFullMessage());
+
+                    File parentCommitFolder = new File(mainFolderPath + File.separator + parentCommitId);
+                    if (!parentCommitFolder.exists()) {
+                        parentCommitFolder.mkdir(); // Create the commit folder
+                        fileContentsBefore = processAllFilesInCommit(repository, blobSources, parentCommit, parentCommitFolder);
+                    } else {
+                        // The files were already saved, only refer to their blobs
+                        fileContentsBefore = processAllFilesInCommit(repository, blobSources, parentCommit, null);
+                    }
+
+                    parentUmlReader = new UMLModelReader(fileContentsBefore, budget, canonicalPool, OFF_HEAP_MODELS);
+                    diagnostics.addAll(parentUmlReader.getDiagnostics());
+
+                    UMLModelDiff modelDiff = diff(parentUmlReader, currentUmlReader);
+                    List<Refactoring> refactorings = modelDiff.detectRefactorings();
+                    System.out.println("Refactorings:");
+                    for (Refactoring refactoring : refactorings) {
+                        System.out.println("\t"+refactoring);
+                    }
+                    System.out.println("\n\n");
                 }
-                System.out.println("\n\n");
+                printDiagnostics(diagnostics);
+            } finally {
+                closeOffHeapStores(currentUmlReader, parentUmlReader);
             }
-            
+
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -112,6 +130,9 @@ public class GitHistoryTreefactorImpl implements GitHistoryTreefactor {
         if (!mainFolder.exists()) {
             mainFolder.mkdir();
         }
+        ParseBudget budget = ParseBudget.fromSystemProperties();
+        CanonicalPool canonicalPool = CanonicalPool.forRun();
+        BlobSourceCache blobSources = BlobSourceCache.fromSystemProperties(repository, MAPPED_SOURCE_THRESHOLD_BYTES);
         while (i.hasNext()) {
             RevCommit currentCommit = i.next();
             String commitId = currentCommit.getId().getName();
@@ -123,78 +144,90 @@ public class GitHistoryTreefactorImpl implements GitHistoryTreefactor {
             if (!commitFolder.exists()) {
                 commitFolder.mkdir();
             }
-            Map<String, String> fileContentsAfter = processAllFilesInCommit(repository, currentCommit, commitFolder);
+            Map<String, SourceText> fileContentsAfter = processAllFilesInCommit(repository, blobSources, currentCommit, commitFolder);
 
             // Create UML model for current commit
-            UMLModelReader currentUmlReader = new UMLModelReader(fileContentsAfter);
-            UMLModel currentUMLModel = currentUmlReader.getUmlModel();
-
-            // Process parent commits and find differences
-            if (currentCommit.getParentCount() > 0) {
-                RevCommit parentCommit = currentCommit.getParent(0);
-                String parentCommitId = parentCommit.getId().getName();
-
-                System.out.println("Parent Commit ID: " + parentCommitId);
-
-                // Create and process parent commit
-                File parentCommitFolder = new File(mainFolderPath + File.separator + parentCommitId);
-                Map<String, String> fileContentsBefore;
-
-                if (!parentCommitFolder.exists()) {
-                    parentCommitFolder.mkdir();
-                    fileContentsBefore = processAllFilesInCommit(repository, parentCommit, parentCommitFolder);
-                } else {
-                    // If parent folder exists, reuse existing files
-                    fileContentsBefore = readExistingFiles(parentCommitFolder);
-                }
-
-                // Create UML model for parent commit
-                UMLModelReader parentUmlReader = new UMLModelReader(fileContentsBefore);
-                UMLModel parentUMLModel = parentUmlReader.getUmlModel();
-
-                // Detect and print refactorings
-                System.out.println("Refactorings:");
-                UMLModelDiff modelDiff = new UMLModelDiff(parentUMLModel, currentUMLModel);
-                List<Refactoring> refactorings = modelDiff.detectRefactorings();
+            UMLModelReader currentUmlReader = new UMLModelReader(fileContentsAfter, budget, canonicalPool, OFF_HEAP_MODELS);
+            List<ParseDiagnostic> diagnostics = new ArrayList<>(currentUmlReader.getDiagnostics());
+            UMLModelReader parentUmlReader = null;
+            try {
+                // Process parent commits and find differences
+                if (currentCommit.getParentCount() > 0) {
+                    RevCommit parentCommit = currentCommit.getParent(0);
+                    String parentCommitId = parentCommit.getId().getName();
+
+                    System.out.println("Parent Commit ID: " + parentCommitId);
+
+                    // Create and process parent commit
+                    File parentCommitFolder = new File(mainFolderPath + File.separator + parentCommitId);
+                    Map<String, SourceText> fileContentsBefore;
+
+                    if (!parentCommitFolder.exists()) {
+                        parentCommitFolder.mkdir();
+                        fileContentsBefore = processAllFilesInCommit(repository, blobSources, parentCommit, parentCommitFolder);
+                    } else {
+                        // If parent folder exists, the files were already saved, only refer to their blobs
+                        fileContentsBefore = processAllFilesInCommit(repository, blobSources, parentCommit, null);
+                    }
+
+                    // Create UML model for parent commit
+                    parentUmlReader = new UMLModelReader(fileContentsBefore, budget, canonicalPool, OFF_HEAP_MODELS);
+                    diagnostics.addAll(parentUmlReader.getDiagnostics());
+
+                    // Detect and print refactorings
+                    System.out.println("Refactorings:");
+                    UMLModelDiff modelDiff = diff(parentUmlReader, currentUmlReader);
+                    List<Refactoring> refactorings = modelDiff.detectRefactorings();
                 
-                for (Refactoring refactoring : refactorings) {
-                    System.out.println("\t"+refactoring);
+                    for (Refactoring refactoring : refactorings) {
+                        System.out.println("\t"+refactoring);
+                    }
                 }
-            }
-            else {
-                System.out.println("Initial Commit - No parent commit\n");
+                else {
+                    System.out.println("Initial Commit - No parent commit\n");
+                }
+                printDiagnostics(diagnostics);
+            } finally {
+                // Off-heap memory is released even when reading the parent or diffing fails
+                closeOffHeapStores(currentUmlReader, parentUmlReader);
             }
         }
     }
-    
-    // Helper method to read existing files from a commit folder
-    private Map<String, String> readExistingFiles(File commitFolder) throws IOException {
-        Map<String, String> fileContents = new HashMap<>();
-        String basePath = commitFolder.getAbsolutePath();
-        
-        processDirectory(commitFolder, basePath, fileContents);
-        return fileContents;
+
+    // Diffs the models of two readers, models read off the heap are only loaded for the files that changed
+    private UMLModelDiff diff(UMLModelReader parentUmlReader, UMLModelReader currentUmlReader) {
+        OffHeapModelStore parentStore = parentUmlReader.getOffHeapStore();
+        OffHeapModelStore currentStore = currentUmlReader.getOffHeapStore();
+        if (parentStore == null || currentStore == null) {
+            return new UMLModelDiff(parentUmlReader.getUmlModel(), currentUmlReader.getUmlModel());
+        }
+        Set<String> changedFiles = parentStore.getChangedFiles(currentStore);
+        return new UMLModelDiff(parentStore.load(changedFiles), currentStore.load(changedFiles));
     }
-    
-    private void processDirectory(File directory, String basePath, Map<String, String> fileContents) throws IOException {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    processDirectory(file, basePath, fileContents);
-                } else {
-                    // Get relative path from the commit folder
-                    String relativePath = file.getAbsolutePath().substring(basePath.length() + 1);
-                    String content = new String(Files.readAllBytes(file.toPath()));
-                    fileContents.put(relativePath, content);
-                }
+
+    private void closeOffHeapStores(UMLModelReader... readers) {
+        for (UMLModelReader reader : readers) {
+            if (reader != null && reader.getOffHeapStore() != null) {
+                reader.getOffHeapStore().close();
             }
         }
     }
 
-    // Function to process all files in the commit tree (used for initial commit)
-    private Map<String, String> processAllFilesInCommit(Repository repository, RevCommit currentCommit, File commitFolder) throws IOException {
-        Map<String, String> fileContents = new HashMap<>();
+    // Reports the files of a commit that were left out of its models
+    private void printDiagnostics(List<ParseDiagnostic> diagnostics) {
+        if (diagnostics.isEmpty()) {
+            return;
+        }
+        System.out.println("Skipped files:");
+        for (ParseDiagnostic diagnostic : diagnostics) {
+            System.out.println("\t" + diagnostic);
+        }
+    }
+    
+    // Function to process all files in the commit tree, the folder is left untouched when null
+    private Map<String, SourceText> processAllFilesInCommit(Repository repository, BlobSourceCache blobSources,
+                                                            RevCommit currentCommit, File commitFolder) throws IOException {
+        Map<String, SourceText> fileContents = new HashMap<>();
         
         RevTree tree = currentCommit.getTree();
         try (TreeWalk treeWalk = new TreeWalk(repository)) {
@@ -202,37 +235,31 @@ public class GitHistoryTreefactorImpl implements GitHistoryTreefactor {
             treeWalk.setRecursive(true);
             while (treeWalk.next()) {
                 String filePath = treeWalk.getPathString();
-                fileContents.put(filePath, saveFileContent(repository, filePath, commitFolder, currentCommit));
+                ObjectId blobId = treeWalk.getObjectId(0);
+                if (commitFolder != null) {
+                    saveFileContent(repository, filePath, blobId, commitFolder);
+                }
+                // Contents are only referred to by blob, they are loaded when parsed or diffed
+                fileContents.put(filePath, blobSources.get(blobId));
             }
         }
         return fileContents;
     }
 
     // Function to save the content of a file to the disk
-    private String saveFileContent(Repository repository, String filePath, File commitFolder, RevCommit currentCommit) throws IOException {
-        // Load the file content
-        ObjectId objectId = currentCommit.getTree().getId();
-        String fileContent = null;
-        try (TreeWalk treeWalk = TreeWalk.forPath(repository, filePath, objectId)) {
-            if (treeWalk != null) {
-                ObjectLoader loader = repository.open(treeWalk.getObjectId(0));
-
-                // Read the content of the file as a string
-                fileContent = new String(loader.getBytes(), StandardCharsets.UTF_8);
-
-                // Create the file inside the commit folder
-                File outputFile = new File(commitFolder + File.separator + filePath);
-
-                // Make sure the directories exist before creating the file
-                outputFile.getParentFile().mkdirs();
-
-                // Write the file content
-                try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
-                    outputStream.write(fileContent.getBytes(StandardCharsets.UTF_8));
-                }
-            }
+    private void saveFileContent(Repository repository, String filePath, ObjectId blobId, File commitFolder) throws IOException {
+        ObjectLoader loader = repository.open(blobId);
+
+        // Create the file inside the commit folder
+        File outputFile = new File(commitFolder + File.separator + filePath);
+
+        // Make sure the directories exist before creating the file
+        outputFile.getParentFile().mkdirs();
+
+        // Stream the blob to disk, so it never exists on the heap as a whole
+        try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+            loader.copyTo(outputStream);
         }
-        return fileContent;
     }
 
 }
@@ -0,0 +1,145 @@
+package ca.dal.treefactor.util;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.treesitter.jtreesitter.Language;
+
+/**
+ * Symbol table of a tree-sitter grammar.
+ * Node kinds and field names are resolved once per language into dense integer ids,
+ * so that AST construction does not allocate a type string per node and visitors
+ * can dispatch and look up children with integer comparisons.
+ *
+ * Kind ids are assigned per distinct node-type name, so comparing two kind ids
+ * is equivalent to comparing the node-type strings. Field ids are the grammar's own
+ * field ids, where 0 means "no field".
+ */
+public final class GrammarSymbols {
+    public static final int UNKNOWN_KIND = -1;
+    public static final int NO_FIELD = 0;
+
+    private static final Map<Language, GrammarSymbols> CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * A node kind a visitor dispatches on, identified by its grammar name
+     */
+    public interface Kind {
+        String grammarName();
+    }
+
+    private final int[] kindIdBySymbol;
+    private final String[] kindNames;
+    private final Map<String, Integer> kindIds;
+    private final String[] fieldNames;
+    private final Map<String, Integer> fieldIds;
+    private final Map<Class<?>, Enum<?>[]> kindBindings;
+
+    private GrammarSymbols(Language language) {
+        int symbolCount = language.getSymbolCount();
+        this.kindIdBySymbol = new int[symbolCount];
+        this.kindIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            String name = language.getSymbolName((short) symbol);
+            if (name == null) {
+                kindIdBySymbol[symbol] = UNKNOWN_KIND;
+                continue;
+            }
+            Integer kindId = kindIds.get(name);
+            if (kindId == null) {
+                kindId = names.size();
+                names.add(name);
+                kindIds.put(name, kindId);
+            }
+            kindIdBySymbol[symbol] = kindId;
+        }
+        this.kindNames = names.toArray(new String[0]);
+
+        int fieldCount = language.getFieldCount();
+        this.fieldNames = new String[fieldCount + 1];
+        this.fieldIds = new HashMap<>();
+        for (int fieldId = 1; fieldId <= fieldCount; fieldId++) {
+            String name = language.getFieldNameForId((short) fieldId);
+            fieldNames[fieldId] = name;
+            if (name != null) {
+                fieldIds.put(name, fieldId);
+            }
+        }
+        this.kindBindings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the symbol table of a language, building it on first use
+     */
+    public static GrammarSymbols forLanguage(Language language) {
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(language, GrammarSymbols::new);
+        }
+    }
+
+    /**
+     * Kind id of a grammar symbol as reported by tree-sitter
+     */
+    public int kindIdOfSymbol(int symbol) {
+        return symbol >= 0 && symbol < kindIdBySymbol.length ? kindIdBySymbol[symbol] : UNKNOWN_KIND;
+    }
+
+    /**
+     * Kind id of a node-type name, or UNKNOWN_KIND if the grammar has no such node type
+     */
+    public int kindId(String kindName) {
+        Integer kindId = kindIds.get(kindName);
+        return kindId != null ? kindId : UNKNOWN_KIND;
+    }
+
+    public String kindName(int kindId) {
+        return kindId >= 0 && kindId < kindNames.length ? kindNames[kindId] : null;
+    }
+
+    /**
+     * Field id of a field name, or NO_FIELD if the grammar has no such field
+     */
+    public int fieldId(String fieldName) {
+        Integer fieldId = fieldIds.get(fieldName);
+        return fieldId != null ? fieldId : NO_FIELD;
+    }
+
+    public String fieldName(int fieldId) {
+        return fieldId > NO_FIELD && fieldId < fieldNames.length ? fieldNames[fieldId] : null;
+    }
+
+    public int getKindCount() {
+        return kindNames.length;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length - 1;
+    }
+
+    /**
+     * Binds an enum of node kinds to this grammar.
+     * The returned array is indexed by kind id and holds the matching constant,
+     * or null for kinds the enum does not list.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Enum<E> & Kind> E[] bind(Class<E> kindType) {
+        return (E[]) kindBindings.computeIfAbsent(kindType, type -> {
+            E[] table = (E[]) Array.newInstance(kindType, kindNames.length);
+            for (E kind : kindType.getEnumConstants()) {
+                int kindId = kind.grammarName() != null ? kindId(kind.grammarName()) : UNKNOWN_KIND;
+                if (kindId != UNKNOWN_KIND) {
+                    table[kindId] = kind;
+                }
+            }
+            return table;
+        });
+    }
+}
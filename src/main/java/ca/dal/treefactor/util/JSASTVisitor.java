@@ -3,7 +3,6 @@ package ca.dal.treefactor.util;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import ca.dal.treefactor.model.CodeElementType;
 import ca.dal.treefactor.model.UMLModel;
 import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.model.core.UMLAnnotation;
 import ca.dal.treefactor.model.core.UMLComment;
 import ca.dal.treefactor.model.core.UMLImport;
@@ -23,136 +23,165 @@ import ca.dal.treefactor.model.elements.UMLOperation;
 
 public class JSASTVisitor extends ASTVisitor {
     private static final Logger LOGGER = LoggerFactory.getLogger(JSASTVisitor.class);
+
+    /**
+     * Node kinds the visitor dispatches on
+     */
+    private enum NodeKind implements GrammarSymbols.Kind {
+        PROGRAM("program"),
+        CLASS_DECLARATION("class_declaration"),
+        METHOD_DEFINITION("method_definition"),
+        FUNCTION_DECLARATION("function_declaration"),
+        CLASS_FIELD("class_field"),
+        FIELD_DEFINITION("field_definition"),
+        PROPERTY_DEFINITION("property_definition"),
+        IMPORT_STATEMENT("import_statement"),
+        ARROW_FUNCTION("arrow_function"),
+        VARIABLE_DECLARATION("variable_declaration"),
+        OTHER(null);
+
+        private final String grammarName;
+
+        NodeKind(String grammarName) {
+            this.grammarName = grammarName;
+        }
+
+        @Override
+        public String grammarName() {
+            return grammarName;
+        }
+    }
+
     private UMLClass currentClass;
     private final List<String> currentScope;
 
     public JSASTVisitor(UMLModel model, String sourceCode, String filePath) {
+        this(model, SourceText.of(sourceCode), filePath);
+    }
+
+    public JSASTVisitor(UMLModel model, SourceText sourceCode, String filePath) {
         super(model, sourceCode, filePath);
         this.currentClass = null;
         this.currentScope = new ArrayList<>();
-        LOGGER.info("JSASTVisitor initialized with filePath: {}", filePath);
+        trace.log("JSASTVisitor initialized with filePath: {}", filePath);
     }
 
     @Override
-    public void visit(ASTUtil.ASTNode node) {
-        LOGGER.info("Visiting node of type: {}", node.getType());
+    public boolean enter(ASTUtil.ASTNode node) {
+        trace.log("Visiting node of type: {}", node.getType());
 
         processNodeBasedOnType(node);
 
         // Visit children unless it's a method node
-        if (!isMethodNode(node)) {
-            for (ASTUtil.ASTNode child : node.getChildren()) {
-                visit(child);
-            }
-        }
+        return !isMethodNode(node);
     }
 
     private void processNodeBasedOnType(ASTUtil.ASTNode node) {
-        switch(node.getType()) {
-            case "program":
-                LOGGER.info("Processing program node");
+        switch (kindOf(node, NodeKind.class, NodeKind.OTHER)) {
+            case PROGRAM:
+                trace.log("Processing program node");
                 processModule(node);
                 break;
-            case "class_declaration":
-                LOGGER.info("Found class declaration");
+            case CLASS_DECLARATION:
+                trace.log("Found class declaration");
                 processClass(node);
                 break;
-            case "method_definition":
+            case METHOD_DEFINITION:
                 processMethodDefinition(node);
                 break;
-            case "function_declaration":
+            case FUNCTION_DECLARATION:
                 processFunctionDeclaration(node);
                 break;
-            case "class_field":
-            case "field_definition":
-            case "property_definition":
+            case CLASS_FIELD:
+            case FIELD_DEFINITION:
+            case PROPERTY_DEFINITION:
                 processClassField(node);
                 break;
-            case "import_statement":
-                LOGGER.info("Processing import");
+            case IMPORT_STATEMENT:
+                trace.log("Processing import");
                 processImport(node);
                 break;
-            case "arrow_function":
+            case ARROW_FUNCTION:
                 processArrowFunction(node);
                 break;
-            case "variable_declaration":
+            case VARIABLE_DECLARATION:
                 processVariableDeclaration(node);
                 break;
             default:
-                LOGGER.info("Unhandled node type: {}", node.getType());
+                trace.log("Unhandled node type: {}", node.getType());
         }
     }
 
     private void processMethodDefinition(ASTUtil.ASTNode node) {
         if (currentClass != null) {
-            LOGGER.info("Processing method in class");
+            trace.log("Processing method in class");
             processMethod(node);
         }
     }
 
     private void processFunctionDeclaration(ASTUtil.ASTNode node) {
         if (currentClass == null) {
-            LOGGER.info("Processing standalone function");
+            trace.log("Processing standalone function");
             processMethod(node);
         }
     }
 
     private void processClassField(ASTUtil.ASTNode node) {
         if (currentClass != null) {
-            LOGGER.info("Processing field");
+            trace.log("Processing field");
             processField(node);
         }
     }
 
     private void processArrowFunction(ASTUtil.ASTNode node) {
         if (currentClass == null) {
-            LOGGER.info("Processing arrow function");
+            trace.log("Processing arrow function");
             processMethod(node);
         }
     }
 
     private void processVariableDeclaration(ASTUtil.ASTNode node) {
         if (currentClass != null) {
-            LOGGER.info("Processing variable declaration in class context");
+            trace.log("Processing variable declaration in class context");
             for (ASTUtil.ASTNode child : node.getChildren()) {
-                if (child.getType().equals("variable_declarator")) {
+                if (hasType(child, "variable_declarator")) {
                     processField(child);
                 }
             }
         }
     }
 
-    private static final Set<String> METHOD_NODE_TYPES = Set.of(
-            "method_definition",
-            "function_declaration",
-            "arrow_function"
-    );
-
     private boolean isMethodNode(ASTUtil.ASTNode node) {
-        return METHOD_NODE_TYPES.contains(node.getType());
+        NodeKind kind = kindOf(node, NodeKind.class, NodeKind.OTHER);
+        return kind == NodeKind.METHOD_DEFINITION
+                || kind == NodeKind.FUNCTION_DECLARATION
+                || kind == NodeKind.ARROW_FUNCTION;
     }
 
     @Override
     protected void processModule(ASTUtil.ASTNode node) {
         String moduleName = filePath.replace("/", ".").replaceAll("\\.js$", "");
-        LOGGER.info("Processing module: {}", moduleName);
-        model.addPackage(filePath, moduleName);
+        trace.log("Processing module: {}", moduleName);
+        fragment.packageName(moduleName);
     }
 
     @Override
     protected void processClass(ASTUtil.ASTNode node) {
-        LOGGER.info("Processing class node: {}", node.getType());
-        printNodeStructure(node, 0);
+        trace.log("Processing class node: {}", node.getType());
+        if (trace.isEnabled()) {
+            printNodeStructure(node, 0);
+        }
 
         String className = extractClassName(node);
         if (className == null) {
-            LOGGER.info("Class name is null, returning early");
+            trace.log("Class name is null, returning early");
             return;
         }
 
         LocationInfo location = createClassLocationInfo(node);
         UMLClass previousClass = currentClass;
         currentClass = createUMLClass(className, location);
+        currentClass.setStructuralHash(getStructuralHash(node));
 
         processClassHeritage(node);
         processClassDecorator(node);
@@ -172,7 +201,7 @@ public class JSASTVisitor extends ASTVisitor {
     }
 
     private UMLClass createUMLClass(String className, LocationInfo location) {
-        return new UMLClass(extractModuleName(filePath), className, location);
+        return new UMLClass(name(extractModuleName(filePath)), name(className), location);
     }
 
     private void processClassHeritage(ASTUtil.ASTNode node) {
@@ -248,9 +277,11 @@ public class JSASTVisitor extends ASTVisitor {
     }
 
     private void addClassToModel(String className) {
-        LOGGER.info("Adding class {} to model", className);
-        model.addClass(currentClass);
-        LOGGER.info("Current model classes count: {}", model.getClasses().size());
+        trace.log("Adding class {} to model", className);
+        fragment.addClass(currentClass);
+        if (trace.isEnabled()) {
+            trace.log("Current model classes count: {}", fragment.getClassCount());
+        }
     }
 
     @Override
@@ -265,15 +296,16 @@ public class JSASTVisitor extends ASTVisitor {
     private boolean isInvalidMethod(String methodName) {
         boolean isInvalid = methodName == null;
         if (!isInvalid) {
-            LOGGER.info("Processing method: {}", methodName);
+            trace.log("Processing method: {}", methodName);
         }
         return isInvalid;
     }
 
     private UMLOperation createOperation(ASTUtil.ASTNode node, String methodName) {
         LocationInfo location = createMethodLocation(node);
-        UMLOperation operation = new UMLOperation(methodName, location);
+        UMLOperation operation = new UMLOperation(name(methodName), location);
         operation.setVisibility(Visibility.PUBLIC);
+        operation.setStructuralHash(getStructuralHash(node));
 
         processAsyncDecorator(node, operation);
         processParameters(node, operation);
@@ -306,7 +338,7 @@ public class JSASTVisitor extends ASTVisitor {
     private void setMethodBody(ASTUtil.ASTNode node, UMLOperation operation) {
         ASTUtil.ASTNode body = findChildByType(node, "statement_block");
         if (body != null) {
-            operation.setBody(body.getText(sourceCode));
+            operation.setBody(getBodyReference(body));
         }
     }
 
@@ -315,19 +347,21 @@ public class JSASTVisitor extends ASTVisitor {
             operation.setClassName(currentClass.getName());
             operation.setConstructor(methodName.equals("constructor"));
             currentClass.addOperation(operation);
-            LOGGER.info("Added method {} to class {}", methodName, currentClass.getName());
+            trace.log("Added method {} to class {}", methodName, currentClass.getName());
         } else {
-            model.addOperation(operation);
-            LOGGER.info("Added standalone method {} to model", methodName);
+            fragment.addOperation(operation);
+            trace.log("Added standalone method {} to model", methodName);
         }
     }
 
     private void processParameter(ASTUtil.ASTNode node, UMLOperation operation) {
-        LOGGER.info("Processing parameter node: {}", node.getType());
+        trace.log("Processing parameter node: {}", node.getType());
 
         // Debugging log
-        LOGGER.info("Node full text: {}", node.getText(sourceCode));
-        printNodeStructure(node, 0);
+        if (trace.isEnabled()) {
+            trace.log("Node full text: {}", node.getText(sourceCode));
+            printNodeStructure(node, 0);
+        }
 
         String paramName = null;
         String defaultValue = null;
@@ -341,11 +375,11 @@ public class JSASTVisitor extends ASTVisitor {
             paramName = node.getText(sourceCode);
         }
 
-        if (node.getType().equals("rest_parameter")) {
+        if (hasType(node, "rest_parameter")) {
             paramName = "..." + getChildText(node, "identifier");
-        } else if (node.getType().equals("object_pattern")) {
+        } else if (hasType(node, "object_pattern")) {
             paramName = node.getText(sourceCode);
-        } else if (node.getType().equals("assignment_pattern")) {
+        } else if (hasType(node, "assignment_pattern")) {
             ASTUtil.ASTNode left = findChildByFieldName(node, "left");
             ASTUtil.ASTNode right = findChildByFieldName(node, "right");
             paramName = left != null ? left.getText(sourceCode) : null;
@@ -355,12 +389,12 @@ public class JSASTVisitor extends ASTVisitor {
         if (paramName != null) {
             LocationInfo location = new LocationInfo(filePath, node.getStartPoint(), node.getEndPoint(),
                     CodeElementType.PARAMETER_DECLARATION);
-            UMLParameter parameter = new UMLParameter(paramName, new UMLType("any"), location);
+            UMLParameter parameter = new UMLParameter(name(paramName), type("any"), location);
             if (defaultValue != null) {
                 parameter.setDefaultValue(defaultValue);
             }
             operation.addParameter(parameter);
-            LOGGER.info("Added parameter {} to operation", paramName);
+            trace.log("Added parameter {} to operation", paramName);
         } else {
             LOGGER.warn("Could not extract parameter name from node");
         }
@@ -371,13 +405,13 @@ public class JSASTVisitor extends ASTVisitor {
         if (currentClass == null) return;
 
         String fieldName = extractFieldName(node);
-        LOGGER.info("Processing field: {}", fieldName);
+        trace.log("Processing field: {}", fieldName);
         if (fieldName == null) return;
 
         LocationInfo location = new LocationInfo(filePath, node.getStartPoint(), node.getEndPoint(),
                 CodeElementType.FIELD_DECLARATION);
 
-        UMLAttribute attribute = new UMLAttribute(fieldName, new UMLType("any"), location);
+        UMLAttribute attribute = new UMLAttribute(name(fieldName), type("any"), location);
 
         // Set visibility based on field name
         attribute.setVisibility(fieldName.startsWith("#") ? Visibility.PRIVATE : Visibility.PUBLIC);
@@ -394,18 +428,20 @@ public class JSASTVisitor extends ASTVisitor {
         }
 
         currentClass.addAttribute(attribute);
-        LOGGER.info("Added field {} to class {}", fieldName, currentClass.getName());
+        trace.log("Added field {} to class {}", fieldName, currentClass.getName());
     }
 
     @Override
     protected void processImport(ASTUtil.ASTNode node) {
-        LOGGER.info("Processing import node");
+        trace.log("Processing import node");
         LocationInfo location = new LocationInfo(filePath, node.getStartPoint(), node.getEndPoint(),
                 CodeElementType.IMPORT_DECLARATION);
 
         // Debug print of the AST structure
-        LOGGER.info("Import node structure:");
-        printNodeStructure(node, 0);
+        trace.log("Import node structure:");
+        if (trace.isEnabled()) {
+            printNodeStructure(node, 0);
+        }
 
         String modulePath = null;
         List<String> importNames = new ArrayList<>();
@@ -425,67 +461,80 @@ public class JSASTVisitor extends ASTVisitor {
                 UMLImport umlImport = UMLImport.builder(fullName, location)
                         .type(UMLImport.ImportType.SINGLE)
                         .build();
-                model.addImport(filePath, umlImport);
-                LOGGER.info("Added import: {}", fullName);
+                fragment.addImport(umlImport);
+                trace.log("Added import: {}", fullName);
             }
         }
     }
 
     private void processImportChildren(ASTUtil.ASTNode node, List<String> importNames) {
         for (ASTUtil.ASTNode child : node.getChildren()) {
-            if (child.getType().equals("import_clause")) {
+            if (hasType(child, "import_clause")) {
                 processImportChildren(child, importNames);
-            } else if (child.getType().equals("named_imports")) {
+            } else if (hasType(child, "named_imports")) {
                 processImportChildren(child, importNames);
-            } else if (child.getType().equals("import_specifier")) {
+            } else if (hasType(child, "import_specifier")) {
                 ASTUtil.ASTNode identifier = findChildByType(child, "identifier");
                 if (identifier != null) {
                     String name = identifier.getText(sourceCode);
                     if (name != null && !name.isEmpty()) {
                         importNames.add(name);
-                        LOGGER.info("Found import name: {}", name);
+                        trace.log("Found import name: {}", name);
                     }
                 }
             }
         }
     }
 
-    private void printNodeStructure(ASTUtil.ASTNode node, int depth) {
-        String indent = "  ".repeat(depth);
-        String sanitizedText = node.getText(sourceCode).replaceAll("\n", "\\n");
-        String logMessage = String.format("%s[%s] '%s' (children: %d)",
-                indent,
-                node.getType(),
-                sanitizedText,
-                node.getChildren().size()
-        );
+    private void printNodeStructure(ASTUtil.ASTNode root, int rootDepth) {
+        ASTUtil.walk(root, new ASTUtil.ASTWalker() {
+            private int depth = rootDepth;
 
-        LOGGER.info(logMessage);
+            @Override
+            public boolean enter(ASTUtil.ASTNode node) {
+                String indent = "  ".repeat(depth++);
+                String sanitizedText = node.getText(sourceCode).replaceAll("\n", "\\n");
+                String logMessage = String.format("%s[%s] '%s' (children: %d)",
+                        indent,
+                        node.getType(),
+                        sanitizedText,
+                        node.getChildCount()
+                );
 
-        node.getChildren().forEach(child -> printNodeStructure(child, depth + 1));
+                if (trace.isEnabled()) {
+                    trace.log(logMessage);
+                }
+                return true;
+            }
+
+            @Override
+            public void leave(ASTUtil.ASTNode node) {
+                depth--;
+            }
+        });
     }
 
     private String extractClassName(ASTUtil.ASTNode node) {
         ASTUtil.ASTNode nameNode = findChildByType(node, "identifier");
         String className = nameNode != null ? nameNode.getText(sourceCode) : null;
-        LOGGER.info("Extracted class name: {}", className);
+        trace.log("Extracted class name: {}", className);
         return className;
     }
 
     private String extractMethodName(ASTUtil.ASTNode node) {
         String methodName = null;
-        if (node.getType().equals("method_definition")) {
+        if (hasType(node, "method_definition")) {
             methodName = getChildText(node, "property_identifier");
-        } else if (node.getType().equals("function_declaration")) {
+        } else if (hasType(node, "function_declaration")) {
             methodName = getChildText(node, "identifier");
-        } else if (node.getType().equals("arrow_function")) {
+        } else if (hasType(node, "arrow_function")) {
             // Get name from parent variable declarator
             Optional<ASTUtil.ASTNode> parentNode = node.getParent();
-            if (parentNode.isPresent() && parentNode.get().getType().equals("variable_declarator")) {
+            if (parentNode.isPresent() && hasType(parentNode.get(), "variable_declarator")) {
                 methodName = getChildText(parentNode.get(), "identifier");
             }
         }
-        LOGGER.info("Extracted method name: {}", methodName);
+        trace.log("Extracted method name: {}", methodName);
         return methodName;
     }
 
@@ -499,7 +548,7 @@ public class JSASTVisitor extends ASTVisitor {
             nameNode = findChildByType(node, "identifier");
         }
         String fieldName = nameNode != null ? nameNode.getText(sourceCode) : null;
-        LOGGER.info("Extracted field name: {}", fieldName);
+        trace.log("Extracted field name: {}", fieldName);
         return fieldName;
     }
 
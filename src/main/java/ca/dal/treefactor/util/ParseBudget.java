@@ -0,0 +1,133 @@
+package ca.dal.treefactor.util;
+
+/**
+ * Per-file limits for building a model from source.
+ * A file larger than the size limit is not parsed, parsing is cancelled by tree-sitter
+ * once the parse timeout elapses, and visiting is aborted once the visit timeout elapses.
+ * A limit of 0 disables the corresponding check.
+ */
+public final class ParseBudget {
+    public static final String MAX_FILE_BYTES_PROPERTY = "treefactor.parse.maxFileBytes";
+    public static final String PARSE_TIMEOUT_PROPERTY = "treefactor.parse.timeoutMillis";
+    public static final String VISIT_TIMEOUT_PROPERTY = "treefactor.visit.timeoutMillis";
+
+    private static final long DEFAULT_MAX_FILE_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_PARSE_TIMEOUT_MILLIS = 30_000;
+    private static final long DEFAULT_VISIT_TIMEOUT_MILLIS = 30_000;
+
+    private static final ParseBudget UNLIMITED = builder()
+            .maxFileBytes(0)
+            .parseTimeoutMillis(0)
+            .visitTimeoutMillis(0)
+            .build();
+
+    private final long maxFileBytes;
+    private final long parseTimeoutMillis;
+    private final long visitTimeoutMillis;
+
+    private ParseBudget(Builder builder) {
+        this.maxFileBytes = builder.maxFileBytes;
+        this.parseTimeoutMillis = builder.parseTimeoutMillis;
+        this.visitTimeoutMillis = builder.visitTimeoutMillis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Budget with all limits disabled
+     */
+    public static ParseBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Budget configured through system properties, falling back to the defaults
+     */
+    public static ParseBudget fromSystemProperties() {
+        return builder()
+                .maxFileBytes(Long.getLong(MAX_FILE_BYTES_PROPERTY, DEFAULT_MAX_FILE_BYTES))
+                .parseTimeoutMillis(Long.getLong(PARSE_TIMEOUT_PROPERTY, DEFAULT_PARSE_TIMEOUT_MILLIS))
+                .visitTimeoutMillis(Long.getLong(VISIT_TIMEOUT_PROPERTY, DEFAULT_VISIT_TIMEOUT_MILLIS))
+                .build();
+    }
+
+    // Getters
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public long getParseTimeoutMillis() {
+        return parseTimeoutMillis;
+    }
+
+    public long getVisitTimeoutMillis() {
+        return visitTimeoutMillis;
+    }
+
+    // Checks
+    public boolean allowsFileSize(long sizeInBytes) {
+        return maxFileBytes <= 0 || sizeInBytes <= maxFileBytes;
+    }
+
+    public boolean hasParseTimeout() {
+        return parseTimeoutMillis > 0;
+    }
+
+    public long getParseTimeoutMicros() {
+        return parseTimeoutMillis * 1000;
+    }
+
+    /**
+     * Returns the System.nanoTime() value at which a visit started now must end, or 0 if unbounded
+     */
+    public long newVisitDeadline() {
+        if (visitTimeoutMillis <= 0) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + visitTimeoutMillis * 1_000_000;
+        return deadline != 0 ? deadline : 1;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseBudget{maxFileBytes=" + maxFileBytes +
+                ", parseTimeoutMillis=" + parseTimeoutMillis +
+                ", visitTimeoutMillis=" + visitTimeoutMillis + "}";
+    }
+
+    /**
+     * Thrown by a visitor whose visit deadline has passed
+     */
+    public static class BudgetExceededException extends RuntimeException {
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Builder {
+        private long maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+        private long parseTimeoutMillis = DEFAULT_PARSE_TIMEOUT_MILLIS;
+        private long visitTimeoutMillis = DEFAULT_VISIT_TIMEOUT_MILLIS;
+
+        public Builder maxFileBytes(long maxFileBytes) {
+            this.maxFileBytes = maxFileBytes;
+            return this;
+        }
+
+        public Builder parseTimeoutMillis(long parseTimeoutMillis) {
+            this.parseTimeoutMillis = parseTimeoutMillis;
+            return this;
+        }
+
+        public Builder visitTimeoutMillis(long visitTimeoutMillis) {
+            this.visitTimeoutMillis = visitTimeoutMillis;
+            return this;
+        }
+
+        public ParseBudget build() {
+            return new ParseBudget(this);
+        }
+    }
+}
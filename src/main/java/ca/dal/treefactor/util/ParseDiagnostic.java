@@ -0,0 +1,40 @@
+package ca.dal.treefactor.util;
+
+/**
+ * Records a source file that was left out of a model, and why
+ */
+public class ParseDiagnostic {
+    public enum Reason {
+        FILE_TOO_LARGE,
+        PARSE_TIMEOUT,
+        VISIT_TIMEOUT,
+        PARSE_ERROR
+    }
+
+    private final String filePath;
+    private final Reason reason;
+    private final String detail;
+
+    public ParseDiagnostic(String filePath, Reason reason, String detail) {
+        this.filePath = filePath;
+        this.reason = reason;
+        this.detail = detail;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return filePath + ": " + reason + (detail != null ? " (" + detail + ")" : "");
+    }
+}
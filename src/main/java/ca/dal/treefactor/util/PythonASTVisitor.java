@@ -3,12 +3,10 @@ package ca.dal.treefactor.util;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import ca.dal.treefactor.model.CodeElementType;
 import ca.dal.treefactor.model.UMLModel;
 import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.model.core.UMLAnnotation;
 import ca.dal.treefactor.model.core.UMLComment;
 import ca.dal.treefactor.model.core.UMLImport;
@@ -21,50 +19,81 @@ import ca.dal.treefactor.model.elements.UMLOperation;
 
 
 public class PythonASTVisitor extends ASTVisitor {
-    private static final Logger LOGGER = LoggerFactory.getLogger(PythonASTVisitor.class);
+    /**
+     * Node kinds the visitor dispatches on
+     */
+    private enum NodeKind implements GrammarSymbols.Kind {
+        MODULE("module"),
+        CLASS_DEFINITION("class_definition"),
+        DECORATED_DEFINITION("decorated_definition"),
+        FUNCTION_DEFINITION("function_definition"),
+        ASSIGNMENT("assignment"),
+        IMPORT_STATEMENT("import_statement"),
+        IMPORT_FROM_STATEMENT("import_from_statement"),
+        EXPRESSION_STATEMENT("expression_statement"),
+        TYPED_DEFAULT_PARAMETER("typed_default_parameter"),
+        TYPED_PARAMETER("typed_parameter"),
+        DEFAULT_PARAMETER("default_parameter"),
+        IDENTIFIER("identifier"),
+        OTHER(null);
+
+        private final String grammarName;
+
+        NodeKind(String grammarName) {
+            this.grammarName = grammarName;
+        }
+
+        @Override
+        public String grammarName() {
+            return grammarName;
+        }
+    }
+
     private UMLClass currentClass; // Track current class being processed
     private final List<String> currentScope; // Track nested scopes
 
     public PythonASTVisitor(UMLModel model, String sourceCode, String filePath) {
+        this(model, SourceText.of(sourceCode), filePath);
+    }
+
+    public PythonASTVisitor(UMLModel model, SourceText sourceCode, String filePath) {
         super(model, sourceCode, filePath);  // Parent class will initialize model, sourceCode, and filePath
         this.currentClass = null;
         this.currentScope = new ArrayList<>();
     }
 
     @Override
-    public void visit(ASTUtil.ASTNode node) {
+    public boolean enter(ASTUtil.ASTNode node) {
         // Process node based on its type
-        switch(node.getType()) {
-            case "module":
+        switch (kindOf(node, NodeKind.class, NodeKind.OTHER)) {
+            case MODULE:
                 processModule(node);
                 break;
-            case "class_definition":
-            case "decorated_definition":
+            case CLASS_DEFINITION:
+            case DECORATED_DEFINITION:
                 processClass(node);
                 // Don't visit children for class definitions since we handle them in processClass
-                return;
-            case "function_definition":
+                return false;
+            case FUNCTION_DEFINITION:
                 // Only process standalone functions here
                 // Methods inside classes are handled in processClass
                 if (currentClass == null) {
                     processMethod(node);
                 }
                 break;
-            case "assignment":
+            case ASSIGNMENT:
                 processField(node);
                 break;
-            case "import_statement":
+            case IMPORT_STATEMENT:
                 processImport(node);
                 break;
-            case "import_from_statement":
+            case IMPORT_FROM_STATEMENT:
                 processFromImport(node);
                 break;
         }
 
         // Visit children
-        for(ASTUtil.ASTNode child : node.getChildren()) {
-            visit(child);
-        }
+        return true;
     }
 
 
@@ -74,7 +103,7 @@ public class PythonASTVisitor extends ASTVisitor {
      */
     @Override
     protected void processClass(ASTUtil.ASTNode node) {
-        LOGGER.info("Processing class node: {}", node.getType());
+        trace.log("Processing class node: {}", node.getType());
 
         // Extract class definition and any decorators
         ClassDefinitionInfo classInfo = getClassDefinitionInfo(node);
@@ -84,7 +113,7 @@ public class PythonASTVisitor extends ASTVisitor {
         String className = extractClassName(classInfo.classNode);
         if (className == null) return;
 
-        LOGGER.info("Found class: {}", className);
+        trace.log("Found class: {}", className);
 
         // Store current class and create new one
         UMLClass previousClass = currentClass;
@@ -94,10 +123,10 @@ public class PythonASTVisitor extends ASTVisitor {
         processClassElements(classInfo);
 
         // Add class to model and restore previous class context
-        model.addClass(currentClass);
+        fragment.addClass(currentClass);
         currentClass = previousClass;
 
-        LOGGER.info("Finished processing class: {}", className);
+        trace.log("Finished processing class: {}", className);
     }
 
     /**
@@ -125,11 +154,11 @@ public class PythonASTVisitor extends ASTVisitor {
         List<ASTUtil.ASTNode> decorators = new ArrayList<>();
         ASTUtil.ASTNode classNode;
 
-        if (node.getType().equals("decorated_definition")) {
-            LOGGER.info("Found decorated definition");
+        if (hasType(node, "decorated_definition")) {
+            trace.log("Found decorated definition");
             // Extract decorators from decorated definition
             for (ASTUtil.ASTNode child : node.getChildren()) {
-                if (child.getType().equals("decorator")) {
+                if (hasType(child, "decorator")) {
                     decorators.add(child);
                 }
             }
@@ -152,7 +181,9 @@ public class PythonASTVisitor extends ASTVisitor {
                 node.getEndPoint(),
                 CodeElementType.CLASS_DECLARATION
         );
-        return new UMLClass(extractModuleName(filePath), className, locationInfo);
+        UMLClass umlClass = new UMLClass(name(extractModuleName(filePath)), name(className), locationInfo);
+        umlClass.setStructuralHash(getStructuralHash(node));
+        return umlClass;
     }
 
     /**
@@ -162,7 +193,9 @@ public class PythonASTVisitor extends ASTVisitor {
     private void processClassElements(ClassDefinitionInfo classInfo) {
         // Process class features
         if (!classInfo.decorators.isEmpty()) {
-            LOGGER.info("Processing {} decorators", classInfo.decorators.size());
+            if (trace.isEnabled()) {
+                trace.log("Processing {} decorators", classInfo.decorators.size());
+            }
             processDecorators(classInfo.decorators, currentClass);
         }
 
@@ -184,8 +217,9 @@ public class PythonASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode body = findChildByType(classNode, "block");
         if (body == null) return;
 
-        LOGGER.info("Class body AST:");
-        LOGGER.info(ASTUtil.printAST(body, 0));
+        if (trace.isEnabled()) {
+            trace.log("Class body AST:\n{}", ASTUtil.printAST(body, 0));
+        }
 
         for (ASTUtil.ASTNode child : body.getChildren()) {
             processClassBodyNode(child);
@@ -197,22 +231,22 @@ public class PythonASTVisitor extends ASTVisitor {
      * Routes each node to its appropriate processor based on its type.
      */
     private void processClassBodyNode(ASTUtil.ASTNode child) {
-        LOGGER.info("Processing class body node: {}", child.getType());
+        trace.log("Processing class body node: {}", child.getType());
 
-        switch(child.getType()) {
-            case "function_definition":
+        switch (kindOf(child, NodeKind.class, NodeKind.OTHER)) {
+            case FUNCTION_DEFINITION:
                 processMethod(child);
                 break;
-            case "decorated_definition":
+            case DECORATED_DEFINITION:
                 processDecoratedMethod(child);
                 break;
-            case "expression_statement":
+            case EXPRESSION_STATEMENT:
                 processClassExpression(child);
                 break;
-            case "assignment":
+            case ASSIGNMENT:
                 processField(child);
                 break;
-            case "class_definition":
+            case CLASS_DEFINITION:
                 processClass(child);  // Handle nested classes
                 break;
         }
@@ -237,11 +271,13 @@ public class PythonASTVisitor extends ASTVisitor {
         // Handle assignments
         ASTUtil.ASTNode assignmentNode = findChildByType(child, "assignment");
         if (assignmentNode != null) {
-            LOGGER.info("Found assignment in class body: {}", assignmentNode.getText(sourceCode));
+            if (trace.isEnabled()) {
+                trace.log("Found assignment in class body: {}", assignmentNode.getText(sourceCode));
+            }
             processField(assignmentNode);
         }
         // Handle docstrings
-        else if (child.getChildren().size() == 1 && child.getChildren().get(0).getType().equals("string")) {
+        else if (child.getChildren().size() == 1 && hasType(child.getChildren().get(0), "string")) {
             processDocstring(child, currentClass);
         }
     }
@@ -260,7 +296,7 @@ public class PythonASTVisitor extends ASTVisitor {
     protected void processModule(ASTUtil.ASTNode node) {
         // Extract module name from file path
         String moduleName = extractModuleName(filePath);
-        model.addPackage(filePath, moduleName);
+        fragment.packageName(moduleName);
     }
 
 
@@ -269,7 +305,7 @@ public class PythonASTVisitor extends ASTVisitor {
         String functionName = extractFunctionName(node);
         if (functionName == null) return;
 
-        LOGGER.info("Processing method: {}", functionName);
+        trace.log("Processing method: {}", functionName);
 
         LocationInfo locationInfo = new LocationInfo(
                 filePath,
@@ -278,8 +314,9 @@ public class PythonASTVisitor extends ASTVisitor {
                 CodeElementType.METHOD_DECLARATION
         );
 
-        UMLOperation.Builder builder = UMLOperation.builder(functionName, locationInfo);
+        UMLOperation.Builder builder = UMLOperation.builder(name(functionName), locationInfo);
         builder.visibility(determineVisibility(functionName));
+        builder.structuralHash(getStructuralHash(node));
 
         // Add method to scope before processing body
         currentScope.add("def " + functionName);
@@ -293,7 +330,7 @@ public class PythonASTVisitor extends ASTVisitor {
         // Process body
         ASTUtil.ASTNode body = findChildByType(node, "block");
         if (body != null) {
-            builder.body(body.getText(sourceCode));
+            builder.body(getBodyReference(body));
             // Visit body nodes to process attributes
             for (ASTUtil.ASTNode child : body.getChildren()) {
                 visit(child);
@@ -305,9 +342,9 @@ public class PythonASTVisitor extends ASTVisitor {
         if (currentClass != null) {
             operation.setClassName(currentClass.getName());
             currentClass.addOperation(operation);
-            LOGGER.info("Added method " + functionName + " to class " + currentClass.getName());
+            trace.log("Added method {} to class {}", functionName, currentClass.getName());
         } else {
-            model.addOperation(operation);
+            fragment.addOperation(operation);
         }
 
         // Remove method from scope
@@ -320,19 +357,19 @@ public class PythonASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode leftNode = findChildByFieldName(node, "left");
         if (leftNode == null) return;
 
-        if (leftNode.getType().equals("attribute")) {
+        if (hasType(leftNode, "attribute")) {
             processInstanceAttribute(node, leftNode);
-        } else if (leftNode.getType().equals("identifier") && !isInMethod()) {
+        } else if (hasType(leftNode, "identifier") && !isInMethod()) {
             processClassAttribute(node, leftNode);
         }
     }
 
     private boolean shouldProcessField(ASTUtil.ASTNode node) {
         if (currentClass == null) {
-            LOGGER.info("No current class context");
+            trace.log("No current class context");
             return false;
         }
-        return node.getType().equals("assignment");
+        return hasType(node, "assignment");
     }
 
     private void processInstanceAttribute(ASTUtil.ASTNode node, ASTUtil.ASTNode leftNode) {
@@ -367,8 +404,8 @@ public class PythonASTVisitor extends ASTVisitor {
         );
 
         UMLAttribute attribute = new UMLAttribute(
-                fieldName,
-                new UMLType("object"),
+                name(fieldName),
+                type("object"),
                 locationInfo
         );
 
@@ -407,7 +444,7 @@ public class PythonASTVisitor extends ASTVisitor {
                 .alias(alias)
                 .build();
 
-        model.addImport(filePath, umlImport);
+        fragment.addImport(umlImport);
     }
 
     private void processFromImport(ASTUtil.ASTNode node) {
@@ -416,7 +453,7 @@ public class PythonASTVisitor extends ASTVisitor {
         if (moduleNode == null) return;
 
         String moduleName = moduleNode.getText(sourceCode);
-        LOGGER.info("Module name: {}", moduleName);
+        trace.log("Module name: {}", moduleName);
 
         LocationInfo locationInfo = new LocationInfo(
                 filePath,
@@ -429,7 +466,7 @@ public class PythonASTVisitor extends ASTVisitor {
         for (ASTUtil.ASTNode child : node.getChildren()) {
             if (child.getFieldName() != null && child.getFieldName().equals("name")) {
                 String importedName = child.getText(sourceCode);
-                LOGGER.info("Importing: {}", importedName);
+                trace.log("Importing: {}", importedName);
 
                 // Construct full import name (e.g., "os.path.join")
                 String fullName = moduleName + "." + importedName;
@@ -438,8 +475,8 @@ public class PythonASTVisitor extends ASTVisitor {
                         .type(UMLImport.ImportType.SINGLE)
                         .build();
 
-                model.addImport(filePath, umlImport);
-                LOGGER.info("Added import: {}", fullName);
+                fragment.addImport(umlImport);
+                trace.log("Added import: {}", fullName);
             }
         }
     }
@@ -492,10 +529,10 @@ public class PythonASTVisitor extends ASTVisitor {
         boolean keywordOnlyMode = false;
 
         for (ASTUtil.ASTNode param : parameters.getChildren()) {
-            LOGGER.info("Parameter node type: {}", param.getType());
+            trace.log("Parameter node type: {}", param.getType());
 
-            if (param.getType().equals("keyword_separator")) {
-                LOGGER.info("Found keyword separator");
+            if (hasType(param, "keyword_separator")) {
+                trace.log("Found keyword separator");
                 keywordOnlyMode = true;
                 continue;
             }
@@ -508,17 +545,17 @@ public class PythonASTVisitor extends ASTVisitor {
      * Routes parameter processing based on parameter type
      */
     private void processParameter(ASTUtil.ASTNode param, UMLOperation.Builder builder, boolean keywordOnlyMode) {
-        switch (param.getType()) {
-            case "typed_default_parameter":
+        switch (kindOf(param, NodeKind.class, NodeKind.OTHER)) {
+            case TYPED_DEFAULT_PARAMETER:
                 processTypedDefaultParameter(param, builder, keywordOnlyMode);
                 break;
-            case "typed_parameter":
+            case TYPED_PARAMETER:
                 processTypedParameter(param, builder, keywordOnlyMode);
                 break;
-            case "default_parameter":
+            case DEFAULT_PARAMETER:
                 processDefaultParameter(param, builder, keywordOnlyMode);
                 break;
-            case "identifier":
+            case IDENTIFIER:
                 processSimpleParameter(param, builder, keywordOnlyMode);
                 break;
         }
@@ -539,7 +576,7 @@ public class PythonASTVisitor extends ASTVisitor {
         setParameterProperties(parameter, param, keywordOnlyMode);
         builder.addParameter(parameter);
 
-        LOGGER.info("Added typed parameter with default: {} type: {} {}",
+        trace.log("Added typed parameter with default: {} type: {} {}",
                 paramName, paramType.getTypeName(),
                 keywordOnlyMode ? "(keyword-only)" : "");
     }
@@ -559,7 +596,7 @@ public class PythonASTVisitor extends ASTVisitor {
         parameter.setKeywordOnly(keywordOnlyMode);
         builder.addParameter(parameter);
 
-        LOGGER.info("Added typed parameter: {} with type: {} {}",
+        trace.log("Added typed parameter: {} with type: {} {}",
                 paramName, paramType.getTypeName(),
                 keywordOnlyMode ? "(keyword-only)" : "");
     }
@@ -573,12 +610,12 @@ public class PythonASTVisitor extends ASTVisitor {
         if (nameNode == null) return;
 
         String paramName = nameNode.getText(sourceCode);
-        UMLParameter parameter = createParameter(param, paramName, new UMLType("object"));
+        UMLParameter parameter = createParameter(param, paramName, type("object"));
 
         setParameterProperties(parameter, param, keywordOnlyMode);
         builder.addParameter(parameter);
 
-        LOGGER.info("Added parameter with default: {}", paramName);
+        trace.log("Added parameter with default: {}", paramName);
     }
 
     /**
@@ -587,12 +624,12 @@ public class PythonASTVisitor extends ASTVisitor {
      */
     private void processSimpleParameter(ASTUtil.ASTNode param, UMLOperation.Builder builder, boolean keywordOnlyMode) {
         String paramName = param.getText(sourceCode);
-        UMLParameter parameter = createParameter(param, paramName, new UMLType("object"));
+        UMLParameter parameter = createParameter(param, paramName, type("object"));
 
         parameter.setKeywordOnly(keywordOnlyMode);
         builder.addParameter(parameter);
 
-        LOGGER.info("Added simple parameter: {} {}",
+        trace.log("Added simple parameter: {} {}",
                 paramName, keywordOnlyMode ? "(keyword-only)" : "");
     }
 
@@ -606,7 +643,7 @@ public class PythonASTVisitor extends ASTVisitor {
                 param.getEndPoint(),
                 CodeElementType.PARAMETER_DECLARATION
         );
-        return new UMLParameter(name, type, paramLocation);
+        return new UMLParameter(name(name), type, paramLocation);
     }
 
     /**
@@ -615,10 +652,10 @@ public class PythonASTVisitor extends ASTVisitor {
     private UMLType getParameterType(ASTUtil.ASTNode param) {
         ASTUtil.ASTNode typeNode = findChildByFieldName(param, "type");
         if (typeNode == null) {
-            return new UMLType("object");
+            return type("object");
         }
         String typeName = processGenericType(typeNode);
-        return new UMLType(typeName);
+        return type(typeName);
     }
 
     /**
@@ -628,22 +665,24 @@ public class PythonASTVisitor extends ASTVisitor {
         ASTUtil.ASTNode valueNode = findChildByFieldName(param, "value");
         if (valueNode != null) {
             parameter.setDefaultValue(valueNode.getText(sourceCode));
-            LOGGER.info("Set default value: {}", valueNode.getText(sourceCode));
+            if (trace.isEnabled()) {
+                trace.log("Set default value: {}", valueNode.getText(sourceCode));
+            }
         }
         parameter.setKeywordOnly(keywordOnlyMode);
     }
 
 
     private void processReturnType(ASTUtil.ASTNode node, UMLOperation.Builder builder) {
-        LOGGER.info("in processReturnType()");
+        trace.log("in processReturnType()");
 
         ASTUtil.ASTNode returnType = findChildByFieldName(node, "return_type");
         if (returnType != null) {
-            LOGGER.info("return type != null");
+            trace.log("return type != null");
             String typeName = processGenericType(returnType);
-            builder.returnType(new UMLType(typeName));
+            builder.returnType(type(typeName));
         } else {
-            builder.returnType(new UMLType("None")); // Default Python return type
+            builder.returnType(type("None")); // Default Python return type
         }
     }
     /**
@@ -656,7 +695,7 @@ public class PythonASTVisitor extends ASTVisitor {
     private String processGenericType(ASTUtil.ASTNode typeNode) {
         if (typeNode == null) return "object";
 
-        LOGGER.info("Processing type node: {}", typeNode.getType());
+        trace.log("Processing type node: {}", typeNode.getType());
 
         // Check if this is a generic type (e.g., List[str]) or a simple type (e.g., int)
         ASTUtil.ASTNode genericNode = findChildByType(typeNode, "generic_type");
@@ -715,7 +754,7 @@ public class PythonASTVisitor extends ASTVisitor {
         List<String> typeParams = new ArrayList<>();
 
         for (ASTUtil.ASTNode child : genericNode.getChildren()) {
-            if (child.getType().equals("type_parameter")) {
+            if (hasType(child, "type_parameter")) {
                 processTypeParameter(child, typeParams);
             }
         }
@@ -731,10 +770,12 @@ public class PythonASTVisitor extends ASTVisitor {
      * @param typeParams List to add the processed type parameter to
      */
     private void processTypeParameter(ASTUtil.ASTNode paramNode, List<String> typeParams) {
-        LOGGER.info("Processing type parameter node, child count: {}", paramNode.getChildren().size());
+        if (trace.isEnabled()) {
+            trace.log("Processing type parameter node, child count: {}", paramNode.getChildren().size());
+        }
 
         for (ASTUtil.ASTNode paramChild : paramNode.getChildren()) {
-            if (paramChild.getType().equals("type")) {
+            if (hasType(paramChild, "type")) {
                 String paramType = extractParameterType(paramChild);
                 if (paramType != null) {
                     typeParams.add(paramType);
@@ -786,9 +827,11 @@ public class PythonASTVisitor extends ASTVisitor {
      */
     private void logGenericTypeInfo(ASTUtil.ASTNode genericNode, List<String> typeParams) {
         ASTUtil.ASTNode baseType = findChildByType(genericNode, "identifier");
-        LOGGER.info("Found generic type with base: {}",
-                baseType != null ? baseType.getText(sourceCode) : "null");
-        LOGGER.info("Type parameters found: {}", typeParams);
+        if (trace.isEnabled()) {
+            trace.log("Found generic type with base: {}",
+                    baseType != null ? baseType.getText(sourceCode) : "null");
+        }
+        trace.log("Type parameters found: {}", typeParams);
     }
 
     /**
@@ -801,18 +844,20 @@ public class PythonASTVisitor extends ASTVisitor {
     private String processSimpleType(ASTUtil.ASTNode typeNode) {
         ASTUtil.ASTNode identifier = findChildByType(typeNode, "identifier");
         String result = identifier != null ? identifier.getText(sourceCode) : "object";
-        LOGGER.info("Simple type: {}", result);
+        trace.log("Simple type: {}", result);
         return result;
     }
 
     private void processDecorators(List<ASTUtil.ASTNode> decorators, Object target) {
-        LOGGER.info("Processing {} decorators", decorators.size());
+        if (trace.isEnabled()) {
+            trace.log("Processing {} decorators", decorators.size());
+        }
         for (ASTUtil.ASTNode decorator : decorators) {
             // Get the identifier from the decorator
             ASTUtil.ASTNode identifierNode = findChildByType(decorator, "identifier");
             if (identifierNode != null) {
                 String decoratorName = identifierNode.getText(sourceCode);
-                LOGGER.info("Found decorator: {}", decoratorName);
+                trace.log("Found decorator: {}", decoratorName);
 
                 LocationInfo location = new LocationInfo(
                         filePath,
@@ -825,7 +870,7 @@ public class PythonASTVisitor extends ASTVisitor {
 
                 if (target instanceof UMLClass) {
                     ((UMLClass) target).addAnnotation(annotation);
-                    LOGGER.info("Added annotation to class: {}", decoratorName);
+                    trace.log("Added annotation to class: {}", decoratorName);
                 } else if (target instanceof UMLOperation.Builder) {
                     ((UMLOperation.Builder) target).addAnnotation(annotation);
                 }
@@ -838,7 +883,7 @@ public class PythonASTVisitor extends ASTVisitor {
         if (argList == null) return;
 
         for (ASTUtil.ASTNode arg : argList.getChildren()) {
-            if (arg.getType().equals("identifier")) {
+            if (hasType(arg, "identifier")) {
                 umlClass.addSuperclass(arg.getText(sourceCode));
             }
         }
@@ -849,7 +894,7 @@ public class PythonASTVisitor extends ASTVisitor {
         if (body == null || body.getChildren().isEmpty()) return;
 
         ASTUtil.ASTNode firstChild = body.getChildren().get(0);
-        if (firstChild.getType().equals("string")) {
+        if (hasType(firstChild, "string")) {
             LocationInfo location = new LocationInfo(
                     filePath,
                     firstChild.getStartPoint(),
@@ -9,11 +9,30 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TreeSitterUtil {
+    // Loaded grammars by file extension; the native library is only copied and linked once per language
+    private static final Map<String, Language> LANGUAGES = new ConcurrentHashMap<>();
 
     public static Language loadLanguageForFileExtension(String filePath) throws IOException {
         String extension = getFileExtension(filePath).toLowerCase();
+        Language cached = LANGUAGES.get(extension);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (LANGUAGES) {
+            cached = LANGUAGES.get(extension);
+            if (cached == null) {
+                cached = loadLanguage(extension);
+                LANGUAGES.put(extension, cached);
+            }
+            return cached;
+        }
+    }
+
+    private static Language loadLanguage(String extension) throws IOException {
         String libExtension = OSUtil.getLibExtension();
         String osFolder = OSUtil.getOSFolder();
 
@@ -1,35 +1,76 @@
 package ca.dal.treefactor.util;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ca.dal.treefactor.model.OffHeapModelStore;
 import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.core.CanonicalPool;
+import ca.dal.treefactor.model.core.SourceText;
 import io.github.treesitter.jtreesitter.InputEncoding;
 import io.github.treesitter.jtreesitter.Language;
 import io.github.treesitter.jtreesitter.Node;
+import io.github.treesitter.jtreesitter.ParseCallback;
 import io.github.treesitter.jtreesitter.Parser;
 import io.github.treesitter.jtreesitter.Tree;
 
 public class UMLModelReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(UMLModelReader.class);
     private final UMLModel umlModel;
+    private final ParseBudget budget;
+    private final CanonicalPool canonicalPool;
+    private final OffHeapModelStore offHeapStore;  // null when the model is kept on the heap
+    private final List<ParseDiagnostic> diagnostics;
     private static final String PYTHON_EXT = "py";
     private static final String CPP_EXT = "cpp";
     private static final String JS_EXT = "js";
+    // Size of the chunks handed to tree-sitter when parsing byte-backed sources
+    private static final int PARSE_CHUNK_BYTES = 64 * 1024;
 
     public UMLModelReader(Map<String, String> fileContents) {
+        this(toSourceTexts(fileContents), ParseBudget.fromSystemProperties());
+    }
+
+    public UMLModelReader(Map<String, SourceText> fileContents, ParseBudget budget) {
+        this(fileContents, budget, CanonicalPool.global());
+    }
+
+    public UMLModelReader(Map<String, SourceText> fileContents, ParseBudget budget, CanonicalPool canonicalPool) {
+        this(fileContents, budget, canonicalPool, false);
+    }
+
+    /**
+     * Reads the files off the heap when offHeap is set: every file is moved into an OffHeapModelStore
+     * as soon as it has been read, and the model of the reader stays empty
+     */
+    public UMLModelReader(Map<String, SourceText> fileContents, ParseBudget budget, CanonicalPool canonicalPool,
+                          boolean offHeap) {
         // Initialize UMLModel with language detection
         String primaryLanguage = detectPrimaryLanguage(fileContents);
         this.umlModel = new UMLModel(primaryLanguage);
+        this.budget = budget;
+        this.canonicalPool = canonicalPool;
+        this.offHeapStore = offHeap ? new OffHeapModelStore(primaryLanguage) : null;
+        this.diagnostics = new ArrayList<>();
         processFileContents(fileContents);
     }
 
-    private String detectPrimaryLanguage(Map<String, String> fileContents) {
+    private static Map<String, SourceText> toSourceTexts(Map<String, String> fileContents) {
+        Map<String, SourceText> sourceTexts = new HashMap<>();
+        fileContents.forEach((filePath, content) -> sourceTexts.put(filePath, SourceText.of(content)));
+        return sourceTexts;
+    }
+
+    private String detectPrimaryLanguage(Map<String, SourceText> fileContents) {
         // Simple language detection based on file extensions
         Map<String, Integer> langCount = new HashMap<>();
 
@@ -46,20 +87,33 @@ public class UMLModelReader {
 
     private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("py", "cpp", "js");
 
-    private void processFileContents(Map<String, String> fileContents) {
-        for (Map.Entry<String, String> entry : fileContents.entrySet()) {
-            String filePath = entry.getKey();
-            String content = entry.getValue();
+    private void processFileContents(Map<String, SourceText> fileContents) {
+        for (Map.Entry<String, SourceText> entry : fileContents.entrySet()) {
+            String filePath = canonicalPool.intern(entry.getKey());
+            SourceText content = entry.getValue();
             String extension = getFileExtension(filePath);
 
             if (SUPPORTED_EXTENSIONS.contains(extension)) {
                 try {
+                    // Checked before loading the grammar, the size of a lazy source is known without loading it
+                    long sizeInBytes = content.sizeInBytes();
+                    if (!budget.allowsFileSize(sizeInBytes)) {
+                        skipFile(filePath, ParseDiagnostic.Reason.FILE_TOO_LARGE,
+                                sizeInBytes + " bytes, limit is " + budget.getMaxFileBytes());
+                        continue;
+                    }
                     Language language = TreeSitterUtil.loadLanguageForFileExtension(filePath);
                     processAST(filePath, content, language);
+                    if (offHeapStore != null && umlModel.getFragment(filePath) != null) {
+                        offHeapStore.put(umlModel.getFragment(filePath), null);
+                        umlModel.removeFile(filePath);
+                    }
                 } catch (IOException e) {
                     LOGGER.error("Error loading language for file: " + filePath, e);
+                    skipFile(filePath, ParseDiagnostic.Reason.PARSE_ERROR, e.getMessage());
                 } catch (Exception e) {
                     LOGGER.error("Error processing file: " + filePath, e);
+                    skipFile(filePath, ParseDiagnostic.Reason.PARSE_ERROR, e.getMessage());
                 }
             } else {
                 LOGGER.warn("Skipping file with unsupported extension: " + filePath);
@@ -67,16 +121,35 @@ public class UMLModelReader {
         }
     }
 
-    private void processAST(String filePath, String content, Language language) throws Exception {
+    private void processAST(String filePath, SourceText content, Language language) throws Exception {
         try (Parser parser = new Parser()) {
             parser.setLanguage(language);
-            try (Tree tree = parser.parse(content, InputEncoding.UTF_8).orElseThrow()) {
+            if (budget.hasParseTimeout()) {
+                parser.setTimeoutMicros(budget.getParseTimeoutMicros());
+            }
+            Optional<Tree> parsed = parse(parser, content);
+            if (parsed.isEmpty()) {
+                skipFile(filePath, ParseDiagnostic.Reason.PARSE_TIMEOUT,
+                        "not parsed within " + budget.getParseTimeoutMillis() + " ms");
+                return;
+            }
+            try (Tree tree = parsed.get()) {
+                long visitDeadline = budget.newVisitDeadline();
                 Node rootNode = tree.getRootNode();
                 ASTUtil.ASTNode astRoot = ASTUtil.buildASTWithCursor(rootNode);
+                VisitorTrace.forFile(filePath).dumpAst(astRoot);
 
                 ASTVisitor visitor = createVisitor(filePath, content);
                 if (visitor != null) {
-                    visitor.visit(astRoot);
+                    visitor.setVisitDeadline(visitDeadline);
+                    visitor.setCanonicalPool(canonicalPool);
+                    try {
+                        visitor.visit(astRoot);
+                    } catch (ParseBudget.BudgetExceededException e) {
+                        // The fragment of an aborted visit is never merged, the model has no partial file
+                        skipFile(filePath, ParseDiagnostic.Reason.VISIT_TIMEOUT,
+                                "not visited within " + budget.getVisitTimeoutMillis() + " ms");
+                    }
                 } else {
                     LOGGER.warn("Unsupported file type: " + filePath);
                 }
@@ -84,7 +157,26 @@ public class UMLModelReader {
         }
     }
 
-    private ASTVisitor createVisitor(String filePath, String content) {
+    private void skipFile(String filePath, ParseDiagnostic.Reason reason, String detail) {
+        ParseDiagnostic diagnostic = new ParseDiagnostic(filePath, reason, detail);
+        LOGGER.warn("Skipping file {}", diagnostic);
+        diagnostics.add(diagnostic);
+    }
+
+    /**
+     * Parses String-backed sources directly, byte-backed sources are streamed to tree-sitter
+     * in chunks so that they are never materialized as a whole
+     */
+    private Optional<Tree> parse(Parser parser, SourceText content) {
+        String text = content.asString();
+        if (text != null) {
+            return parser.parse(text, InputEncoding.UTF_8);
+        }
+        ParseCallback reader = (byteOffset, point) -> content.readUtf8Chunk(byteOffset, PARSE_CHUNK_BYTES);
+        return parser.parse(reader, InputEncoding.UTF_8);
+    }
+
+    private ASTVisitor createVisitor(String filePath, SourceText content) {
         String extension = getFileExtension(filePath);
 
         return switch (extension) {
@@ -112,4 +204,18 @@ public class UMLModelReader {
     public UMLModel getUmlModel() {
         return this.umlModel;
     }
+
+    /**
+     * Store the files were moved into, or null if the model was read on the heap
+     */
+    public OffHeapModelStore getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    /**
+     * Files that were skipped while reading the model
+     */
+    public List<ParseDiagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package ca.dal.treefactor.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * Diagnostic trace of how a visitor reads one file.
+ * Tracing is off by default and is enabled per file or per language through system properties:
+ * - treefactor.trace.files: comma-separated file paths or path suffixes
+ * - treefactor.trace.languages: comma-separated extensions or language names (py, python, js, ...)
+ * - treefactor.trace.dumpAst: also dump the AST of traced files
+ *
+ * A disabled trace returns immediately from every call. Callers whose arguments are
+ * expensive to compute, such as node texts or collection sizes, guard them with isEnabled().
+ */
+public final class VisitorTrace {
+    public static final String FILES_PROPERTY = "treefactor.trace.files";
+    public static final String LANGUAGES_PROPERTY = "treefactor.trace.languages";
+    public static final String DUMP_AST_PROPERTY = "treefactor.trace.dumpAst";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VisitorTrace.class);
+    private static final VisitorTrace DISABLED = new VisitorTrace(null, false, false);
+
+    private final String filePath;
+    private final boolean enabled;
+    private final boolean dumpAst;
+
+    private VisitorTrace(String filePath, boolean enabled, boolean dumpAst) {
+        this.filePath = filePath;
+        this.enabled = enabled;
+        this.dumpAst = dumpAst;
+    }
+
+    /**
+     * Returns the trace of a file as configured by the system properties
+     */
+    public static VisitorTrace forFile(String filePath) {
+        if (filePath == null || !isTraced(filePath)) {
+            return DISABLED;
+        }
+        return new VisitorTrace(filePath, true, Boolean.getBoolean(DUMP_AST_PROPERTY));
+    }
+
+    public static VisitorTrace disabled() {
+        return DISABLED;
+    }
+
+    private static boolean isTraced(String filePath) {
+        String files = System.getProperty(FILES_PROPERTY);
+        if (files != null) {
+            for (String file : files.split(",")) {
+                String trimmed = file.trim();
+                if (!trimmed.isEmpty() && filePath.endsWith(trimmed)) {
+                    return true;
+                }
+            }
+        }
+        String languages = System.getProperty(LANGUAGES_PROPERTY);
+        if (languages != null) {
+            String extension = filePath.substring(filePath.lastIndexOf('.') + 1).toLowerCase();
+            String language = languageOf(extension);
+            for (String traced : languages.split(",")) {
+                String trimmed = traced.trim().toLowerCase();
+                if (trimmed.equals(extension) || trimmed.equals(language)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String languageOf(String extension) {
+        return switch (extension) {
+            case "py" -> "python";
+            case "js" -> "javascript";
+            case "cpp" -> "cpp";
+            default -> extension;
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Fixed-arity overloads, so that disabled calls do not allocate an argument array
+    public void log(String message) {
+        if (enabled) {
+            LOGGER.info("[{}] {}", filePath, message);
+        }
+    }
+
+    public void log(String format, Object arg) {
+        if (enabled) {
+            LOGGER.info("[{}] {}", filePath, MessageFormatter.format(format, arg).getMessage());
+        }
+    }
+
+    public void log(String format, Object arg1, Object arg2) {
+        if (enabled) {
+            LOGGER.info("[{}] {}", filePath, MessageFormatter.format(format, arg1, arg2).getMessage());
+        }
+    }
+
+    public void log(String format, Object... args) {
+        if (enabled) {
+            LOGGER.info("[{}] {}", filePath, MessageFormatter.arrayFormat(format, args).getMessage());
+        }
+    }
+
+    /**
+     * Dumps the AST of the file if requested
+     */
+    public void dumpAst(ASTUtil.ASTNode root) {
+        if (enabled && dumpAst) {
+            LOGGER.info("[{}] AST:\n{}", filePath, ASTUtil.printAST(root, 0));
+        }
+    }
+}
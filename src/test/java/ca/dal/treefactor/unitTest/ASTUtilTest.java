@@ -1,11 +1,15 @@
 package ca.dal.treefactor.unitTest;
 
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.util.ASTUtil;
 import ca.dal.treefactor.util.TreeSitterUtil;
 import io.github.treesitter.jtreesitter.*;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ASTUtilTest {
@@ -134,6 +138,90 @@ public class ASTUtilTest {
                 "Printed AST should contain essential nodes");
     }
 
+    @Nested
+    class WalkTests {
+        private ASTUtil.ASTNode node(String type, ASTUtil.ASTNode parent) {
+            ASTUtil.ASTNode node = new ASTUtil.ASTNode(type, null, new Point(0, 0), new Point(0, 0), 0, 0, parent);
+            if (parent != null) {
+                parent.addChild(node);
+            }
+            return node;
+        }
+
+        @Test
+        void shouldEnterInPreOrderAndLeaveInPostOrder() {
+            ASTUtil.ASTNode root = node("a", null);
+            ASTUtil.ASTNode b = node("b", root);
+            node("c", b);
+            node("d", b);
+            ASTUtil.ASTNode e = node("e", root);
+            node("f", e);
+
+            List<String> events = new ArrayList<>();
+            ASTUtil.walk(root, new ASTUtil.ASTWalker() {
+                @Override
+                public boolean enter(ASTUtil.ASTNode node) {
+                    events.add("+" + node.getType());
+                    return !node.getType().equals("e");
+                }
+
+                @Override
+                public void leave(ASTUtil.ASTNode node) {
+                    events.add("-" + node.getType());
+                }
+            });
+
+            // The children of e are skipped, e itself is still left
+            assertEquals(List.of("+a", "+b", "+c", "-c", "+d", "-d", "-b", "+e", "-e", "-a"), events);
+        }
+
+        @Test
+        void shouldWalkDeepTreesWithoutOverflowingTheStack() {
+            ASTUtil.ASTNode root = node("root", null);
+            ASTUtil.ASTNode current = root;
+            for (int i = 0; i < 200_000; i++) {
+                current = node("level", current);
+            }
+
+            int[] maxDepth = new int[1];
+            ASTUtil.walk(root, new ASTUtil.ASTWalker() {
+                private int depth;
+
+                @Override
+                public boolean enter(ASTUtil.ASTNode node) {
+                    maxDepth[0] = Math.max(maxDepth[0], ++depth);
+                    return true;
+                }
+
+                @Override
+                public void leave(ASTUtil.ASTNode node) {
+                    depth--;
+                }
+            });
+            assertEquals(200_001, maxDepth[0]);
+        }
+
+        @Test
+        void shouldBuildDeeplyNestedParseTrees() {
+            int depth = 50_000;
+            String code = "x = " + "(".repeat(depth) + "1" + ")".repeat(depth);
+            try (Tree tree = parser.parse(code, InputEncoding.UTF_8).orElseThrow()) {
+                ASTUtil.ASTNode root = ASTUtil.buildASTWithCursor(tree.getRootNode());
+
+                int[] nested = new int[1];
+                ASTUtil.walk(root, node -> {
+                    if (node.getType().equals("parenthesized_expression")) {
+                        nested[0]++;
+                    }
+                    return true;
+                });
+                assertEquals(depth, nested[0]);
+                assertNotEquals(0, root.getStructuralHash(SourceText.of(code)));
+                assertFalse(ASTUtil.printAST(root, 0).isEmpty());
+            }
+        }
+    }
+
     private ASTUtil.ASTNode getNodeAtPath(int... indices) {
         ASTUtil.ASTNode current = astRoot;
         for (int index : indices) {
@@ -0,0 +1,145 @@
+package ca.dal.treefactor.unitTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ca.dal.treefactor.model.core.SourceText;
+import ca.dal.treefactor.util.BlobSourceCache;
+import ca.dal.treefactor.util.ParseBudget;
+import ca.dal.treefactor.util.ParseDiagnostic;
+import ca.dal.treefactor.util.UMLModelReader;
+
+class BlobSourceCacheTest {
+    private static final String SMALL = "def small():\n    return 1\n";
+    private static final String MEDIUM = "def medium():\n    return 'größe'\n";
+
+    @TempDir
+    Path directory;
+
+    private Repository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = FileRepositoryBuilder.create(new File(directory.toFile(), ".git"));
+        repository.create();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    private ObjectId insert(String content) throws IOException {
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId id = inserter.insert(Constants.OBJ_BLOB, content.getBytes(StandardCharsets.UTF_8));
+            inserter.flush();
+            return id;
+        }
+    }
+
+    private static long utf8Size(String content) {
+        return content.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Nested
+    class LoadingTests {
+        @Test
+        void shouldKnowSizeWithoutLoading() throws IOException {
+            BlobSourceCache cache = new BlobSourceCache(repository, 1024, 1024);
+            SourceText content = cache.get(insert(MEDIUM));
+
+            assertEquals(utf8Size(MEDIUM), content.sizeInBytes(), "Size should be the size of the blob");
+            assertEquals(0, cache.getLoadCount(), "Reading the size should not load the blob");
+            assertEquals(MEDIUM, content.getText());
+            assertEquals(1, cache.getLoadCount());
+        }
+
+        @Test
+        void shouldMapBlobsAboveThreshold() throws IOException {
+            BlobSourceCache cache = new BlobSourceCache(repository, 1024, 16);
+            SourceText small = cache.get(insert("x = 1\n"));
+            SourceText medium = cache.get(insert(MEDIUM));
+
+            assertNotNull(small.asString(), "Blobs below the threshold should be held as Strings");
+            assertNull(medium.asString(), "Blobs above the threshold should be held as bytes");
+            assertEquals(MEDIUM, medium.getText());
+            assertEquals(medium.getText(), medium.readUtf8Chunk(0, 1024), "Mapped blobs should be readable in chunks");
+        }
+
+        @Test
+        void shouldEvictLeastRecentlyUsedAndReload() throws IOException {
+            long bound = utf8Size(SMALL) + utf8Size(MEDIUM) - 1;  // Only one of them fits
+            BlobSourceCache cache = new BlobSourceCache(repository, bound, 1024);
+            SourceText small = cache.get(insert(SMALL));
+            SourceText medium = cache.get(insert(MEDIUM));
+
+            assertEquals(SMALL, small.getText());
+            assertEquals(SMALL, small.getText());
+            assertEquals(1, cache.getLoadCount(), "A cached blob should not be read again");
+
+            assertEquals(MEDIUM, medium.getText());
+            assertEquals(utf8Size(MEDIUM), cache.sizeInBytes(), "The older blob should be evicted");
+
+            assertEquals(SMALL, small.getText(), "An evicted blob should be reloaded with the same content");
+            assertEquals(3, cache.getLoadCount());
+            assertEquals(utf8Size(SMALL), cache.sizeInBytes());
+        }
+
+        @Test
+        void shouldKeepMostRecentBlobAboveBound() throws IOException {
+            BlobSourceCache cache = new BlobSourceCache(repository, 1, 1024);
+            SourceText medium = cache.get(insert(MEDIUM));
+            medium.getText();
+            medium.getText();
+            assertEquals(1, cache.getLoadCount(), "The most recent blob should be kept even above the bound");
+        }
+
+        @Test
+        void shouldReleaseContentsOnClear() throws IOException {
+            BlobSourceCache cache = new BlobSourceCache(repository, 1024, 1024);
+            SourceText small = cache.get(insert(SMALL));
+            small.getText();
+            cache.clear();
+            assertEquals(0, cache.sizeInBytes());
+            assertEquals(SMALL, small.getText());
+            assertEquals(2, cache.getLoadCount());
+        }
+    }
+
+    @Nested
+    class BudgetTests {
+        @Test
+        void shouldSkipLargeBlobWithoutLoadingIt() throws IOException {
+            BlobSourceCache cache = new BlobSourceCache(repository, 1024, 1024);
+            SourceText content = cache.get(insert(MEDIUM));
+            UMLModelReader reader = new UMLModelReader(Map.of("medium.py", content), ParseBudget.builder()
+                    .maxFileBytes(16)
+                    .build());
+
+            List<ParseDiagnostic> diagnostics = reader.getDiagnostics();
+            assertEquals(1, diagnostics.size());
+            assertEquals(ParseDiagnostic.Reason.FILE_TOO_LARGE, diagnostics.get(0).getReason());
+            assertTrue(reader.getUmlModel().getClasses().isEmpty());
+            assertEquals(0, cache.getLoadCount(), "A blob over the size limit should never be loaded");
+        }
+    }
+}
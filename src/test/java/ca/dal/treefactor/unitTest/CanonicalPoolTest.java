@@ -0,0 +1,85 @@
+package ca.dal.treefactor.unitTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.core.CanonicalPool;
+import ca.dal.treefactor.model.core.UMLType;
+
+class CanonicalPoolTest {
+
+    @Nested
+    class InterningTests {
+        private final CanonicalPool pool = new CanonicalPool(16);
+
+        @Test
+        void shouldReturnIdenticalStrings() {
+            String first = pool.intern(new String("getValue"));
+            String second = pool.intern(new String("getValue"));
+            assertSame(first, second, "Equal strings should be interned to one instance");
+            assertNull(pool.intern(null));
+        }
+
+        @Test
+        void shouldReturnIdenticalFrozenTypes() {
+            UMLType first = pool.type(new String("int"));
+            UMLType second = pool.type(new String("int"));
+            assertSame(first, second, "Equal type names should share one type");
+            assertTrue(first.isFrozen(), "Pooled types should be frozen");
+            assertSame(pool.intern("int"), first.getTypeName(), "Type names should be interned too");
+        }
+    }
+
+    @Nested
+    class BoundTests {
+        @Test
+        void shouldStopGrowingAtMaxEntries() {
+            CanonicalPool pool = new CanonicalPool(3);
+            for (int i = 0; i < 10; i++) {
+                pool.intern("name" + i);
+            }
+            assertEquals(3, pool.size(), "Pool should not hold more than maxEntries strings");
+
+            String unpooled = new String("name9");
+            assertSame(unpooled, pool.intern(unpooled), "Values past the bound should be returned as they are");
+            String pooled = new String("name0");
+            assertNotSame(pooled, pool.intern(pooled), "Values within the bound should still be shared");
+        }
+
+        @Test
+        void shouldBoundTypesSeparately() {
+            CanonicalPool pool = new CanonicalPool(2);
+            for (int i = 0; i < 5; i++) {
+                pool.type("Type" + i);
+            }
+            UMLType unpooled = pool.type("Type4");
+            assertNotSame(unpooled, pool.type("Type4"), "Types past the bound should not be pooled");
+            assertTrue(unpooled.isFrozen(), "Types past the bound should still be frozen");
+            assertSame(pool.type("Type0"), pool.type("Type0"));
+        }
+
+        @Test
+        void shouldReadBoundFromSystemProperty() {
+            String previous = System.getProperty(CanonicalPool.MAX_ENTRIES_PROPERTY);
+            System.setProperty(CanonicalPool.MAX_ENTRIES_PROPERTY, "2");
+            try {
+                CanonicalPool pool = CanonicalPool.forRun();
+                for (int i = 0; i < 10; i++) {
+                    pool.intern("name" + i);
+                }
+                assertEquals(2, pool.size(), "Pool should be bounded by " + CanonicalPool.MAX_ENTRIES_PROPERTY);
+            } finally {
+                if (previous != null) {
+                    System.setProperty(CanonicalPool.MAX_ENTRIES_PROPERTY, previous);
+                } else {
+                    System.clearProperty(CanonicalPool.MAX_ENTRIES_PROPERTY);
+                }
+            }
+        }
+    }
+}
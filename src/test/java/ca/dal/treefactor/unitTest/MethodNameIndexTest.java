@@ -0,0 +1,47 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.diff.MethodNameIndex;
+
+class MethodNameIndexTest {
+
+    @Test
+    void shouldReturnRelatedNamesInInsertionOrder() {
+        MethodNameIndex index = new MethodNameIndex(2);
+        index.add("userprofile", "a");
+        index.add("user", "b");
+        index.add("order", "c");
+        index.add("usr", "d");
+        index.add("userprofiles", "e");
+
+        // Contained in, containing, and within two edits of the query
+        assertEquals(List.of("a", "b", "e"), index.getRelatedKeys("userprofile"));
+        assertEquals(List.of("a", "b", "d", "e"), index.getRelatedKeys("user"));
+        assertEquals(List.of("c"), index.getRelatedKeys("orders"));
+    }
+
+    @Test
+    void shouldRelateEmptyNamesToEveryName() {
+        // A method named get normalizes to the empty name
+        MethodNameIndex index = new MethodNameIndex(2);
+        index.add("value", "a");
+        index.add("", "b");
+
+        assertEquals(List.of("a", "b"), index.getRelatedKeys(""));
+        assertEquals(List.of("b"), index.getRelatedKeys("other"));
+    }
+
+    @Test
+    void shouldBoundEditDistance() {
+        assertTrue(MethodNameIndex.isWithinEditDistance("kitten", "sitting", 3));
+        assertFalse(MethodNameIndex.isWithinEditDistance("kitten", "sitting", 2));
+        assertTrue(MethodNameIndex.isWithinEditDistance("", "ab", 2));
+        assertFalse(MethodNameIndex.isWithinEditDistance("abcdef", "a", 2));
+    }
+}
@@ -0,0 +1,176 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.CodeElementType;
+import ca.dal.treefactor.model.OffHeapModelStore;
+import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.UMLModelCodec;
+import ca.dal.treefactor.model.UMLModelFragment;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.diff.UMLModelDiff;
+import ca.dal.treefactor.model.diff.refactoring.Refactoring;
+import ca.dal.treefactor.model.elements.UMLAttribute;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+class OffHeapModelStoreTest {
+    private static final String UNCHANGED_FILE = "stable.py";
+    private static final String MODIFIED_FILE = "greeter.py";
+    private static final String REMOVED_FILE = "legacy.py";
+    private static final String ADDED_FILE = "parser.py";
+
+    private UMLModel oldModel;
+    private UMLModel newModel;
+    private OffHeapModelStore oldStore;
+    private OffHeapModelStore newStore;
+
+    @BeforeEach
+    void setUp() {
+        // The greeter renames a parameter, a file is removed and another one added
+        oldModel = new UMLModel("python");
+        oldModel.addFragment(fragment(UNCHANGED_FILE, "Stable", "run", "value"));
+        oldModel.addFragment(fragment(MODIFIED_FILE, "Greeter", "greet", "n"));
+        oldModel.addFragment(fragment(REMOVED_FILE, "Legacy", "convert", "data"));
+        oldModel.addSourceFileContent(MODIFIED_FILE, "class Greeter:\n    def greet(self, n):\n        print(n)\n");
+
+        newModel = new UMLModel("python");
+        newModel.addFragment(fragment(UNCHANGED_FILE, "Stable", "run", "value"));
+        newModel.addFragment(fragment(MODIFIED_FILE, "Greeter", "greet", "name"));
+        newModel.addFragment(fragment(ADDED_FILE, "Parser", "parse", "text"));
+        newModel.addSourceFileContent(MODIFIED_FILE, "class Greeter:\n    def greet(self, name):\n        print(name)\n");
+
+        oldStore = OffHeapModelStore.of(oldModel);
+        newStore = OffHeapModelStore.of(newModel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        oldStore.close();
+        newStore.close();
+    }
+
+    // A file with one class holding one method of one parameter, the body uses the parameter
+    private static UMLModelFragment fragment(String filePath, String className, String methodName, String parameterName) {
+        UMLClass umlClass = UMLClass.builder(className, location(filePath, 1, CodeElementType.CLASS_DECLARATION))
+                .packageName("")
+                .build();
+        UMLOperation operation = UMLOperation.builder(methodName, location(filePath, 2, CodeElementType.METHOD_DECLARATION))
+                .className(className)
+                .returnType(new UMLType("None"))
+                .body("print(" + parameterName + ")")
+                .build();
+        operation.addParameter(new UMLParameter(parameterName, new UMLType("object"),
+                location(filePath, 2, CodeElementType.PARAMETER_DECLARATION)));
+        umlClass.addOperation(operation);
+        return UMLModelFragment.builder(filePath)
+                .addClass(umlClass)
+                .build();
+    }
+
+    private static LocationInfo location(String filePath, int row, CodeElementType type) {
+        return new LocationInfo(filePath, new Point(row, 0), new Point(row + 1, 0), type);
+    }
+
+    private static List<String> describe(List<Refactoring> refactorings) {
+        return refactorings.stream().map(Refactoring::toString).toList();
+    }
+
+    @Nested
+    class StorageTests {
+        @Test
+        void shouldRoundTripFiles() {
+            UMLModelCodec.FileEntry entry = newStore.get(MODIFIED_FILE);
+            assertEquals(newModel.getClassesInFile(MODIFIED_FILE), entry.fragment().getClasses(),
+                    "Stored classes should decode equal to the model's");
+            assertEquals(newModel.getSourceFileContent(MODIFIED_FILE), entry.sourceContent());
+            UMLOperation greet = entry.fragment().getClasses().get(0).getOperations().get(0);
+            assertEquals("print(name)", greet.getBody());
+            assertEquals("name", greet.getParameters().get(0).getName());
+
+            assertNull(newStore.get(REMOVED_FILE), "A file that was never stored should not be found");
+            assertEquals(3, newStore.getNumberOfFiles());
+            assertTrue(newStore.sizeInBytes() > 0);
+        }
+
+        @Test
+        void shouldReplaceStoredFile() {
+            newStore.put(fragment(MODIFIED_FILE, "Greeter", "greet", "n"), null);
+            assertEquals(3, newStore.getNumberOfFiles(), "Putting a file again should replace it");
+            UMLOperation greet = newStore.getFragment(MODIFIED_FILE).getClasses().get(0).getOperations().get(0);
+            assertEquals("n", greet.getParameters().get(0).getName());
+        }
+
+        @Test
+        void shouldLoadWholeModel() {
+            UMLModel loaded = newStore.load();
+            assertEquals(newModel.getFilePaths(), loaded.getFilePaths());
+            assertEquals(newModel.getNumberOfOperations(), loaded.getNumberOfOperations());
+        }
+
+        @Test
+        void shouldApplyStoredStaticInitializersOnLoad() {
+            // The source file initializes the static attribute of a class its header declares
+            UMLClass counter = UMLClass.builder("Counter", location("counter.h", 1, CodeElementType.CLASS_DECLARATION))
+                    .packageName("")
+                    .build();
+            counter.addAttribute(new UMLAttribute("count", new UMLType("int"),
+                    location("counter.h", 2, CodeElementType.FIELD_DECLARATION)));
+            UMLModel model = new UMLModel("cpp");
+            model.addFragment(UMLModelFragment.builder("counter.cpp")
+                    .addStaticInitializer(new UMLModelFragment.StaticInitializer("Counter", "count", "0"))
+                    .build());
+            model.addFragment(UMLModelFragment.builder("counter.h").addClass(counter).build());
+
+            try (OffHeapModelStore store = OffHeapModelStore.of(model)) {
+                assertEquals(model.getStaticInitializers("counter.cpp"),
+                        store.getFragment("counter.cpp").getStaticInitializers());
+                UMLModel loaded = store.load();
+                assertEquals(model, loaded, "Loaded model should equal the heap model");
+                assertEquals("0", loaded.getClassByName("Counter").getAttributes().get(0).getInitialValue());
+            }
+        }
+    }
+
+    @Nested
+    class ChangedFilesTests {
+        @Test
+        void shouldReportModifiedAddedAndRemovedFiles() {
+            Set<String> changed = oldStore.getChangedFiles(newStore);
+            assertEquals(Set.of(MODIFIED_FILE, REMOVED_FILE, ADDED_FILE), changed);
+            assertFalse(changed.contains(UNCHANGED_FILE), "Identical files should not be reported");
+            assertEquals(changed, newStore.getChangedFiles(oldStore), "Changed files should not depend on the side");
+        }
+
+        @Test
+        void shouldReportNothingForIdenticalStores() {
+            try (OffHeapModelStore copy = OffHeapModelStore.of(oldModel)) {
+                assertTrue(oldStore.getChangedFiles(copy).isEmpty());
+            }
+        }
+
+        @Test
+        void shouldDetectSameRefactoringsFromChangedFilesOnly() {
+            List<Refactoring> expected = new UMLModelDiff(oldModel, newModel).detectRefactorings();
+            Set<String> changed = oldStore.getChangedFiles(newStore);
+            List<Refactoring> actual = new UMLModelDiff(oldStore.load(changed), newStore.load(changed)).detectRefactorings();
+
+            assertFalse(expected.isEmpty(), "The fixture should contain a refactoring");
+            assertEquals(describe(expected), describe(actual),
+                    "Diffing the changed files should find the refactorings of the full diff");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.CodeElementType;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.diff.OperationCandidateIndex;
+import ca.dal.treefactor.model.diff.UMLModelDiff;
+import ca.dal.treefactor.model.diff.mappers.UMLOperationBodyMapper;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+class OperationCandidateIndexTest {
+    private static final String TEST_FILE = "service.py";
+    private static final int LIMIT = 32;
+
+    private static UMLOperation operation(String name, String parameterName, List<String> statements) {
+        UMLOperation operation = UMLOperation.builder(name, new LocationInfo(TEST_FILE,
+                        new Point(1, 0), new Point(statements.size() + 1, 0), CodeElementType.METHOD_DECLARATION))
+                .returnType(new UMLType("None"))
+                .body(String.join("\n", statements))
+                .build();
+        operation.addParameter(new UMLParameter(parameterName, new UMLType("object"),
+                new LocationInfo(TEST_FILE, new Point(1, 0), new Point(1, 0), CodeElementType.PARAMETER_DECLARATION)));
+        return operation;
+    }
+
+    // Statements are almost always distinct, unrelated bodies share none
+    private static String randomStatement(Random random, String parameterName) {
+        return "v" + random.nextInt(1000) + " = call(" + parameterName + ", " + random.nextInt(1000) + ")";
+    }
+
+    private static List<String> randomBody(Random random, String parameterName) {
+        List<String> statements = new ArrayList<>();
+        int length = 3 + random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            statements.add(randomStatement(random, parameterName));
+        }
+        return statements;
+    }
+
+    /**
+     * Each old operation, in order, takes the unmatched new operation with the best body similarity
+     * among its candidates, as UMLModelDiff does. Without an index every new operation is a candidate.
+     */
+    private static Map<String, String> match(Map<String, UMLOperation> oldOperations, Map<String, UMLOperation> newOperations,
+                                             OperationCandidateIndex index) {
+        Set<String> unmatchedNewKeys = new LinkedHashSet<>(newOperations.keySet());
+        Map<String, String> matches = new LinkedHashMap<>();
+        for (Map.Entry<String, UMLOperation> oldOperation : oldOperations.entrySet()) {
+            Iterable<String> candidates = index == null ? new ArrayList<>(unmatchedNewKeys) :
+                    index.getCandidates(oldOperation.getValue(), unmatchedNewKeys::contains, LIMIT);
+            String bestMatch = null;
+            double maxSimilarity = 0.0;
+            for (String newKey : candidates) {
+                double similarity = UMLOperationBodyMapper.bodyComparatorScore(oldOperation.getValue(),
+                        newOperations.get(newKey), UMLModelDiff.OperationThresholds.BODY_SIMILARITY_THRESHOLD);
+                if (similarity > maxSimilarity && similarity >= UMLModelDiff.OperationThresholds.BODY_SIMILARITY_THRESHOLD) {
+                    maxSimilarity = similarity;
+                    bestMatch = newKey;
+                }
+            }
+            if (bestMatch != null) {
+                matches.put(oldOperation.getKey(), bestMatch);
+                unmatchedNewKeys.remove(bestMatch);
+            }
+        }
+        return matches;
+    }
+
+    @Nested
+    class MatchingTests {
+        @Test
+        void shouldMatchLikeExhaustiveComparison() {
+            Random random = new Random(46);
+            Map<String, UMLOperation> newOperations = new LinkedHashMap<>();
+            List<List<String>> newBodies = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                List<String> body = randomBody(random, "request");
+                newBodies.add(body);
+                newOperations.put("new" + i, operation("handle" + i, "request", body));
+            }
+
+            // Half of the old operations are edited versions of a new one, with their parameter renamed
+            Map<String, UMLOperation> oldOperations = new LinkedHashMap<>();
+            for (int i = 0; i < 400; i++) {
+                List<String> body;
+                if (random.nextBoolean()) {
+                    body = new ArrayList<>();
+                    for (String statement : newBodies.get(random.nextInt(newBodies.size()))) {
+                        body.add(random.nextInt(10) == 0 ? randomStatement(random, "req") : statement.replace("request", "req"));
+                    }
+                } else {
+                    body = randomBody(random, "req");
+                }
+                oldOperations.put("old" + i, operation("process" + i, "req", body));
+            }
+
+            Map<String, String> expected = match(oldOperations, newOperations, null);
+            Map<String, String> actual = match(oldOperations, newOperations, new OperationCandidateIndex(newOperations));
+            assertTrue(expected.size() > 100, "The fixture should contain many matches");
+            assertEquals(expected, actual, "Index candidates should lead to the matches of the exhaustive comparison");
+        }
+    }
+
+    @Nested
+    class TruncatedBucketTests {
+        private static final int TRIVIAL_OPERATIONS = 2 * OperationCandidateIndex.MAX_BUCKET_SCAN;
+
+        // Many identical trivial bodies, then one operation sharing their statement, past the scanned part of its buckets
+        private Map<String, UMLOperation> operations() {
+            Map<String, UMLOperation> operations = new LinkedHashMap<>();
+            for (int i = 0; i < TRIVIAL_OPERATIONS; i++) {
+                operations.put("trivial" + i, operation("get" + i, "self", List.of("return None")));
+            }
+            operations.put("target", operation("load", "path", List.of("return None", "data = read(path)",
+                    "validate(data)", "cache[path] = data")));
+            return operations;
+        }
+
+        @Test
+        void shouldOnlyScanFirstOperationsOfBucket() {
+            OperationCandidateIndex index = new OperationCandidateIndex(operations());
+            UMLOperation query = operation("fetch", "self", List.of("return None"));
+
+            List<String> all = index.getCandidates(query, key -> true, Integer.MAX_VALUE);
+            assertEquals(OperationCandidateIndex.MAX_BUCKET_SCAN, all.size(), "Only the scanned part of the bucket should be candidates");
+            assertEquals("trivial0", all.get(0), "Equally similar candidates should keep the indexing order");
+            assertFalse(all.contains("trivial" + OperationCandidateIndex.MAX_BUCKET_SCAN));
+            assertEquals(LIMIT, index.getCandidates(query, key -> true, LIMIT).size());
+        }
+
+        @Test
+        void shouldFindOperationPastTruncationThroughOtherBands() {
+            Map<String, UMLOperation> operations = operations();
+            OperationCandidateIndex index = new OperationCandidateIndex(operations);
+            UMLOperation query = operation("loadFile", "file", List.of("return None", "data = read(file)",
+                    "validate(data)", "cache[file] = data", "log(data)"));
+
+            List<String> candidates = index.getCandidates(query, key -> true, LIMIT);
+            assertEquals("target", candidates.get(0), "The similar body should be found and ranked first");
+
+            Map<String, UMLOperation> oldOperations = Map.of("query", query);
+            assertEquals(match(oldOperations, operations, null), match(oldOperations, operations, index),
+                    "A truncated bucket should not change the match");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ca.dal.treefactor.unitTest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.core.OperationBody;
+import ca.dal.treefactor.model.core.SourceText;
+
+class SourceTextTest {
+    // ASCII, 2-, 3- and 4-byte characters
+    private static final String TEXT = "def größe(x):\n    return \"€ 😀\" + x\n";
+
+    private static SourceText utf8(String text) {
+        return SourceText.ofUtf8(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Reads the source in chunks the way the parser does, checking every chunk against maxBytes
+    private static String readInChunks(SourceText source, int maxBytes) {
+        StringBuilder text = new StringBuilder();
+        int byteOffset = 0;
+        while (true) {
+            String chunk = source.readUtf8Chunk(byteOffset, maxBytes);
+            if (chunk.isEmpty()) {
+                return text.toString();
+            }
+            int size = chunk.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue(size <= maxBytes || chunk.codePointCount(0, chunk.length()) == 1,
+                    "Chunk of " + size + " bytes should fit in " + maxBytes + " bytes");
+            text.append(chunk);
+            byteOffset += size;
+        }
+    }
+
+    @Nested
+    class ChunkTests {
+        @Test
+        void shouldReassembleStringSourceFromChunks() {
+            SourceText source = SourceText.of(TEXT);
+            for (int maxBytes = 1; maxBytes <= 8; maxBytes++) {
+                assertEquals(TEXT, readInChunks(source, maxBytes),
+                        "Chunks of " + maxBytes + " bytes should reassemble the text");
+            }
+        }
+
+        @Test
+        void shouldReassembleUtf8SourceFromChunks() {
+            SourceText source = utf8(TEXT);
+            for (int maxBytes = 4; maxBytes <= 8; maxBytes++) {
+                assertEquals(TEXT, readInChunks(source, maxBytes),
+                        "Chunks of " + maxBytes + " bytes should reassemble the text");
+            }
+        }
+
+        @Test
+        void shouldReadChunksOutOfOrder() {
+            SourceText source = SourceText.of(TEXT);
+            int offset = "def ".length();
+            assertEquals("größe", source.readUtf8Chunk(offset, 7), "Chunk should start at the byte offset");
+            assertEquals("def ", source.readUtf8Chunk(0, 4), "Earlier chunk should be read again");
+            assertEquals("", source.readUtf8Chunk((int) source.sizeInBytes(), 4), "Chunk past the end should be empty");
+        }
+
+        @Test
+        void shouldAgreeOnSizeAcrossKinds() {
+            assertEquals(utf8(TEXT).sizeInBytes(), SourceText.of(TEXT).sizeInBytes(),
+                    "Both kinds should measure the UTF-8 encoding");
+        }
+    }
+
+    @Nested
+    class OffsetTests {
+        // Byte offset of the given text in TEXT, as tree-sitter reports it
+        private static int byteOffset(String text) {
+            return TEXT.substring(0, TEXT.indexOf(text)).getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Test
+        void shouldSliceStringSourceAtByteOffsets() {
+            SourceText source = SourceText.of(TEXT);
+            assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length, source.length(), "Length should be in bytes");
+            for (String text : new String[]{"größe", "return", "€ 😀", "x\n"}) {
+                int start = byteOffset(text);
+                int end = start + text.getBytes(StandardCharsets.UTF_8).length;
+                assertEquals(text, source.getText(start, end), "Text should be found at its byte offsets");
+                assertEquals(utf8(TEXT).hash(start, end), source.hash(start, end), "Hashes should agree at byte offsets");
+            }
+        }
+
+        @Test
+        void shouldSliceLongStringSourcesPastManyIndexEntries() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 500; i++) {
+                builder.append("é").append(i).append("😀\n");
+            }
+            String text = builder.toString();
+            SourceText string = SourceText.of(text);
+            SourceText bytes = utf8(text);
+            assertEquals(bytes.length(), string.length());
+
+            // Every line, at the byte offsets tree-sitter would report for it
+            int start = 0;
+            for (String line : text.split("(?<=\n)")) {
+                int end = start + line.getBytes(StandardCharsets.UTF_8).length;
+                assertEquals(line, string.getText(start, end), "Line should be found at its byte offsets");
+                assertTrue(string.regionMatches(start, end, bytes, start, end));
+                assertEquals(bytes.hashIgnoringWhitespace(start, end), string.hashIgnoringWhitespace(start, end));
+                start = end;
+            }
+            assertEquals(bytes.length(), start);
+        }
+
+        @Test
+        void shouldUseCharIndicesOfAsciiText() {
+            SourceText source = SourceText.of("def f(x):\n    return x\n");
+            assertEquals(23, source.length());
+            assertEquals("return x", source.getText(14, 22));
+        }
+    }
+
+    @Nested
+    class CrossKindTests {
+        @Test
+        void shouldHashEqualTextEquallyAcrossKinds() {
+            SourceText string = SourceText.of(TEXT);
+            SourceText bytes = utf8(TEXT);
+            assertEquals(bytes.hash(0, bytes.length()), string.hash(0, string.length()),
+                    "Hashes should be computed on the UTF-8 encoding");
+            assertEquals(bytes.hashIgnoringWhitespace(0, bytes.length()), string.hashIgnoringWhitespace(0, string.length()),
+                    "Whitespace-insensitive hashes should be computed on the UTF-8 encoding");
+        }
+
+        @Test
+        void shouldMatchRegionsAcrossKinds() {
+            SourceText string = SourceText.of(TEXT);
+            SourceText bytes = utf8(TEXT);
+            assertTrue(string.regionMatches(0, string.length(), bytes, 0, bytes.length()),
+                    "Same text should match although the ranges differ in units");
+            assertFalse(string.regionMatches(0, string.length() - 1, bytes, 0, bytes.length()),
+                    "Shorter range should not match");
+        }
+
+        @Test
+        void shouldCompareBodiesAcrossKinds() {
+            String body = "return \"€ 😀\" + x";
+            int start = TEXT.indexOf(body);
+            int byteStart = TEXT.substring(0, start).getBytes(StandardCharsets.UTF_8).length;
+            int byteEnd = byteStart + body.getBytes(StandardCharsets.UTF_8).length;
+            OperationBody fromString = OperationBody.of("a.py", SourceText.of(TEXT), byteStart, byteEnd);
+            OperationBody fromBytes = OperationBody.of("b.py", utf8(TEXT), byteStart, byteEnd);
+
+            assertEquals(body, fromString.getText(), "String sources should be sliced at byte offsets");
+            assertEquals(fromString, fromBytes, "Bodies with the same text should be equal across kinds");
+            assertEquals(fromString.hashCode(), fromBytes.hashCode(), "Equal bodies should have equal hash codes");
+            assertEquals(OperationBody.of(body), fromBytes, "Owned body should equal a body of a byte source");
+            assertFalse(OperationBody.of(body + " ").contentEquals(fromBytes), "Different text should not be equal");
+        }
+    }
+}
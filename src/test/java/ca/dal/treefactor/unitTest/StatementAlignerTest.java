@@ -0,0 +1,132 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.diff.mappers.LCSStatementAligner;
+import ca.dal.treefactor.model.diff.mappers.StatementAligner;
+
+class StatementAlignerTest {
+
+    // Number of aligned statements, after checking that the alignment pairs equal ids in order
+    private static int alignedCount(int[] ids1, int[] ids2, int[] alignment) {
+        assertEquals(ids1.length, alignment.length);
+        int last = -1;
+        int count = 0;
+        for (int i = 0; i < alignment.length; i++) {
+            if (alignment[i] >= 0) {
+                assertTrue(alignment[i] > last, "Alignment should increase along both operations");
+                assertEquals(ids1[i], ids2[alignment[i]], "Aligned statements should be equal");
+                last = alignment[i];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] randomIds(Random random, int length, int distinct) {
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = random.nextInt(distinct);
+        }
+        return ids;
+    }
+
+    @Nested
+    class LCSTests {
+        @Test
+        void shouldSkipSecondOperationOnTies() {
+            // Both {0 -> 1} and {1 -> 0} are longest, backtracking from the end keeps the later statement of operation1
+            int[] alignment = StatementAligner.lcs().align(new int[]{1, 2}, new int[]{2, 1});
+            assertArrayEquals(new int[]{-1, 0}, alignment);
+        }
+
+        @Test
+        void shouldAlignLargeTablesExactlyWithCheckpoints() {
+            Random random = new Random(3);
+            StatementAligner fullTable = new LCSStatementAligner(Long.MAX_VALUE);
+            StatementAligner checkpoints = new LCSStatementAligner(0);
+            for (int round = 0; round < 500; round++) {
+                int[] ids1 = randomIds(random, random.nextInt(40), 1 + random.nextInt(6));
+                int[] ids2 = randomIds(random, random.nextInt(40), 1 + random.nextInt(6));
+                assertArrayEquals(fullTable.align(ids1, ids2), checkpoints.align(ids1, ids2));
+            }
+        }
+
+        @Test
+        void shouldFindLongestAcrossWords() {
+            // Bodies longer than one 64-bit word carry between words, Myers' algorithm does not use the table
+            Random random = new Random(11);
+            for (int round = 0; round < 200; round++) {
+                int[] ids1 = randomIds(random, random.nextInt(200), 1 + random.nextInt(6));
+                int[] ids2 = randomIds(random, random.nextInt(200), 1 + random.nextInt(6));
+                int expected = alignedCount(ids1, ids2, StatementAligner.myers().align(ids1, ids2));
+                assertEquals(expected, alignedCount(ids1, ids2, StatementAligner.lcs().align(ids1, ids2)));
+            }
+        }
+
+        @Test
+        void shouldAlignInsertedStatements() {
+            int[] alignment = StatementAligner.lcs().align(new int[]{1, 2, 3}, new int[]{1, 4, 2, 3});
+            assertArrayEquals(new int[]{0, 2, 3}, alignment);
+        }
+    }
+
+    @Nested
+    class MyersTests {
+        @Test
+        void shouldFindLongestCommonSubsequences() {
+            Random random = new Random(42);
+            for (int round = 0; round < 500; round++) {
+                int[] ids1 = randomIds(random, random.nextInt(30), 1 + random.nextInt(6));
+                int[] ids2 = randomIds(random, random.nextInt(30), 1 + random.nextInt(6));
+                int expected = alignedCount(ids1, ids2, StatementAligner.lcs().align(ids1, ids2));
+                assertEquals(expected, alignedCount(ids1, ids2, StatementAligner.myers().align(ids1, ids2)));
+            }
+        }
+
+        @Test
+        void shouldAlignLongOperationsWithFewChanges() {
+            int[] ids1 = new int[10_000];
+            int[] ids2 = new int[10_000];
+            for (int i = 0; i < ids1.length; i++) {
+                ids1[i] = i;
+                ids2[i] = i % 1000 == 0 ? -1 : i;
+            }
+            assertEquals(9_990, alignedCount(ids1, ids2, StatementAligner.myers().align(ids1, ids2)));
+        }
+    }
+
+    @Nested
+    class HistogramTests {
+        @Test
+        void shouldProduceValidAlignments() {
+            Random random = new Random(7);
+            for (int round = 0; round < 500; round++) {
+                int[] ids1 = randomIds(random, random.nextInt(30), 1 + random.nextInt(6));
+                int[] ids2 = randomIds(random, random.nextInt(30), 1 + random.nextInt(6));
+                alignedCount(ids1, ids2, StatementAligner.histogram().align(ids1, ids2));
+            }
+        }
+
+        @Test
+        void shouldAnchorOnUniqueStatements() {
+            // The braces are frequent, the unique return anchors the alignment
+            int[] ids1 = {0, 1, 0, 2, 0};
+            int[] ids2 = {0, 2, 0, 1, 0};
+            int[] alignment = StatementAligner.histogram().align(ids1, ids2);
+            assertEquals(1, alignment[3]);
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownAligner() {
+        assertThrows(IllegalArgumentException.class, () -> StatementAligner.byName("patience"));
+    }
+}
@@ -0,0 +1,240 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.CodeElementType;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.UMLComment;
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.elements.UMLAttribute;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+class UMLElementTest {
+    private static final String TEST_FILE = "shapes.cpp";
+
+    private static LocationInfo location(CodeElementType type) {
+        return new LocationInfo(TEST_FILE, new Point(0, 0), new Point(1, 0), type);
+    }
+
+    private static UMLComment comment(String text) {
+        return UMLComment.builder(text, location(CodeElementType.COMMENT)).build();
+    }
+
+    @Nested
+    class FreezeTests {
+        private UMLClass shape;
+        private UMLOperation area;
+        private UMLAttribute sides;
+        private UMLParameter scale;
+
+        @BeforeEach
+        void setUp() {
+            shape = new UMLClass("", "Shape", location(CodeElementType.CLASS_DECLARATION));
+            area = new UMLOperation("area", location(CodeElementType.METHOD_DECLARATION));
+            scale = new UMLParameter("scale", new UMLType("float"), location(CodeElementType.PARAMETER_DECLARATION));
+            area.addParameter(scale);
+            sides = new UMLAttribute("sides", new UMLType("int"), location(CodeElementType.FIELD_DECLARATION));
+            shape.addOperation(area);
+            shape.addAttribute(sides);
+            shape.addSuperclass("Base");
+        }
+
+        @Test
+        void shouldReturnReadOnlyViewsBeforeFreezing() {
+            assertThrows(UnsupportedOperationException.class, () -> shape.getOperations().clear());
+            assertThrows(UnsupportedOperationException.class, () -> shape.getAttributes().clear());
+            assertThrows(UnsupportedOperationException.class, () -> shape.getSuperclasses().add("Other"));
+            assertThrows(UnsupportedOperationException.class, () -> area.getParameters().clear());
+            assertThrows(UnsupportedOperationException.class, () -> sides.getComments().add(comment("// sides")));
+
+            shape.addSuperclass("Other");
+            assertEquals(List.of("Base", "Other"), shape.getSuperclasses(), "Views should follow the element");
+        }
+
+        @Test
+        void shouldFreezeMembersWithTheirClass() {
+            shape.freeze();
+            assertTrue(shape.isFrozen());
+            assertTrue(area.isFrozen(), "Operations should be frozen with their class");
+            assertTrue(sides.isFrozen(), "Attributes should be frozen with their class");
+            assertTrue(scale.isFrozen(), "Parameters should be frozen with their operation");
+            assertTrue(scale.getType().isFrozen(), "Types should be frozen with their parameter");
+        }
+
+        @Test
+        void shouldRejectChangesToFrozenCollections() {
+            shape.freeze();
+            UMLOperation other = new UMLOperation("perimeter", location(CodeElementType.METHOD_DECLARATION));
+
+            assertThrows(IllegalStateException.class, () -> shape.addOperation(other));
+            assertThrows(IllegalStateException.class, () -> shape.removeOperation(area));
+            assertThrows(IllegalStateException.class, () -> shape.removeAttribute(sides));
+            assertThrows(IllegalStateException.class, () -> shape.addSuperclass("Other"));
+            assertThrows(IllegalStateException.class, () -> shape.addComment(comment("// shape")));
+            assertThrows(IllegalStateException.class, () -> area.removeParameter(scale));
+            assertThrows(IllegalStateException.class, () -> area.addComment(comment("// area")));
+            assertThrows(IllegalStateException.class, () -> sides.addComment(comment("// sides")));
+            assertThrows(IllegalStateException.class, () -> scale.getType().setCollection(true));
+
+            assertThrows(UnsupportedOperationException.class, () -> shape.getOperations().clear());
+            assertThrows(UnsupportedOperationException.class, () -> area.getParameters().clear());
+            assertEquals(List.of(area), shape.getOperations(), "Rejected changes should leave the class unchanged");
+        }
+
+        @Test
+        void shouldKeepScalarPropertiesSettable() {
+            shape.freeze();
+            sides.setInitialValue("4");
+            assertEquals("4", sides.getInitialValue(), "Initial value should be settable after freezing");
+        }
+    }
+
+    @Nested
+    class FlagTests {
+        private UMLParameter parameter() {
+            return new UMLParameter("value", new UMLType("int"), location(CodeElementType.PARAMETER_DECLARATION));
+        }
+
+        @Test
+        void shouldRoundTripParameterFlags() {
+            List<Setter<UMLParameter>> setters = List.of(UMLParameter::setVarargs, UMLParameter::setFinal,
+                    UMLParameter::setKeywordOnly, UMLParameter::setReference, UMLParameter::setRValueReference,
+                    UMLParameter::setConst, UMLParameter::setPointer, UMLParameter::setVolatile);
+            List<Getter<UMLParameter>> getters = List.of(UMLParameter::isVarargs, UMLParameter::isFinal,
+                    UMLParameter::isKeywordOnly, UMLParameter::isReference, UMLParameter::isRValueReference,
+                    UMLParameter::isConst, UMLParameter::isPointer, UMLParameter::isVolatile);
+            for (int i = 0; i < setters.size(); i++) {
+                UMLParameter parameter = parameter();
+                setters.get(i).set(parameter, true);
+                for (int j = 0; j < getters.size(); j++) {
+                    assertEquals(i == j, getters.get(j).get(parameter), "Setting flag " + i + " should only set it");
+                }
+                setters.get(i).set(parameter, false);
+                for (Getter<UMLParameter> getter : getters) {
+                    assertFalse(getter.get(parameter), "Clearing flag " + i + " should leave no flag set");
+                }
+            }
+        }
+
+        @Test
+        void shouldKeepReferenceKindsExclusive() {
+            UMLParameter parameter = parameter();
+            parameter.setReference(true);
+            parameter.setRValueReference(true);
+            assertTrue(parameter.isRValueReference());
+            assertFalse(parameter.isReference(), "An rvalue reference should not also be an lvalue reference");
+
+            parameter.setReference(true);
+            assertTrue(parameter.isReference());
+            assertFalse(parameter.isRValueReference(), "An lvalue reference should not also be an rvalue reference");
+        }
+
+        @Test
+        void shouldTrackDefaultValuePresence() {
+            UMLParameter parameter = parameter();
+            parameter.setDefaultValue("1");
+            assertTrue(parameter.hasDefaultValue());
+            parameter.setDefaultValue(null);
+            assertFalse(parameter.hasDefaultValue());
+        }
+
+        @Test
+        void shouldKeepFlagsAcrossFreezing() {
+            UMLParameter parameter = parameter();
+            parameter.setConst(true);
+            parameter.freeze();
+            assertTrue(parameter.isFrozen());
+            assertTrue(parameter.isConst(), "Freezing should not clear the other flags");
+            parameter.setConst(false);
+            assertTrue(parameter.isFrozen(), "Clearing a flag should not unfreeze the parameter");
+        }
+
+        @Test
+        void shouldRoundTripOperationFlags() {
+            List<Setter<UMLOperation>> setters = List.of(UMLOperation::setStatic, UMLOperation::setAbstract,
+                    UMLOperation::setFinal, UMLOperation::setConstructor, UMLOperation::setDestructor,
+                    UMLOperation::setAsync, UMLOperation::setGenerator, UMLOperation::setVirtual,
+                    UMLOperation::setConst, UMLOperation::setInline, UMLOperation::setNoexcept);
+            List<Getter<UMLOperation>> getters = List.of(UMLOperation::isStatic, UMLOperation::isAbstract,
+                    UMLOperation::isFinal, UMLOperation::isConstructor, UMLOperation::isDestructor,
+                    UMLOperation::isAsync, UMLOperation::isGenerator, UMLOperation::isVirtual,
+                    UMLOperation::isConst, UMLOperation::isInline, UMLOperation::isNoexcept);
+            for (int i = 0; i < setters.size(); i++) {
+                UMLOperation operation = new UMLOperation("run", location(CodeElementType.METHOD_DECLARATION));
+                setters.get(i).set(operation, true);
+                for (int j = 0; j < getters.size(); j++) {
+                    assertEquals(i == j, getters.get(j).get(operation), "Setting flag " + i + " should only set it");
+                }
+                setters.get(i).set(operation, false);
+                for (Getter<UMLOperation> getter : getters) {
+                    assertFalse(getter.get(operation), "Clearing flag " + i + " should leave no flag set");
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Setter<T> {
+        void set(T element, boolean value);
+    }
+
+    @FunctionalInterface
+    private interface Getter<T> {
+        boolean get(T element);
+    }
+
+    @Nested
+    class HashCodeTests {
+        private UMLOperation operation(String className) {
+            UMLOperation operation = new UMLOperation("area", location(CodeElementType.METHOD_DECLARATION));
+            operation.setClassName(className);
+            operation.addParameter(new UMLParameter("scale", new UMLType("float"),
+                    location(CodeElementType.PARAMETER_DECLARATION)));
+            return operation;
+        }
+
+        @Test
+        void shouldKeepHashCodeAcrossFreezing() {
+            UMLOperation operation = operation("Shape");
+            int before = operation.hashCode();
+            operation.freeze();
+            assertEquals(before, operation.hashCode(), "Freezing should not change the hash code");
+            assertEquals(operation("Shape"), operation, "Frozen and unfrozen operations should be equal");
+        }
+
+        @Test
+        void shouldRehashAfterClassNameChanges() {
+            UMLOperation operation = operation("Shape");
+            operation.hashCode();
+            operation.setClassName("Circle");
+
+            UMLOperation expected = operation("Circle");
+            assertEquals(expected.hashCode(), operation.hashCode(), "Hash code should follow the class name");
+            assertEquals(expected, operation);
+            assertNotEquals(operation("Shape"), operation);
+        }
+
+        @Test
+        void shouldRejectClassNameChangeOnFrozenOperation() {
+            UMLOperation operation = operation("Shape");
+            operation.freeze();
+            int hash = operation.hashCode();  // Caches the hash code
+
+            assertThrows(IllegalStateException.class, () -> operation.setClassName("Circle"));
+            assertEquals("Shape", operation.getClassName());
+            assertEquals(hash, operation.hashCode(), "Cached hash code should stay valid");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ca.dal.treefactor.unitTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.CodeElementType;
+import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.UMLModelCodec;
+import ca.dal.treefactor.model.UMLModelFragment;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.OperationBody;
+import ca.dal.treefactor.model.core.UMLImport;
+import ca.dal.treefactor.model.core.UMLParameter;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.core.Visibility;
+import ca.dal.treefactor.model.elements.UMLAttribute;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+class UMLModelCodecTest {
+    private static final String TEST_FILE = "shapes.py";
+    private static final String SOURCE = "class Shape:\n    def area(self, scale: float = 1.0):\n        return 0\n";
+
+    private UMLModel model;
+
+    @BeforeEach
+    void setUp() {
+        UMLClass shape = new UMLClass("shapes", "Shape",
+                new LocationInfo(TEST_FILE, new Point(0, 0), new Point(2, 16), CodeElementType.CLASS_DECLARATION));
+        shape.setVisibility(Visibility.PUBLIC);
+        shape.addSuperclass("object");
+
+        UMLType listType = new UMLType("List");
+        listType.setCollection(true);
+        listType.addTypeParameter(new UMLType("int"));
+        UMLAttribute sides = new UMLAttribute("sides", listType,
+                new LocationInfo(TEST_FILE, new Point(1, 4), new Point(1, 20), CodeElementType.FIELD_DECLARATION));
+        sides.setStatic(true);
+        shape.addAttribute(sides);
+
+        UMLOperation area = new UMLOperation("area",
+                new LocationInfo(TEST_FILE, new Point(1, 4), new Point(2, 16), CodeElementType.METHOD_DECLARATION));
+        area.setClassName("Shape");
+        area.setReturnType(new UMLType("int"));
+        area.setVisibility(Visibility.PUBLIC);
+        UMLParameter scale = new UMLParameter("scale", new UMLType("float"),
+                new LocationInfo(TEST_FILE, new Point(1, 19), new Point(1, 37), CodeElementType.PARAMETER_DECLARATION));
+        scale.setDefaultValue("1.0");
+        area.addParameter(scale);
+        area.setBody(OperationBody.of(TEST_FILE, SOURCE, SOURCE.indexOf("def"), SOURCE.length()));
+        shape.addOperation(area);
+
+        UMLImport math = new UMLImport("math",
+                new LocationInfo(TEST_FILE, new Point(0, 0), new Point(0, 11), CodeElementType.IMPORT_DECLARATION),
+                UMLImport.ImportType.SINGLE, false, "m");
+
+        model = new UMLModel("python");
+        model.addFragment(UMLModelFragment.builder(TEST_FILE)
+                .packageName("shapes")
+                .addClass(shape)
+                .addImport(math)
+                .build());
+        model.addSourceFileContent(TEST_FILE, SOURCE);
+    }
+
+    @Nested
+    class RoundTripTests {
+        @Test
+        void shouldKeepFileContents() throws IOException {
+            UMLModel decoded = UMLModelCodec.decode(UMLModelCodec.encode(model, false));
+            assertEquals("python", decoded.getLanguage());
+            assertEquals("shapes", decoded.getPackage(TEST_FILE));
+            assertEquals(SOURCE, decoded.getSourceFileContent(TEST_FILE));
+            assertEquals(1, decoded.getImports(TEST_FILE).size());
+            assertEquals("m", decoded.getImports(TEST_FILE).get(0).getAlias());
+        }
+
+        @Test
+        void shouldKeepClassesAndOperations() throws IOException {
+            UMLModel decoded = UMLModelCodec.decode(UMLModelCodec.encode(model, true));
+            assertEquals(model.getClasses(), decoded.getClasses());
+
+            UMLClass shape = decoded.getClasses().get(0);
+            assertEquals(Visibility.PUBLIC, shape.getVisibility());
+            assertEquals("object", shape.getSuperclasses().get(0));
+            assertTrue(shape.getAttributes().get(0).isStatic());
+            assertEquals("List", shape.getAttributes().get(0).getType().getTypeName());
+            assertEquals("int", shape.getAttributes().get(0).getType().getTypeParameters().get(0).getTypeName());
+
+            UMLOperation area = shape.getOperations().get(0);
+            assertEquals(model.getClasses().get(0).getOperations().get(0), area);
+            assertEquals("1.0", area.getParameters().get(0).getDefaultValue());
+            assertEquals(model.getClasses().get(0).getOperations().get(0).getBody(), area.getBody());
+        }
+
+        @Test
+        void shouldStreamOneFileAtATime() throws IOException {
+            byte[] bytes = UMLModelCodec.encode(model, true);
+            try (UMLModelCodec.Reader reader = new UMLModelCodec.Reader(new ByteArrayInputStream(bytes))) {
+                UMLModelCodec.FileEntry entry = reader.readFile();
+                assertEquals(TEST_FILE, entry.fragment().getFilePath());
+                assertEquals(1, entry.fragment().getClasses().size());
+                assertNull(reader.readFile());
+            }
+        }
+    }
+
+    @Nested
+    class FormatTests {
+        @Test
+        void shouldRejectUnknownInput() {
+            assertThrows(IOException.class, () -> UMLModelCodec.decode(new byte[]{'T', 'F', 'X', 'X', 1, 0}));
+        }
+
+        @Test
+        void shouldRejectUnknownElementType() {
+            // An uncompressed "cpp" model whose file a holds a class A located with element type 98
+            byte[] encoded = {'T', 'F', 'U', 'M', (byte) UMLModelCodec.FORMAT_VERSION, 0, 1, 4, 'c', 'p', 'p',
+                    1, 1, 2, 'a', 0, 1, 0, 1, 2, 'A', 100};
+            IOException exception = assertThrows(IOException.class, () -> UMLModelCodec.decode(encoded));
+            assertEquals("Corrupt UML model, unknown element type 98", exception.getMessage());
+        }
+
+        @Test
+        void shouldEncodeEmptyModel() throws IOException {
+            UMLModel decoded = UMLModelCodec.decode(UMLModelCodec.encode(new UMLModel("cpp"), true));
+            assertEquals("cpp", decoded.getLanguage());
+            assertTrue(decoded.getClasses().isEmpty());
+            assertNull(decoded.getSourceFileContent(TEST_FILE));
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package ca.dal.treefactor.unitTest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -16,6 +19,7 @@ import ca.dal.treefactor.model.core.UMLParameter;
 import ca.dal.treefactor.model.core.UMLType;
 import ca.dal.treefactor.model.diff.UMLModelDiff;
 import ca.dal.treefactor.model.diff.refactoring.Refactoring;
+import ca.dal.treefactor.model.diff.refactoring.operations.RenameMethodRefactoring;
 import ca.dal.treefactor.model.diff.refactoring.operations.RenameParameterRefactoring;
 import ca.dal.treefactor.model.elements.UMLClass;
 import ca.dal.treefactor.model.elements.UMLOperation;
@@ -204,6 +208,242 @@ class UMLModelDiffTest {
             assertEquals("Greeter", rename.getOperation().getClassName());
         }
 
+        @Test
+        void testRenamedClassIsMatchedByMembers() {
+            // Old: class Greeter with greet and farewell
+            // New: class Welcomer with the same methods
+            oldModel.addClass(createClass("Greeter", "greet", "farewell"));
+            UMLClass unrelatedClass = createClass("Parser", "parse");
+            newModel.addClass(unrelatedClass);
+            UMLClass renamedClass = createClass("Welcomer", "greet", "farewell");
+            newModel.addClass(renamedClass);
+
+            modelDiff = new UMLModelDiff(oldModel, newModel);
+            modelDiff.detectRefactorings();
+
+            assertEquals(1, modelDiff.getMatchedClasses().size());
+            assertEquals(renamedClass, modelDiff.getMatchedClasses().values().iterator().next());
+        }
+
+        @Test
+        void testUnchangedOperationTakesFastPath() {
+            // Same parameters and body, only the declared return type changed
+            LocationInfo loc = new LocationInfo(TEST_FILE,
+                    new Point(1, 0), new Point(2, 0),
+                    CodeElementType.METHOD_DECLARATION);
+            oldModel.addOperation(UMLOperation.builder("greet", loc)
+                    .returnType(new UMLType("None"))
+                    .body("print('hello')")
+                    .build());
+            newModel.addOperation(UMLOperation.builder("greet", loc)
+                    .returnType(new UMLType("str"))
+                    .body("print('hello')")
+                    .build());
+
+            modelDiff = new UMLModelDiff(oldModel, newModel);
+
+            assertTrue(modelDiff.detectRefactorings().isEmpty());
+            assertEquals(1, modelDiff.getUnchangedOperationCount());
+        }
+
+        private UMLClass createClass(String name, String... methodNames) {
+            LocationInfo classLoc = new LocationInfo(TEST_FILE,
+                    new Point(1, 0), new Point(10, 0),
+                    CodeElementType.CLASS_DECLARATION);
+            UMLClass umlClass = UMLClass.builder(name, classLoc)
+                    .packageName("")
+                    .build();
+            for (String methodName : methodNames) {
+                LocationInfo methodLoc = new LocationInfo(TEST_FILE,
+                        new Point(2, 4), new Point(3, 0),
+                        CodeElementType.METHOD_DECLARATION);
+                umlClass.addOperation(UMLOperation.builder(methodName, methodLoc)
+                        .className(name)
+                        .returnType(new UMLType("None"))
+                        .body("print('" + methodName + "')")
+                        .build());
+            }
+            return umlClass;
+        }
+
+
+    }
+
+    @Nested
+    class QualifiedKeyTests {
+        private static final String BILLING_FILE = "billing/service.py";
+        private static final String SHIPPING_FILE = "shipping/service.py";
+
+        // A class Service of the module of the file, holding one method whose body uses its parameter
+        private UMLClass createService(String filePath, String packageName, String methodName, String parameterName) {
+            UMLClass service = UMLClass.builder("Service", new LocationInfo(filePath,
+                            new Point(1, 0), new Point(4, 0), CodeElementType.CLASS_DECLARATION))
+                    .packageName(packageName)
+                    .build();
+            LocationInfo methodLoc = new LocationInfo(filePath, new Point(2, 4), new Point(4, 0),
+                    CodeElementType.METHOD_DECLARATION);
+            UMLOperation operation = UMLOperation.builder(methodName, methodLoc)
+                    .className("Service")
+                    .returnType(new UMLType("None"))
+                    .body("total = " + parameterName + " * rate\nlog(total)\nreturn total")
+                    .build();
+            operation.addParameter(new UMLParameter(parameterName, new UMLType("object"), methodLoc));
+            service.addOperation(operation);
+            return service;
+        }
+
+        @Test
+        void shouldMatchSameNamedClassesOfDifferentPackagesSeparately() {
+            // Both methods are renamed to the same name, in two classes named Service
+            UMLModel oldModel = new UMLModel("python");
+            oldModel.addClass(createService(BILLING_FILE, "billing", "charge", "amount"));
+            oldModel.addClass(createService(SHIPPING_FILE, "shipping", "chargeAmounts", "fee"));
+            UMLModel newModel = new UMLModel("python");
+            newModel.addClass(createService(BILLING_FILE, "billing", "chargeAmount", "amount"));
+            newModel.addClass(createService(SHIPPING_FILE, "shipping", "chargeAmount", "fee"));
+
+            List<RenameMethodRefactoring> renames = new UMLModelDiff(oldModel, newModel).detectRefactorings().stream()
+                    .filter(RenameMethodRefactoring.class::isInstance)
+                    .map(RenameMethodRefactoring.class::cast)
+                    .toList();
+
+            assertEquals(2, renames.size(), "Each method should be renamed once");
+            assertNotSame(renames.get(0).getRenamedOperation(), renames.get(1).getRenamedOperation(),
+                    "A new method should not be matched twice");
+            for (RenameMethodRefactoring rename : renames) {
+                assertEquals(rename.getOriginalOperation().getLocationInfo().getFilePath(),
+                        rename.getRenamedOperation().getLocationInfo().getFilePath(),
+                        "Methods should be matched within their own package");
+            }
+        }
 
+        @Test
+        void shouldKeepSameNamedFunctionsOfDifferentFiles() {
+            UMLModel oldModel = new UMLModel("python");
+            UMLModel newModel = new UMLModel("python");
+            for (String filePath : List.of(BILLING_FILE, SHIPPING_FILE)) {
+                LocationInfo loc = new LocationInfo(filePath, new Point(1, 0), new Point(2, 0),
+                        CodeElementType.METHOD_DECLARATION);
+                UMLOperation oldOperation = UMLOperation.builder("validate", loc)
+                        .returnType(new UMLType("None"))
+                        .body("check(n)")
+                        .build();
+                oldOperation.addParameter(new UMLParameter("n", new UMLType("object"), loc));
+                oldModel.addOperation(oldOperation);
+                UMLOperation newOperation = UMLOperation.builder("validate", loc)
+                        .returnType(new UMLType("None"))
+                        .body("check(value)")
+                        .build();
+                newOperation.addParameter(new UMLParameter("value", new UMLType("object"), loc));
+                newModel.addOperation(newOperation);
+            }
+
+            List<Refactoring> refactorings = new UMLModelDiff(oldModel, newModel).detectRefactorings();
+            assertEquals(2, refactorings.size(), "The parameter of each function should be renamed");
+            assertTrue(refactorings.stream().allMatch(RenameParameterRefactoring.class::isInstance));
+        }
+
+        @Test
+        void shouldMatchFunctionMovedToAnotherFile() {
+            // The function moves from billing to shipping, its parameter is renamed and its body rewritten
+            LocationInfo oldLoc = new LocationInfo(BILLING_FILE, new Point(1, 0), new Point(2, 0),
+                    CodeElementType.METHOD_DECLARATION);
+            UMLOperation oldOperation = UMLOperation.builder("validate", oldLoc)
+                    .returnType(new UMLType("None"))
+                    .body("check(n)")
+                    .build();
+            oldOperation.addParameter(new UMLParameter("n", new UMLType("object"), oldLoc));
+            UMLModel oldModel = new UMLModel("python");
+            oldModel.addOperation(oldOperation);
+
+            LocationInfo newLoc = new LocationInfo(SHIPPING_FILE, new Point(5, 0), new Point(6, 0),
+                    CodeElementType.METHOD_DECLARATION);
+            UMLOperation newOperation = UMLOperation.builder("validate", newLoc)
+                    .returnType(new UMLType("None"))
+                    .body("if value is None:\n    raise ValueError(value)\nlog(value)")
+                    .build();
+            newOperation.addParameter(new UMLParameter("value", new UMLType("object"), newLoc));
+            UMLModel newModel = new UMLModel("python");
+            newModel.addOperation(newOperation);
+
+            List<Refactoring> refactorings = new UMLModelDiff(oldModel, newModel).detectRefactorings();
+            assertEquals(1, refactorings.size(), "The moved function should be matched by its signature");
+            assertTrue(refactorings.get(0) instanceof RenameParameterRefactoring);
+        }
+    }
+
+    @Nested
+    class ParallelismTests {
+        private static final int CLASSES = 6;
+        private static final int METHODS = 20;
+
+        // Every fourth method is renamed, moved to the next class, has its parameter renamed, or is unchanged
+        private UMLModel createModel(boolean changed) {
+            UMLModel model = new UMLModel("python");
+            List<UMLClass> classes = new ArrayList<>();
+            for (int c = 0; c < CLASSES; c++) {
+                classes.add(UMLClass.builder("Service" + c, location(CodeElementType.CLASS_DECLARATION))
+                        .packageName("")
+                        .build());
+            }
+            for (int c = 0; c < CLASSES; c++) {
+                for (int m = 0; m < METHODS; m++) {
+                    String name = "handle" + m;
+                    String parameterName = "request";
+                    int owner = c;
+                    if (changed && m % 4 == 0) {
+                        name = "handle" + m + "Request";
+                    } else if (changed && m % 4 == 1) {
+                        owner = (c + 1) % CLASSES;
+                    } else if (changed && m % 4 == 2) {
+                        parameterName = "req";
+                    }
+                    StringBuilder body = new StringBuilder();
+                    for (int k = 0; k < 5; k++) {
+                        body.append("v").append(c).append('_').append(m).append('_').append(k)
+                                .append(" = call(").append(parameterName).append(", ").append(k).append(")\n");
+                    }
+                    UMLOperation operation = UMLOperation.builder(name, location(CodeElementType.METHOD_DECLARATION))
+                            .className("Service" + owner)
+                            .returnType(new UMLType("None"))
+                            .body(body.toString())
+                            .build();
+                    operation.addParameter(new UMLParameter(parameterName, new UMLType("object"),
+                            location(CodeElementType.PARAMETER_DECLARATION)));
+                    classes.get(owner).addOperation(operation);
+                }
+            }
+            classes.forEach(model::addClass);
+            return model;
+        }
+
+        private LocationInfo location(CodeElementType type) {
+            return new LocationInfo(TEST_FILE, new Point(1, 0), new Point(2, 0), type);
+        }
+
+        private List<String> detect(UMLModel oldModel, UMLModel newModel, int parallelism) {
+            return new UMLModelDiff(oldModel, newModel, parallelism).detectRefactorings().stream()
+                    .map(Refactoring::toString)
+                    .toList();
+        }
+
+        @Test
+        void shouldDetectSameRefactoringsAtAnyParallelism() {
+            UMLModel oldModel = createModel(false);
+            UMLModel newModel = createModel(true);
+            List<String> sequential = detect(oldModel, newModel, 1);
+
+            assertEquals(CLASSES * METHODS / 2, sequential.size(),
+                    "Every renamed method and renamed parameter should be detected");
+            for (int parallelism : new int[]{2, 4, 8}) {
+                assertEquals(sequential, detect(oldModel, newModel, parallelism),
+                        "Refactorings should not depend on the parallelism, here " + parallelism);
+            }
+        }
+
+        @Test
+        void shouldRejectParallelismBelowOne() {
+            assertThrows(IllegalArgumentException.class, () -> new UMLModelDiff(new UMLModel("python"), new UMLModel("python"), 0));
+        }
     }
 }
\ No newline at end of file
@@ -1,15 +1,23 @@
 package ca.dal.treefactor.unitTest;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.core.SourceText;
 import ca.dal.treefactor.model.elements.UMLClass;
 import ca.dal.treefactor.model.elements.UMLOperation;
+import ca.dal.treefactor.util.ParseBudget;
+import ca.dal.treefactor.util.ParseDiagnostic;
 import ca.dal.treefactor.util.UMLModelReader;
 
 public class UMLModelReaderTest {
@@ -73,4 +81,116 @@ public class UMLModelReaderTest {
                     "Method return type should be 'None'");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class BudgetTests {
+        private static final String FILE = "large.py";
+
+        // Enough classes that neither parsing nor visiting fits in a millisecond
+        private String largeSource() {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < 20_000; i++) {
+                source.append("class Example").append(i).append(":\n")
+                        .append("    def method(self, value):\n")
+                        .append("        return value + ").append(i).append("\n\n");
+            }
+            return source.toString();
+        }
+
+        private UMLModelReader read(String source, ParseBudget budget) {
+            return new UMLModelReader(Map.of(FILE, SourceText.of(source)), budget);
+        }
+
+        private void assertSkipped(UMLModelReader reader, ParseDiagnostic.Reason reason) {
+            List<ParseDiagnostic> diagnostics = reader.getDiagnostics();
+            assertEquals(1, diagnostics.size());
+            assertEquals(FILE, diagnostics.get(0).getFilePath());
+            assertEquals(reason, diagnostics.get(0).getReason());
+
+            // No partial fragment of the file is left in the model
+            UMLModel skipped = reader.getUmlModel();
+            assertTrue(skipped.getClasses().isEmpty());
+            assertTrue(skipped.getOperations().isEmpty());
+            assertNull(skipped.getFragment(FILE));
+            assertTrue(skipped.getFilePaths().isEmpty());
+        }
+
+        @Test
+        void shouldParseFilesWithinBudget() {
+            UMLModelReader reader = read("class Example:\n    def method(self):\n        pass", ParseBudget.builder()
+                    .maxFileBytes(1024)
+                    .build());
+            assertTrue(reader.getDiagnostics().isEmpty());
+            assertEquals(1, reader.getUmlModel().getClasses().size());
+        }
+
+        @Test
+        void shouldSkipFilesAboveSizeLimit() {
+            UMLModelReader reader = read("class Example:\n    def method(self):\n        pass", ParseBudget.builder()
+                    .maxFileBytes(16)
+                    .build());
+            assertSkipped(reader, ParseDiagnostic.Reason.FILE_TOO_LARGE);
+        }
+
+        @Test
+        void shouldSkipFilesNotParsedInTime() {
+            UMLModelReader reader = read(largeSource(), ParseBudget.builder()
+                    .maxFileBytes(0)
+                    .parseTimeoutMillis(1)
+                    .visitTimeoutMillis(0)
+                    .build());
+            assertSkipped(reader, ParseDiagnostic.Reason.PARSE_TIMEOUT);
+        }
+
+        @Test
+        void shouldDropPartialFragmentOfFilesNotVisitedInTime() {
+            UMLModelReader reader = read(largeSource(), ParseBudget.builder()
+                    .maxFileBytes(0)
+                    .parseTimeoutMillis(0)
+                    .visitTimeoutMillis(1)
+                    .build());
+            assertSkipped(reader, ParseDiagnostic.Reason.VISIT_TIMEOUT);
+        }
+    }
+
+    @Nested
+    class ChunkedParsingTests {
+        private static final String FILE = "unicode.py";
+
+        // Non-ASCII text spread over several 64 KiB chunks, so characters straddle chunk boundaries
+        private String unicodeSource() {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < 2_000; i++) {
+                source.append("class Größe").append(i).append(":\n")
+                        .append("    def méthode(self, value):\n")
+                        .append("        return \"€ 😀 \" + value + ").append(i).append("\n\n");
+            }
+            return source.toString();
+        }
+
+        private UMLModel read(SourceText source) {
+            return new UMLModelReader(Map.of(FILE, source), ParseBudget.unlimited()).getUmlModel();
+        }
+
+        @Test
+        void shouldParseUtf8SourcesInChunksLikeStrings() {
+            String source = unicodeSource();
+            UMLModel fromString = read(SourceText.of(source));
+            UMLModel fromBytes = read(SourceText.ofUtf8(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))));
+
+            assertEquals(2_000, fromBytes.getClasses().size(), "Every class should be parsed from the chunks");
+            assertEquals(fromString.getClasses().size(), fromBytes.getClasses().size());
+            for (int i = 0; i < fromString.getClasses().size(); i++) {
+                UMLClass expected = fromString.getClasses().get(i);
+                UMLClass actual = fromBytes.getClasses().get(i);
+                assertEquals(expected.getName(), actual.getName());
+                UMLOperation expectedOperation = expected.getOperations().get(0);
+                UMLOperation actualOperation = actual.getOperations().get(0);
+                assertEquals("méthode", actualOperation.getName());
+                assertEquals(expectedOperation.getOperationBody(), actualOperation.getOperationBody(),
+                        "Bodies parsed from both kinds of source should be equal");
+                assertEquals(expectedOperation.getOperationBody().getText(), actualOperation.getOperationBody().getText());
+            }
+        }
+    }
+}
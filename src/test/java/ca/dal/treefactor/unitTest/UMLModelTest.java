@@ -0,0 +1,224 @@
+package ca.dal.treefactor.unitTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import ca.dal.treefactor.model.CodeElementType;
+import ca.dal.treefactor.model.UMLModel;
+import ca.dal.treefactor.model.UMLModelFragment;
+import ca.dal.treefactor.model.core.LocationInfo;
+import ca.dal.treefactor.model.core.UMLComment;
+import ca.dal.treefactor.model.core.UMLImport;
+import ca.dal.treefactor.model.core.UMLType;
+import ca.dal.treefactor.model.elements.UMLAttribute;
+import ca.dal.treefactor.model.elements.UMLClass;
+import ca.dal.treefactor.model.elements.UMLOperation;
+import io.github.treesitter.jtreesitter.Point;
+
+class UMLModelTest {
+    private static final String FILE_A = "a.py";
+    private static final String FILE_B = "b.py";
+
+    private UMLModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = new UMLModel("python");
+    }
+
+    private static LocationInfo location(String filePath, CodeElementType type) {
+        return new LocationInfo(filePath, new Point(0, 0), new Point(1, 0), type);
+    }
+
+    // A fragment with one class, one function, one import and one comment named after the suffix
+    private static UMLModelFragment fragment(String filePath, String suffix) {
+        return UMLModelFragment.builder(filePath)
+                .packageName("pkg" + suffix)
+                .addClass(UMLClass.builder("Class" + suffix, location(filePath, CodeElementType.CLASS_DECLARATION))
+                        .packageName("pkg" + suffix)
+                        .build())
+                .addOperation(new UMLOperation("function" + suffix, location(filePath, CodeElementType.METHOD_DECLARATION)))
+                .addImport(UMLImport.builder("module" + suffix, location(filePath, CodeElementType.IMPORT_DECLARATION)).build())
+                .addComment(UMLComment.builder("# comment " + suffix, location(filePath, CodeElementType.COMMENT)).build())
+                .build();
+    }
+
+    @Nested
+    class FragmentTests {
+        @Test
+        void shouldMergeFragmentsOfDifferentFiles() {
+            model.addFragment(fragment(FILE_A, "A"));
+            model.addFragment(fragment(FILE_B, "B"));
+
+            assertEquals(2, model.getNumberOfClasses(), "Classes of both files should be merged");
+            assertEquals(2, model.getOperations().size(), "Functions of both files should be merged");
+            assertTrue(model.getClassByName("ClassA") != null && model.getClassByName("ClassB") != null);
+            assertEquals("moduleA", model.getImports(FILE_A).get(0).getImportedName());
+            assertEquals("pkgB", model.getPackage(FILE_B));
+            assertEquals(List.of(model.getClassByName("ClassB")), model.getClassesByPackage("pkgB"));
+            assertEquals(List.of(FILE_A, FILE_B), new ArrayList<>(model.getFilePaths()));
+        }
+
+        @Test
+        void shouldReplaceWhatWasReadFromTheSameFile() {
+            model.addSourceFileContent(FILE_A, "content");
+            model.addFragment(fragment(FILE_A, "A"));
+            UMLModelFragment replacement = fragment(FILE_A, "C");
+            model.addFragment(replacement);
+
+            assertSame(replacement, model.getFragment(FILE_A), "Fragment of the file should be replaced");
+            assertEquals(List.of("ClassC"), model.getClasses().stream().map(UMLClass::getName).toList());
+            assertEquals(List.of("functionC"), model.getOperations().stream().map(UMLOperation::getName).toList());
+            assertEquals(1, model.getImports(FILE_A).size(), "Imports of the file should be replaced, not added");
+            assertEquals(1, model.getComments(FILE_A).size(), "Comments of the file should be replaced, not added");
+            assertNull(model.getClassByName("ClassA"), "Replaced class should not be found by name");
+            assertEquals("content", model.getSourceFileContent(FILE_A), "Source content should be kept");
+        }
+
+        @Test
+        void shouldRemoveEverythingReadFromFile() {
+            model.addSourceFileContent(FILE_A, "content");
+            model.addFragment(fragment(FILE_A, "A"));
+            model.addFragment(fragment(FILE_B, "B"));
+            model.removeFile(FILE_A);
+
+            assertNull(model.getFragment(FILE_A));
+            assertEquals(List.of("ClassB"), model.getClasses().stream().map(UMLClass::getName).toList());
+            assertEquals(List.of("functionB"), model.getOperations().stream().map(UMLOperation::getName).toList());
+            assertTrue(model.getImports(FILE_A).isEmpty());
+            assertTrue(model.getComments(FILE_A).isEmpty());
+            assertEquals("", model.getPackage(FILE_A));
+            assertNull(model.getSourceFileContent(FILE_A));
+            assertEquals(List.of(FILE_B), new ArrayList<>(model.getFilePaths()));
+        }
+
+        @Test
+        void shouldEqualModelMergedInAnotherOrder() {
+            UMLModel other = new UMLModel("python");
+            model.addFragment(fragment(FILE_A, "A"));
+            model.addFragment(fragment(FILE_B, "B"));
+            other.addFragment(fragment(FILE_B, "B"));
+            other.addFragment(fragment(FILE_A, "A"));
+
+            assertEquals(model, other, "Models with the same files should be equal");
+            assertEquals(model.hashCode(), other.hashCode());
+        }
+
+        @Test
+        void shouldHandOutReadOnlyCopies() {
+            model.addFragment(fragment(FILE_A, "A"));
+            List<UMLImport> imports = model.getImports(FILE_A);
+            assertThrows(UnsupportedOperationException.class, () -> imports.add(imports.get(0)));
+            model.removeFile(FILE_A);
+            assertEquals(1, imports.size(), "Copy should not change with the model");
+        }
+    }
+
+    @Nested
+    class StaticInitializerTests {
+        private static final String HEADER = "counter.h";
+        private static final String SOURCE = "counter.cpp";
+
+        // The header declares Counter with a static count, the source file initializes it
+        private UMLModelFragment header() {
+            UMLClass counter = UMLClass.builder("Counter", location(HEADER, CodeElementType.CLASS_DECLARATION))
+                    .packageName("counter")
+                    .build();
+            counter.addAttribute(new UMLAttribute("count", new UMLType("int"),
+                    location(HEADER, CodeElementType.FIELD_DECLARATION)));
+            return UMLModelFragment.builder(HEADER).packageName("counter").addClass(counter).build();
+        }
+
+        private UMLModelFragment source(String value) {
+            return UMLModelFragment.builder(SOURCE)
+                    .packageName("counter")
+                    .addStaticInitializer(new UMLModelFragment.StaticInitializer("Counter", "count", value))
+                    .build();
+        }
+
+        private String initialValue(UMLModel umlModel) {
+            return umlModel.getClassByName("Counter").getAttributes().get(0).getInitialValue();
+        }
+
+        @Test
+        void shouldApplyInitializerInEitherMergeOrder() {
+            model = new UMLModel("cpp");
+            UMLModel other = new UMLModel("cpp");
+            model.addFragment(header());
+            model.addFragment(source("0"));
+            other.addFragment(source("0"));
+            other.addFragment(header());
+
+            assertEquals("0", initialValue(model), "Initializer should apply to a class merged before it");
+            assertEquals("0", initialValue(other), "Initializer should apply to a class merged after it");
+            assertEquals(model, other, "Models with the same files should be equal");
+        }
+
+        @Test
+        void shouldResetInitializerOfRemovedFile() {
+            model.addFragment(header());
+            model.addFragment(source("0"));
+            model.removeFile(SOURCE);
+
+            assertNull(initialValue(model), "Initial value of the removed file should be reset");
+            assertTrue(model.getStaticInitializers(SOURCE).isEmpty());
+            assertEquals(List.of(HEADER), new ArrayList<>(model.getFilePaths()));
+        }
+
+        @Test
+        void shouldReplaceInitializerOfReadAgainFile() {
+            model.addFragment(header());
+            model.addFragment(source("0"));
+            model.addFragment(source("1"));
+
+            assertEquals("1", initialValue(model), "Initializer of the file read again should apply");
+            assertEquals(1, model.getStaticInitializers(SOURCE).size());
+        }
+    }
+
+    @Nested
+    class ConcurrencyTests {
+        @Test
+        void shouldMergeFragmentsConcurrently() throws Exception {
+            int files = 200;
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < files; i++) {
+                    String filePath = "file" + i + ".py";
+                    String suffix = String.valueOf(i);
+                    futures.add(executor.submit(() -> {
+                        model.addFragment(fragment(filePath, suffix));
+                        model.addImport(filePath, UMLImport.builder("extra",
+                                location(filePath, CodeElementType.IMPORT_DECLARATION)).build());
+                        model.getNumberOfOperations();
+                        model.hashCode();
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            assertEquals(files, model.getNumberOfClasses());
+            assertEquals(files, model.getOperations().size());
+            for (int i = 0; i < files; i++) {
+                assertEquals(2, model.getImports("file" + i + ".py").size(), "Every import should be kept");
+            }
+        }
+    }
+}
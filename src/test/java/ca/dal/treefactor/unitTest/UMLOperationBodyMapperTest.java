@@ -2,7 +2,11 @@ package ca.dal.treefactor.unitTest;
 
 import ca.dal.treefactor.model.CodeElementType;
 import ca.dal.treefactor.model.core.*;
+import ca.dal.treefactor.model.diff.mappers.LCSStatementAligner;
+import ca.dal.treefactor.model.diff.mappers.ParameterMapper;
+import ca.dal.treefactor.model.diff.mappers.StatementMapper;
 import ca.dal.treefactor.model.diff.mappers.UMLOperationBodyMapper;
+import ca.dal.treefactor.model.diff.mapping.StatementMapping;
 import ca.dal.treefactor.model.diff.refactoring.Refactoring;
 import ca.dal.treefactor.model.diff.refactoring.operations.RenameParameterRefactoring;
 import ca.dal.treefactor.model.elements.*;
@@ -10,7 +14,14 @@ import io.github.treesitter.jtreesitter.Point;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,6 +44,25 @@ class UMLOperationBodyMapperTest {
                 "Identical statements should have perfect similarity score");
     }
 
+    @Test
+    void scoreOnlyPathShouldMatchMapperScore() {
+        // The repeated x = 5 is left out of the alignment and mapped as a remaining statement
+        UMLOperation op1 = createOperationWithBody(
+                "x = 5\nprint('hello')\ny = 2",
+                new Point(1, 0), new Point(3, 5)
+        );
+        UMLOperation op2 = createOperationWithBody(
+                "print('hello')\ny = 2\nx = 5\nz = 1",
+                new Point(1, 0), new Point(4, 5)
+        );
+
+        double expected = new UMLOperationBodyMapper(op1, op2).bodyComparatorScore();
+        assertEquals(0.75, expected);
+        assertEquals(expected, UMLOperationBodyMapper.bodyComparatorScore(op1, op2, 0.7));
+        assertEquals(0.0, UMLOperationBodyMapper.bodyComparatorScore(op1, op2, 0.8),
+                "Unreachable scores should be cut short");
+    }
+
     @Nested
     class ParameterRenameTests {
         @Test
@@ -131,6 +161,137 @@ class UMLOperationBodyMapperTest {
         }
     }
 
+    @Nested
+    class EquivalenceTests {
+        // Small vocabulary so that bodies share statements, some only once parameters are renamed
+        private static final String[] STATEMENTS = {"x = a + 1", "return a", "b = a", "print(b)", "y = $a",
+                "call(a, b)", "  x = a + 1", "z = 0", "a = b", "}"};
+        private static final String[][] PARAMETER_NAMES = {{"a", "b"}, {"x", "y"}, {"b", "a"}, {"a", "q"}};
+
+        private UMLOperation randomOperation(Random random, String name, String[] parameterNames) {
+            StringBuilder body = new StringBuilder();
+            int length = random.nextInt(25);
+            for (int i = 0; i < length; i++) {
+                body.append(STATEMENTS[random.nextInt(STATEMENTS.length)]).append('\n');
+            }
+            UMLOperation operation = UMLOperation.builder(name, new LocationInfo(TEST_FILE,
+                            new Point(1, 0), new Point(length + 1, 0), CodeElementType.METHOD_DECLARATION))
+                    .returnType(new UMLType("None"))
+                    .body(body.toString())
+                    .build();
+            for (String parameterName : parameterNames) {
+                operation.addParameter(createParameter(parameterName, operation));
+            }
+            return operation;
+        }
+
+        @Test
+        void shouldMapLikeThePreviousMapper() {
+            Random random = new Random(42);
+            int mapped = 0;
+            for (int trial = 0; trial < 3000; trial++) {
+                UMLOperation op1 = randomOperation(random, "f", PARAMETER_NAMES[0]);
+                UMLOperation op2 = randomOperation(random, random.nextBoolean() ? "f" : "g",
+                        PARAMETER_NAMES[random.nextInt(PARAMETER_NAMES.length)]);
+
+                PreviousMapper expected = new PreviousMapper(op1, op2);
+                UMLOperationBodyMapper actual = new UMLOperationBodyMapper(op1, op2, new LCSStatementAligner());
+                String pair = "Pair " + trial + ":\n" + op1.getBody() + "---\n" + op2.getBody();
+                assertEquals(expected.mappings.toString(), actual.getMappings().toString(), pair);
+                assertEquals(expected.score(), actual.bodyComparatorScore(), pair);
+                assertEquals(expected.score(), UMLOperationBodyMapper.bodyComparatorScore(op1, op2, 0.0), pair);
+                assertEquals(expected.refactoringCount, actual.getRefactorings().size(), pair);
+                if (!expected.mappings.isEmpty()) {
+                    mapped++;
+                }
+            }
+            assertTrue(mapped > 1000, "Most pairs should have mappings to compare");
+        }
+    }
+
+    /**
+     * The mapper before statements were normalized into ids: a StatementMapper per cell of the
+     * LCS table, then a quadratic scan of the statements left unmapped
+     */
+    private static final class PreviousMapper {
+        private final List<StatementMapping> mappings = new ArrayList<>();
+        private final Map<String, String> parameterReplacements;
+        private final int refactoringCount;
+        private final String[] statements1;
+        private final String[] statements2;
+
+        PreviousMapper(UMLOperation operation1, UMLOperation operation2) {
+            ParameterMapper parameterMapper = new ParameterMapper(operation1, operation2);
+            this.parameterReplacements = parameterMapper.getParameterReplacements();
+            this.statements1 = operation1.getOperationBody().getStatements();
+            this.statements2 = operation2.getOperationBody().getStatements();
+
+            int[][] matrix = new int[statements1.length + 1][statements2.length + 1];
+            for (int i = 1; i <= statements1.length; i++) {
+                for (int j = 1; j <= statements2.length; j++) {
+                    matrix[i][j] = mapper(i - 1, j - 1).match() ?
+                            matrix[i - 1][j - 1] + 1 :
+                            Math.max(matrix[i - 1][j], matrix[i][j - 1]);
+                }
+            }
+            List<StatementMapping> ordered = new ArrayList<>();
+            int i = statements1.length;
+            int j = statements2.length;
+            while (i > 0 && j > 0) {
+                if (matrix[i][j] > Math.max(matrix[i - 1][j], matrix[i][j - 1])) {
+                    mapper(i - 1, j - 1).createMapping().ifPresent(ordered::add);
+                    i--;
+                    j--;
+                } else if (matrix[i - 1][j] > matrix[i][j - 1]) {
+                    i--;
+                } else {
+                    j--;
+                }
+            }
+            Collections.reverse(ordered);
+            mappings.addAll(ordered);
+
+            Set<Integer> mapped1 = mappedIndices(statements1, true);
+            Set<Integer> mapped2 = mappedIndices(statements2, false);
+            for (int k = 0; k < statements1.length; k++) {
+                if (mapped1.contains(k)) continue;
+                for (int l = 0; l < statements2.length; l++) {
+                    if (mapped2.contains(l)) continue;
+                    Optional<StatementMapping> mapping = mapper(k, l).createMapping();
+                    if (mapping.isPresent()) {
+                        mappings.add(mapping.get());
+                        mapped1.add(k);
+                        mapped2.add(l);
+                    }
+                }
+            }
+
+            boolean renamed = !operation1.getName().equals(operation2.getName()) && score() >= 0.7;
+            this.refactoringCount = parameterMapper.getRefactorings().size() + (renamed ? 1 : 0);
+        }
+
+        private StatementMapper mapper(int i, int j) {
+            return new StatementMapper(statements1[i].trim(), statements2[j].trim(), parameterReplacements);
+        }
+
+        private Set<Integer> mappedIndices(String[] statements, boolean first) {
+            Set<Integer> indices = new HashSet<>();
+            for (int i = 0; i < statements.length; i++) {
+                for (StatementMapping mapping : mappings) {
+                    if (statements[i].trim().equals(first ? mapping.getStatement1() : mapping.getStatement2())) {
+                        indices.add(i);
+                    }
+                }
+            }
+            return indices;
+        }
+
+        double score() {
+            int maxStatements = Math.max(statements1.length, statements2.length);
+            return maxStatements == 0 ? 0.0 : (double) mappings.size() / maxStatements;
+        }
+    }
+
     private UMLOperation createOperationWithBody(String body, Point start, Point end) {
         LocationInfo location = new LocationInfo(TEST_FILE, start, end,
                 CodeElementType.METHOD_DECLARATION);